@@ -0,0 +1,65 @@
+/*
+ * copyright (C) 2008-2019 Patrick Stricker
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA
+ *
+ * 	Patrick Stricker - http://pa2.de
+ */
+package de.pa2.commons.configuration.benchmarks;
+
+import java.nio.ByteBuffer;
+
+import de.pa2.commons.configuration.Configuration;
+import de.pa2.commons.configuration.DefaultBooleanValue;
+import de.pa2.commons.configuration.DefaultIntValue;
+import de.pa2.commons.configuration.DefaultLongValue;
+import de.pa2.commons.configuration.DefaultStringValue;
+
+/**
+ * configuration interface covering the supported return types
+ */
+public interface BenchmarkConfiguration extends Configuration {
+	enum Mode {
+		FAST,
+		SAFE
+	}
+
+	@DefaultStringValue("default")
+	String getName();
+
+	@DefaultIntValue(42)
+	int getPoolSize();
+
+	@DefaultIntValue(8)
+	Integer getQueueSize();
+
+	@DefaultLongValue(1000l)
+	long getTimeoutMillis();
+
+	@DefaultLongValue(5000l)
+	Long getIdleMillis();
+
+	@DefaultBooleanValue(true)
+	boolean isEnabled();
+
+	@DefaultBooleanValue(false)
+	Boolean isTraced();
+
+	Mode getMode();
+
+	byte[] getData();
+
+	ByteBuffer getDataBuffer();
+}
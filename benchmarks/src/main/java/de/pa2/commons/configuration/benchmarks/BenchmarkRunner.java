@@ -0,0 +1,48 @@
+/*
+ * copyright (C) 2008-2019 Patrick Stricker
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA
+ *
+ * 	Patrick Stricker - http://pa2.de
+ */
+package de.pa2.commons.configuration.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * runs the benchmarks single threaded and with one thread per core, with the
+ * GC profiler reporting allocation rates. Accepts the usual JMH command line
+ * options, e.g. a benchmark name pattern.
+ */
+public class BenchmarkRunner {
+
+	public static void main(String[] args) throws Exception {
+		CommandLineOptions commandLine = new CommandLineOptions(args);
+		int cores = Runtime.getRuntime().availableProcessors();
+		for (int threads : new int[] { 1, cores }) {
+			new Runner(new OptionsBuilder()
+					.parent(commandLine)
+					.threads(threads)
+					.addProfiler(GCProfiler.class)
+					.build()).run();
+			if (cores == 1) {
+				break;
+			}
+		}
+	}
+}
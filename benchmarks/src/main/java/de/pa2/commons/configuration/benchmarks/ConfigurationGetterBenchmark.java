@@ -0,0 +1,120 @@
+/*
+ * copyright (C) 2008-2019 Patrick Stricker
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA
+ *
+ * 	Patrick Stricker - http://pa2.de
+ */
+package de.pa2.commons.configuration.benchmarks;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.pa2.commons.configuration.SystemPropertyConfigurationFactory;
+
+/**
+ * measures each return type of a configuration getter, on a proxy, on a
+ * generated implementation and on a snapshot
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ConfigurationGetterBenchmark {
+	@Param({ "proxy", "generated", "snapshot" })
+	private String mode;
+
+	private BenchmarkConfiguration configuration;
+
+	@Setup
+	public void setup() {
+		// some values are set, the others fall back to their defaults
+		System.setProperty("pool.size", "16");
+		System.setProperty("idle.millis", "60000");
+		System.setProperty("traced", "true");
+		System.setProperty("mode", "safe");
+		System.setProperty("data", "resource://benchmark.bin");
+		System.setProperty("data.buffer", "resource://benchmark.bin");
+
+		SystemPropertyConfigurationFactory factory = new SystemPropertyConfigurationFactory();
+		factory.setGenerateImplementations("generated".equals(this.mode));
+		factory.setSnapshots("snapshot".equals(this.mode));
+		this.configuration = factory.getInstance(BenchmarkConfiguration.class);
+	}
+
+	@Benchmark
+	public String getString() {
+		return this.configuration.getName();
+	}
+
+	@Benchmark
+	public int getInt() {
+		return this.configuration.getPoolSize();
+	}
+
+	@Benchmark
+	public Integer getInteger() {
+		return this.configuration.getQueueSize();
+	}
+
+	@Benchmark
+	public long getLong() {
+		return this.configuration.getTimeoutMillis();
+	}
+
+	@Benchmark
+	public Long getLongObject() {
+		return this.configuration.getIdleMillis();
+	}
+
+	@Benchmark
+	public boolean getBoolean() {
+		return this.configuration.isEnabled();
+	}
+
+	@Benchmark
+	public Boolean getBooleanObject() {
+		return this.configuration.isTraced();
+	}
+
+	@Benchmark
+	public BenchmarkConfiguration.Mode getEnum() {
+		return this.configuration.getMode();
+	}
+
+	@Benchmark
+	public byte[] getBytes() {
+		return this.configuration.getData();
+	}
+
+	@Benchmark
+	public ByteBuffer getByteBuffer() {
+		return this.configuration.getDataBuffer();
+	}
+}
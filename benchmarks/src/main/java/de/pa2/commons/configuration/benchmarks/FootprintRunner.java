@@ -0,0 +1,115 @@
+/*
+ * copyright (C) 2008-2019 Patrick Stricker
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA
+ *
+ * 	Patrick Stricker - http://pa2.de
+ */
+package de.pa2.commons.configuration.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Properties;
+import java.util.function.Supplier;
+
+import de.pa2.commons.configuration.resolvers.ResourcePropertyResolver;
+
+/**
+ * measures the retained heap per key of a {@link ResourcePropertyResolver}
+ * layer, including the canonical key names, and of the same properties in
+ * {@link Properties}. Run with
+ * <code>java -cp target/benchmarks.jar de.pa2.commons.configuration.benchmarks.FootprintRunner [keys]</code>
+ */
+public class FootprintRunner {
+	/**
+	 * keeps the measured object reachable until the heap is measured
+	 */
+	private static volatile Object retained;
+
+	public static void main(String[] args) {
+		int keys = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+		byte[] source = properties(keys);
+
+		long properties = measure(() -> {
+			Properties result = new Properties();
+			try {
+				result.load(new ByteArrayInputStream(source));
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			return result;
+		});
+		long compact = measure(() -> new ResourcePropertyResolver(new ByteArrayInputStream(source)));
+
+		System.out.printf("%d keys%n", keys);
+		System.out.printf("%-28s %8.1f bytes/key%n", Properties.class.getName(), (double) properties / keys);
+		System.out.printf("%-28s %8.1f bytes/key%n", ResourcePropertyResolver.class.getSimpleName(),
+				(double) compact / keys);
+	}
+
+	/**
+	 * property names like those of configuration interfaces, with values
+	 * that repeat as flags and pool sizes do
+	 */
+	private static byte[] properties(int keys) {
+		StringBuilder buf = new StringBuilder(keys * 48);
+		for (int i = 0; i < keys; i++) {
+			buf.append("service").append(i % 100).append(".pool.").append(i).append(".size=");
+			switch (i % 4) {
+			case 0:
+				buf.append(i % 64);
+				break;
+			case 1:
+				buf.append(i % 2 == 0 ? "true" : "false");
+				break;
+			case 2:
+				buf.append("http://host").append(i % 10).append(":8080/");
+				break;
+			default:
+				buf.append("value-").append(i);
+			}
+			buf.append('\n');
+		}
+		return buf.toString().getBytes(StandardCharsets.ISO_8859_1);
+	}
+
+	/**
+	 * @return bytes retained by the created object
+	 */
+	private static long measure(Supplier<Object> creation) {
+		long before = usedAfterGc();
+		retained = creation.get();
+		long after = usedAfterGc();
+		retained = null;
+		return after - before;
+	}
+
+	private static long usedAfterGc() {
+		Runtime runtime = Runtime.getRuntime();
+		long used = Long.MAX_VALUE;
+		// until a collection does not free anything more
+		for (int i = 0; i < 10; i++) {
+			System.gc();
+			long current = runtime.totalMemory() - runtime.freeMemory();
+			if (current >= used) {
+				break;
+			}
+			used = current;
+		}
+		return used;
+	}
+}
@@ -0,0 +1,84 @@
+/*
+ * copyright (C) 2008-2019 Patrick Stricker
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA
+ *
+ * 	Patrick Stricker - http://pa2.de
+ */
+package de.pa2.commons.configuration.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.pa2.commons.configuration.SystemPropertyConfigurationFactory;
+
+/**
+ * compares getters of instances created with metrics disabled, which must
+ * not be slower than before metrics existed, and enabled
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MetricsOverheadBenchmark {
+	@Param({ "false", "true" })
+	private boolean metrics;
+
+	@Param({ "proxy", "generated" })
+	private String mode;
+
+	private SystemPropertyConfigurationFactory factory;
+
+	private BenchmarkConfiguration configuration;
+
+	@Setup
+	public void setup() {
+		System.setProperty("pool.size", "16");
+
+		this.factory = new SystemPropertyConfigurationFactory();
+		this.factory.setGenerateImplementations("generated".equals(this.mode));
+		this.factory.setMetrics(this.metrics);
+		this.configuration = this.factory.getInstance(BenchmarkConfiguration.class);
+	}
+
+	@TearDown
+	public void tearDown() {
+		this.factory.setMetrics(false);
+	}
+
+	@Benchmark
+	public String getString() {
+		return this.configuration.getName();
+	}
+
+	@Benchmark
+	public int getInt() {
+		return this.configuration.getPoolSize();
+	}
+}
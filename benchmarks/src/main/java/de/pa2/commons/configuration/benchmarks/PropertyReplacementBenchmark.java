@@ -0,0 +1,69 @@
+/*
+ * copyright (C) 2008-2019 Patrick Stricker
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA
+ *
+ * 	Patrick Stricker - http://pa2.de
+ */
+package de.pa2.commons.configuration.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.pa2.commons.configuration.resolvers.PropertyReplacementUtil;
+import de.pa2.commons.configuration.resolvers.PropertyResolver;
+import de.pa2.commons.configuration.resolvers.ResourcePropertyResolver;
+
+/**
+ * measures placeholder replacement for values with and without placeholders
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PropertyReplacementBenchmark {
+	@Param({ "jdbc:postgresql://localhost:5432/db", "http://${host}:${port}/path", "${url}/nested",
+			"${missing:${host}}", "${unresolved}" })
+	private String value;
+
+	private PropertyResolver resolver;
+
+	@Setup
+	public void setup() {
+		String properties = "host=localhost\nport=8080\nurl=http://${host}:${port}\n";
+		this.resolver = new ResourcePropertyResolver(
+				new ByteArrayInputStream(properties.getBytes(StandardCharsets.ISO_8859_1)));
+	}
+
+	@Benchmark
+	public String replacePlaceholders() {
+		return PropertyReplacementUtil.replacePlaceholders(this.value, this.resolver);
+	}
+}
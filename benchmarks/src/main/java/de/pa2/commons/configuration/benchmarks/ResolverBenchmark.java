@@ -0,0 +1,113 @@
+/*
+ * copyright (C) 2008-2019 Patrick Stricker
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA
+ *
+ * 	Patrick Stricker - http://pa2.de
+ */
+package de.pa2.commons.configuration.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.pa2.commons.configuration.resolvers.AggregatedPropertyResolver;
+import de.pa2.commons.configuration.resolvers.EnvironmentResolver;
+import de.pa2.commons.configuration.resolvers.PropertyResolver;
+import de.pa2.commons.configuration.resolvers.ResourcePropertyResolver;
+import de.pa2.commons.configuration.resolvers.SystemPropertyResolver;
+
+/**
+ * measures hits and misses of each resolver. The aggregated resolvers are
+ * built like the chain of the default factory, the hit is found in the last
+ * layer. The state is shared, so runs with many threads show contention of
+ * the resolvers.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ResolverBenchmark {
+	private static final String HIT = "benchmark.resolver.hit";
+
+	private static final String MISS = "benchmark.resolver.miss";
+
+	@Param({ "system", "system-snapshot", "environment", "resource", "aggregated", "aggregated-indexed" })
+	private String resolverType;
+
+	private PropertyResolver resolver;
+
+	@Setup
+	public void setup() {
+		switch (this.resolverType) {
+		case "system":
+			System.setProperty(HIT, "value");
+			this.resolver = new SystemPropertyResolver();
+			break;
+		case "system-snapshot":
+			System.setProperty(HIT, "value");
+			this.resolver = new SystemPropertyResolver(true);
+			break;
+		case "environment":
+			Map<String, String> environment = new HashMap<>(System.getenv());
+			environment.put("BENCHMARK_RESOLVER_HIT", "value");
+			this.resolver = new EnvironmentResolver(environment);
+			break;
+		case "resource":
+			this.resolver = resource(HIT + "=value\n");
+			break;
+		default:
+			AggregatedPropertyResolver aggregated = new AggregatedPropertyResolver(
+					"aggregated-indexed".equals(this.resolverType));
+			aggregated.add(new SystemPropertyResolver());
+			aggregated.add(new EnvironmentResolver());
+			aggregated.add(resource("host.specific=file\n"));
+			aggregated.add(resource("host.specific=resource\n"));
+			aggregated.add(resource("default=file\n"));
+			aggregated.add(resource(HIT + "=value\n"));
+			this.resolver = aggregated;
+		}
+	}
+
+	private static ResourcePropertyResolver resource(String properties) {
+		return new ResourcePropertyResolver(new ByteArrayInputStream(properties.getBytes(StandardCharsets.ISO_8859_1)));
+	}
+
+	@Benchmark
+	public String hit() {
+		return this.resolver.getProperty(HIT, null);
+	}
+
+	@Benchmark
+	public String miss() {
+		return this.resolver.getProperty(MISS, null);
+	}
+}
@@ -0,0 +1,104 @@
+/*
+ * copyright (C) 2008-2019 Patrick Stricker
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA
+ *
+ * 	Patrick Stricker - http://pa2.de
+ */
+package de.pa2.commons.configuration.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * measures the throughput of the resolvers with 1 to 256 threads sharing one
+ * resolver and prints the speedup over a single thread. Lookups without
+ * locks scale linearly up to the number of cores and stay flat above it.
+ * Accepts the usual JMH command line options, without a benchmark pattern
+ * the resolver benchmarks are run.
+ */
+public class ScalingBenchmarkRunner {
+	private static final int MAX_THREADS = 256;
+
+	public static void main(String[] args) throws Exception {
+		CommandLineOptions commandLine = new CommandLineOptions(args);
+		String include = commandLine.getIncludes().isEmpty() ? ResolverBenchmark.class.getSimpleName() : null;
+
+		// results by benchmark and parameters, then by thread count
+		Map<String, Map<Integer, RunResult>> results = new LinkedHashMap<>();
+		for (int threads = 1; threads <= MAX_THREADS; threads *= 2) {
+			OptionsBuilder options = new OptionsBuilder();
+			options.parent(commandLine)
+					.mode(Mode.Throughput)
+					.timeUnit(TimeUnit.MICROSECONDS)
+					.threads(threads);
+			if (include != null) {
+				options.include(include);
+			}
+			for (RunResult result : new Runner(options.build()).run()) {
+				results.computeIfAbsent(describe(result.getParams()), key -> new TreeMap<>()).put(threads, result);
+			}
+		}
+		print(results, Runtime.getRuntime().availableProcessors());
+	}
+
+	private static String describe(BenchmarkParams params) {
+		StringBuilder buf = new StringBuilder(params.getBenchmark());
+		Collection<String> keys = params.getParamsKeys();
+		if (!keys.isEmpty()) {
+			List<String> values = new ArrayList<>();
+			for (String key : keys) {
+				values.add(key + "=" + params.getParam(key));
+			}
+			buf.append(values);
+		}
+		return buf.toString();
+	}
+
+	/**
+	 * speedup is the throughput relative to one thread, efficiency the
+	 * speedup relative to the threads that can run at the same time
+	 */
+	private static void print(Map<String, Map<Integer, RunResult>> results, int cores) {
+		System.out.println();
+		System.out.println("scaling on " + cores + " cores");
+		for (Map.Entry<String, Map<Integer, RunResult>> benchmark : results.entrySet()) {
+			System.out.println();
+			System.out.println(benchmark.getKey());
+			System.out.println(String.format("%8s %16s %10s %10s", "threads", "ops/us", "speedup", "efficiency"));
+			RunResult single = benchmark.getValue().get(1);
+			double base = single != null ? single.getPrimaryResult().getScore() : Double.NaN;
+			for (Map.Entry<Integer, RunResult> run : benchmark.getValue().entrySet()) {
+				int threads = run.getKey();
+				double score = run.getValue().getPrimaryResult().getScore();
+				double speedup = score / base;
+				System.out.println(String.format("%8d %16.3f %10.2f %9.0f%%", threads, score, speedup,
+						100 * speedup / Math.min(threads, cores)));
+			}
+		}
+	}
+}
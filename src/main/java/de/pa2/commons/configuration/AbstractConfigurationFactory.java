@@ -19,18 +19,46 @@
  */
 package de.pa2.commons.configuration;
 
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.ref.WeakReference;
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import de.pa2.commons.configuration.resolvers.PropertyReplacementUtil;
+import de.pa2.commons.configuration.MethodAccessor.Conversion;
+import de.pa2.commons.configuration.MethodAccessor.PropertyAccessor;
+import de.pa2.commons.configuration.metrics.ConfigurationMetrics;
+import de.pa2.commons.configuration.metrics.InstrumentedPropertyResolver;
+import de.pa2.commons.configuration.resolvers.AggregatedPropertyResolver;
+import de.pa2.commons.configuration.resolvers.CachingPropertyResolver;
+import de.pa2.commons.configuration.resolvers.LazyPropertyResolver;
+import de.pa2.commons.configuration.resolvers.ObservablePropertyResolver;
+import de.pa2.commons.configuration.resolvers.OverlayPropertyResolver;
+import de.pa2.commons.configuration.resolvers.PersistentPropertyMap;
 import de.pa2.commons.configuration.resolvers.PropertyResolver;
+import de.pa2.commons.configuration.resolvers.ResolverChangeListener;
 
 /**
  * base implementation
@@ -46,295 +74,802 @@ abstract class AbstractConfigurationFactory implements Factory {
 		private PropertyResolver resolver = null;
 
 		/**
-		 * prefix to translate method names into configuration property names
+		 * requested configuration interface and the plans of its methods
 		 */
-		private String configurationPropertyNamePrefix = null;
+		private final ConfigurationInterface metadata;
 
 		/**
-		 * requested configuration interface
+		 * resolved values if the factory works on snapshots, null otherwise
 		 */
-		@SuppressWarnings("rawtypes")
-		private Class interfaceClazz;
+		private volatile ConfigurationSnapshot snapshot = null;
+
+		/**
+		 * records getter invocations, null if metrics are disabled
+		 */
+		private final ConfigurationMetrics metrics;
+
+		/**
+		 * last conversions of the values of this instance by property index,
+		 * kept per instance so that instances reading different resolvers do
+		 * not replace each other's conversions
+		 */
+		private final Conversion[] conversions;
 
 		private static final Logger LOG = LoggerFactory.getLogger(ConfigurationInvocationHandler.class);
 
 		public ConfigurationInvocationHandler(PropertyResolver resolver,
 				@SuppressWarnings("rawtypes") Class interfaceClazz, String configurationPropertyNamePrefix) {
+			this(resolver, interfaceClazz, configurationPropertyNamePrefix, null);
+		}
+
+		public ConfigurationInvocationHandler(PropertyResolver resolver,
+				@SuppressWarnings("rawtypes") Class interfaceClazz, String configurationPropertyNamePrefix,
+				ConfigurationMetrics metrics) {
+			this(resolver, isAnnotatedPrefix(interfaceClazz, configurationPropertyNamePrefix)
+					? ConfigurationInterface.of(interfaceClazz)
+					: new ConfigurationInterface(interfaceClazz, configurationPropertyNamePrefix), metrics);
+		}
+
+		ConfigurationInvocationHandler(PropertyResolver resolver, ConfigurationInterface metadata,
+				ConfigurationMetrics metrics) {
 			super();
 			this.resolver = resolver;
-			this.interfaceClazz = interfaceClazz;
-			this.configurationPropertyNamePrefix = configurationPropertyNamePrefix;
+			this.metadata = metadata;
+			this.metrics = metrics;
+			this.conversions = new Conversion[metadata.getProperties().length];
+		}
+
+		private static boolean isAnnotatedPrefix(Class<?> interfaceClazz, String configurationPropertyNamePrefix) {
+			String annotated = ConfigurationInterface.getPrefix(interfaceClazz);
+			return annotated == null ? configurationPropertyNamePrefix == null
+					: annotated.equals(configurationPropertyNamePrefix);
+		}
+
+		private MethodAccessor compile(Method method, int index) {
+			return this.metadata.compile(method, index);
 		}
 
-		@SuppressWarnings("unchecked")
 		@Override
 		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
 			LOG.debug("invoking method: {}", method);
-			@SuppressWarnings("rawtypes")
-			final Class returnType = method.getReturnType();
-			final String propertyName = this.getConfigurationPropertyName(method.getName());
-
-			if (method.getName().startsWith("set")) {
-				/**
-				 * void setXXX
-				 */
-				throw new IllegalArgumentException("setters are not supported with this implementation");
-			} else if (method.getName().startsWith("get") || method.getName().startsWith("is")) {
-				/**
-				 * String getXXX
-				 */
-				if (String.class.equals(returnType)) {
-					String defaultValue = getDefaultStringValue(method);
-					return this.getConfigurationPropertyValue(propertyName, defaultValue);
-				} else if (int.class.equals(returnType)) {
-					int defaultValue = getDefaultIntValue(method);
-					return this.getConfigurationPropertyValue(propertyName, defaultValue);
-				} else if (Integer.class.equals(returnType)) {
-					Integer defaultValue = getDefaultIntegerValue(method);
-					return this.getConfigurationPropertyValue(propertyName, defaultValue);
-				} else if (long.class.equals(returnType)) {
-					Long defaultValue = getDefaultLongValue(method);
-					if (defaultValue == null) {
-						defaultValue = 0l;
-					}
-					return this.getConfigurationPropertyValue(propertyName, defaultValue);
-				} else if (Long.class.equals(returnType)) {
-					Long defaultValue = getDefaultLongValue(method);
-					return this.getConfigurationPropertyValue(propertyName, defaultValue);
-				} else if (boolean.class.equals(returnType)) {
-					Boolean defaultBooleanValue = getDefaultBooleanValue(method);
-					boolean defaultValue = defaultBooleanValue != null ? defaultBooleanValue.booleanValue() : false;
-					return this.getBooleanConfigurationPropertyValue(propertyName, defaultValue);
-				} else if (Boolean.class.equals(returnType)) {
-					Boolean defaultValue = getDefaultBooleanValue(method);
-					Boolean value = getBooleanConfigurationPropertyValue(propertyName, defaultValue);
-					return value;
-				} else if (returnType.isEnum()) {
-					String defaultValue = null;
-					String enumValue = this.getConfigurationPropertyValue(propertyName, defaultValue);
-					return enumValue != null ?
-
-							Enum.valueOf(returnType, enumValue.toUpperCase()) : null;
-				} else if (byte[].class.equals(returnType)) {
-					String defaultValue = null;
-					String value = this.getConfigurationPropertyValue(propertyName, defaultValue);
-
-					if (value.startsWith("resource://")) {
-						String resourcePath = value.substring("resource://".length());
-						Path pathIn = Paths.get(this.getClass().getClassLoader().getResource(resourcePath).toURI());
-						if (pathIn != null) {
-							byte[] data = Files.readAllBytes(pathIn);
-
-							return data;
-						}
-					}
-				}
+			MethodAccessor accessor = this.metadata.getAccessor(method);
+			if (accessor == null) {
+				// method that is not part of the interface, e.g. from a subclass
+				accessor = this.compile(method, -1);
+			}
+			return this.invoke(accessor, args);
+		}
+
+		private Object invoke(MethodAccessor accessor, Object[] args) {
+			if (this.metrics == null) {
+				return this.execute(accessor, args);
+			}
+			long start = System.nanoTime();
+			try {
+				return this.execute(accessor, args);
+			} finally {
+				this.metrics.recordRead(accessor.getPropertyName(), System.nanoTime() - start);
+			}
+		}
 
-			} else if (method.getName().equals("toString")) {
-				StringBuilder buf = new StringBuilder();
-				buf.append(this.interfaceClazz.getName()).append("(");
-				for (int i = 0; i < this.interfaceClazz.getMethods().length; i++) {
-					if (i > 0) {
-						buf.append(",");
-					}
-					buf.append("\n\t");
-					Method m = this.interfaceClazz.getMethods()[i];
-					@SuppressWarnings("rawtypes")
-					Class methodReturnType = m.getReturnType();
-					String methodPropertyName = this.getConfigurationPropertyName(m.getName());
-					if (String.class.equals(methodReturnType)) {
-						String defaultValue = getDefaultStringValue(method);
-						buf.append(methodPropertyName).append(":")
-								.append(this.getConfigurationPropertyValue(methodPropertyName, defaultValue));
-					} else if (int.class.equals(methodReturnType)) {
-						int defaultValue = getDefaultIntValue(method);
-						buf.append(methodPropertyName).append(":")
-								.append(this.getConfigurationPropertyValue(methodPropertyName, defaultValue));
-					} else if (Integer.class.equals(methodReturnType)) {
-						Integer defaultValue = getDefaultIntegerValue(method);
-						buf.append(methodPropertyName).append(":")
-								.append(this.getConfigurationPropertyValue(methodPropertyName, defaultValue));
-					} else if (long.class.equals(methodReturnType)) {
-						Long defaultValue = getDefaultLongValue(method);
-						if (defaultValue == null) {
-							defaultValue = 0l;
-						}
-						buf.append(methodPropertyName).append(":")
-								.append(this.getConfigurationPropertyValue(methodPropertyName, defaultValue));
-					} else if (Long.class.equals(methodReturnType)) {
-						Long defaultValue = getDefaultLongValue(method);
-						buf.append(methodPropertyName).append(":")
-								.append(this.getConfigurationPropertyValue(methodPropertyName, defaultValue));
-					} else if (boolean.class.equals(methodReturnType)) {
-						Boolean defaultBooleanValue = getDefaultBooleanValue(method);
-						boolean defaultValue = defaultBooleanValue != null ? defaultBooleanValue.booleanValue() : false;
-						buf.append(methodPropertyName).append(":")
-								.append(this.getBooleanConfigurationPropertyValue(methodPropertyName, defaultValue));
-					} else if (Boolean.class.equals(methodReturnType)) {
-						Boolean defaultValue = getDefaultBooleanValue(method);
-						Boolean tmp = getBooleanConfigurationPropertyValue(propertyName, defaultValue);
-						String value = tmp != null ? Boolean.toString(tmp) : null;
-						buf.append(methodPropertyName).append(":")
-								.append(this.getConfigurationPropertyValue(methodPropertyName, value));
-					} else if (methodReturnType.isEnum()) {
-						String defaultValue = null;
-						String enumValue = this.getConfigurationPropertyValue(propertyName, defaultValue);
-						buf.append(methodPropertyName).append(":").append(enumValue);
-					}
+		private Object execute(MethodAccessor accessor, Object[] args) {
+			ConfigurationSnapshot current = this.snapshot;
+			if (current != null) {
+				int slot = accessor.getSnapshotSlot();
+				if (slot >= 0) {
+					return current.get(slot);
 				}
-				buf.append(")");
-				return buf.toString();
-			} else {
-				throw new RuntimeException("unimplemented method:" + method.toString());
 			}
+			return accessor.invoke(this.resolver, args, this.conversions);
+		}
 
-			LOG.error("could not determine configuration value for " + this.interfaceClazz.getName() + "."
-					+ method.getName() + " returning object of type '" + returnType.getName() + "'");
-			return null;
+		/**
+		 * resolves all values with one bulk lookup into a new snapshot and
+		 * publishes it, values are read from the latest snapshot afterwards
+		 */
+		void updateSnapshot() {
+			this.snapshot = ConfigurationSnapshot.build(this.metadata.getProperties(), this.resolver);
 		}
 
-		private static String getDefaultStringValue(Method method) {
-			DefaultStringValue defaulValueString = method.getAnnotation(DefaultStringValue.class);
-			String defaultValue = null;
-			if (defaulValueString != null) {
-				defaultValue = defaulValueString.value();
+		/**
+		 * binds the handler to the method indexes of a generated implementation
+		 *
+		 * @param methods
+		 *            methods in the order of their indexes, null to bind to
+		 *            the implementation generated at build time
+		 * @return values used by the generated implementation
+		 */
+		ConfigurationValues bind(Method[] methods) {
+			if (methods == null) {
+				return new IndexedValues(this.metadata.getLayout());
 			}
-			return defaultValue;
+			MethodAccessor[] indexed = new MethodAccessor[methods.length];
+			for (int i = 0; i < methods.length; i++) {
+				indexed[i] = this.metadata.getAccessor(methods[i]);
+				if (indexed[i] == null) {
+					indexed[i] = this.compile(methods[i], -1);
+				}
+			}
+			return new IndexedValues(indexed);
 		}
 
-		private static Integer getDefaultIntegerValue(Method method) {
-			DefaultIntValue defaultIntValue = method.getAnnotation(DefaultIntValue.class);
-			Integer defaultValue = null;
-			if (defaultIntValue != null) {
-				defaultValue = defaultIntValue.value();
+		/**
+		 * values of the handler accessed by method index
+		 */
+		private final class IndexedValues implements ConfigurationValues {
+			private final MethodAccessor[] accessors;
+
+			IndexedValues(MethodAccessor[] accessors) {
+				super();
+				this.accessors = accessors;
 			}
-			return defaultValue;
-		}
 
-		private static int getDefaultIntValue(Method method) {
-			DefaultIntValue defaultIntValue = method.getAnnotation(DefaultIntValue.class);
-			int defaultValue = 0;
-			if (defaultIntValue != null) {
-				defaultValue = defaultIntValue.value();
+			@Override
+			public Object getValue(int index) {
+				return ConfigurationInvocationHandler.this.invoke(this.accessors[index], null);
+			}
+
+			@Override
+			public int getInt(int index) {
+				MethodAccessor accessor = this.accessors[index];
+				ConfigurationMetrics metrics = ConfigurationInvocationHandler.this.metrics;
+				if (metrics == null) {
+					return this.getInt(accessor);
+				}
+				long start = System.nanoTime();
+				try {
+					return this.getInt(accessor);
+				} finally {
+					metrics.recordRead(accessor.getPropertyName(), System.nanoTime() - start);
+				}
+			}
+
+			private int getInt(MethodAccessor accessor) {
+				ConfigurationSnapshot current = ConfigurationInvocationHandler.this.snapshot;
+				if (current != null && accessor.getSnapshotSlot() >= 0) {
+					return (int) current.getPrimitive(accessor.getSnapshotSlot());
+				}
+				return accessor.getInt(ConfigurationInvocationHandler.this.resolver,
+						ConfigurationInvocationHandler.this.conversions);
+			}
+
+			@Override
+			public long getLong(int index) {
+				MethodAccessor accessor = this.accessors[index];
+				ConfigurationMetrics metrics = ConfigurationInvocationHandler.this.metrics;
+				if (metrics == null) {
+					return this.getLong(accessor);
+				}
+				long start = System.nanoTime();
+				try {
+					return this.getLong(accessor);
+				} finally {
+					metrics.recordRead(accessor.getPropertyName(), System.nanoTime() - start);
+				}
 			}
-			return defaultValue;
-		}
 
-		private static Long getDefaultLongValue(Method method) {
-			DefaultLongValue defaultLongValue = method.getAnnotation(DefaultLongValue.class);
-			Long defaultValue = null;
-			if (defaultLongValue != null) {
-				defaultValue = defaultLongValue.value();
+			private long getLong(MethodAccessor accessor) {
+				ConfigurationSnapshot current = ConfigurationInvocationHandler.this.snapshot;
+				if (current != null && accessor.getSnapshotSlot() >= 0) {
+					return current.getPrimitive(accessor.getSnapshotSlot());
+				}
+				return accessor.getLong(ConfigurationInvocationHandler.this.resolver,
+						ConfigurationInvocationHandler.this.conversions);
+			}
+
+			@Override
+			public boolean getBoolean(int index) {
+				MethodAccessor accessor = this.accessors[index];
+				ConfigurationMetrics metrics = ConfigurationInvocationHandler.this.metrics;
+				if (metrics == null) {
+					return this.getBoolean(accessor);
+				}
+				long start = System.nanoTime();
+				try {
+					return this.getBoolean(accessor);
+				} finally {
+					metrics.recordRead(accessor.getPropertyName(), System.nanoTime() - start);
+				}
+			}
+
+			private boolean getBoolean(MethodAccessor accessor) {
+				ConfigurationSnapshot current = ConfigurationInvocationHandler.this.snapshot;
+				if (current != null && accessor.getSnapshotSlot() >= 0) {
+					return current.getPrimitive(accessor.getSnapshotSlot()) != 0;
+				}
+				return accessor.getBoolean(ConfigurationInvocationHandler.this.resolver,
+						ConfigurationInvocationHandler.this.conversions);
+			}
+
+			@Override
+			public Object invoke(int index, Object[] args) {
+				return ConfigurationInvocationHandler.this.invoke(this.accessors[index], args);
 			}
-			return defaultValue;
 		}
 
-		private static Boolean getDefaultBooleanValue(Method method) {
-			DefaultBooleanValue defaultBooleanValue = method.getAnnotation(DefaultBooleanValue.class);
-			Boolean defaultValue = null;
-			if (defaultBooleanValue != null) {
-				defaultValue = defaultBooleanValue.value();
+		protected String getConfigurationPropertyName(String methodName) {
+			return MethodAccessor.getConfigurationPropertyName(methodName,
+					this.metadata.getConfigurationPropertyNamePrefix());
+		}
+	}
+
+	/**
+	 * use generated classes instead of proxies
+	 */
+	private boolean generateImplementations = false;
+
+	/**
+	 * resolve all values of an instance once into a snapshot
+	 */
+	private boolean snapshots = false;
+
+	/**
+	 * handlers of instances that read from snapshots, they are referenced
+	 * weakly and do not reference the factory so that instances and their
+	 * interfaces can be unloaded
+	 */
+	private static final class SnapshotHandlers implements ResolverChangeListener {
+		private final List<WeakReference<ConfigurationInvocationHandler>> handlers = new CopyOnWriteArrayList<>();
+
+		/**
+		 * executor building new snapshots on reload
+		 */
+		private volatile Executor executor = ForkJoinPool.commonPool();
+
+		/**
+		 * builds the first snapshot of a handler and registers it for reloads,
+		 * reloads are serialized so that an older snapshot never replaces a
+		 * newer one
+		 */
+		synchronized void add(ConfigurationInvocationHandler handler) {
+			handler.updateSnapshot();
+			this.handlers.add(new WeakReference<>(handler));
+		}
+
+		synchronized void updateAll() {
+			for (WeakReference<ConfigurationInvocationHandler> reference : this.handlers) {
+				ConfigurationInvocationHandler handler = reference.get();
+				if (handler == null) {
+					this.handlers.remove(reference);
+				} else {
+					handler.updateSnapshot();
+				}
 			}
-			return defaultValue;
 		}
 
-		private String getConfigurationPropertyValue(String propertyName, String defaultValue) {
-			String value = this.resolver.getProperty(propertyName, defaultValue);
-			
-			String cleanedValue = PropertyReplacementUtil.replacePlaceholders(value, this.resolver);
-			
-			LOG.debug("configuration property '" + propertyName + "': " + cleanedValue + " (default:'" + defaultValue + "')");
+		CompletableFuture<Void> reload() {
+			return CompletableFuture.runAsync(this::updateAll, this.executor);
+		}
 
-			return cleanedValue;
+		@Override
+		public void propertiesChanged(Set<String> propertyNames) {
+			// changed sources lead to new snapshots
+			this.executor.execute(this::updateAll);
 		}
+	}
+
+	private final SnapshotHandlers snapshotHandlers = new SnapshotHandlers();
+
+	/**
+	 * true once the snapshot handlers listen to the resolver chain
+	 */
+	private boolean snapshotHandlersRegistered = false;
 
-		private boolean getBooleanConfigurationPropertyValue(String propertyName, boolean defaultValue) {
-			boolean value = "TRUE".equalsIgnoreCase(
-					this.getConfigurationPropertyValue(propertyName, new Boolean(defaultValue).toString()));
-			LOG.debug("configuration property '" + propertyName + "': " + value + " (default:'" + defaultValue + "')");
-			return value;
+	/**
+	 * instances by configuration interface, the instances are kept with the
+	 * interface class and do not keep its class loader alive
+	 */
+	private final class Instances extends ClassValue<CachedInstance> {
+		@Override
+		protected CachedInstance computeValue(Class<?> type) {
+			ConfigurationInvocationHandler handler = AbstractConfigurationFactory.this.createHandler(type, null);
+			return new CachedInstance(AbstractConfigurationFactory.this.createInstance(type, handler), handler);
 		}
+	}
 
-		private Boolean getBooleanConfigurationPropertyValue(String propertyName, Boolean defaultValue) {
-			String value = this.getConfigurationPropertyValue(propertyName,
-					defaultValue != null ? defaultValue.toString() : null);
-			LOG.debug("configuration property '" + propertyName + "': " + value + " (default:'" + defaultValue + "')");
+	/**
+	 * cached instance and its handler, which is used to warm it up
+	 */
+	private static final class CachedInstance {
+		final Object instance;
 
-			if (value == null) {
-				return null;
-			} else {
-				return "true".equalsIgnoreCase(value);
+		final ConfigurationInvocationHandler handler;
+
+		CachedInstance(Object instance, ConfigurationInvocationHandler handler) {
+			super();
+			this.instance = instance;
+			this.handler = handler;
+		}
+	}
+
+	/**
+	 * cached instances, replaced when a setting affecting new instances
+	 * changes
+	 */
+	private volatile Instances instances = new Instances();
+
+	/**
+	 * executor delivering change events
+	 */
+	private Executor notificationExecutor = ForkJoinPool.commonPool();
+
+	/**
+	 * delivers change events, created on the first subscription
+	 */
+	private ConfigurationChangeNotifier changeNotifier = null;
+
+	/**
+	 * lookup metrics, null if they are disabled
+	 */
+	private volatile ConfigurationMetrics metrics = null;
+
+	/**
+	 * runtime overrides on top of the resolver chain shared by all
+	 * instances, built on first use
+	 */
+	private volatile OverlayPropertyResolver resolver = null;
+
+	/**
+	 * resolver chain wrapped for the current metrics, null if metrics are
+	 * disabled or no instance was created since they were enabled
+	 */
+	private InstrumentedPropertyResolver instrumentedResolver = null;
+
+	/**
+	 * builds the resolver chain, called once per factory. The chain is shared
+	 * by all instances created by the factory.
+	 *
+	 * @return resolver chain
+	 */
+	protected abstract PropertyResolver getResolver();
+
+	/**
+	 * @return resolver chain shared by all instances, topped by the runtime
+	 *         overrides
+	 */
+	protected final PropertyResolver getSharedResolver() {
+		return this.getOverrideLayer();
+	}
+
+	private OverlayPropertyResolver getOverrideLayer() {
+		OverlayPropertyResolver result = this.resolver;
+		if (result == null) {
+			synchronized (this) {
+				result = this.resolver;
+				if (result == null) {
+					result = new OverlayPropertyResolver(this.getResolver());
+					this.resolver = result;
+				}
 			}
 		}
+		return result;
+	}
+
+	/**
+	 * overrides a property at runtime for all instances of the factory, with
+	 * precedence over all other sources. Writers never block readers,
+	 * snapshots and subscribers are notified.
+	 *
+	 * @param propertyName
+	 *            name of the property
+	 * @param value
+	 *            new value, null to remove the override
+	 */
+	public void setOverride(String propertyName, String value) {
+		if (value == null) {
+			this.getOverrideLayer().removeOverride(propertyName);
+		} else {
+			this.getOverrideLayer().setOverride(propertyName, value);
+		}
+	}
+
+	/**
+	 * removes a runtime override, the value of the other sources is visible
+	 * again
+	 */
+	public void removeOverride(String propertyName) {
+		this.getOverrideLayer().removeOverride(propertyName);
+	}
+
+	/**
+	 * replaces all runtime overrides at once
+	 *
+	 * @param overrides
+	 *            values by property name
+	 */
+	public void setOverrides(Map<String, String> overrides) {
+		this.getOverrideLayer().setOverrides(PersistentPropertyMap.of(overrides));
+	}
 
-		private int getConfigurationPropertyValue(String propertyName, int defaultValue) throws NumberFormatException {
-			return Integer.parseInt(this.getConfigurationPropertyValue(propertyName, "" + defaultValue));
+	/**
+	 * @return current runtime overrides, an immutable version
+	 */
+	public PersistentPropertyMap getOverrides() {
+		return this.getOverrideLayer().getOverrides();
+	}
+
+	private synchronized InstrumentedPropertyResolver getInstrumentedResolver(ConfigurationMetrics metrics) {
+		if (this.instrumentedResolver == null) {
+			this.instrumentedResolver = metrics.instrument(this.getSharedResolver());
 		}
+		return this.instrumentedResolver;
+	}
+
+	/**
+	 * @return true if instances are generated classes instead of proxies
+	 */
+	public boolean isGenerateImplementations() {
+		return this.generateImplementations;
+	}
+
+	/**
+	 * enables generated classes implementing the configuration interfaces
+	 * instead of {@link Proxy} instances, getters are dispatched directly and
+	 * primitive results are not boxed. Interfaces that can not be implemented
+	 * by a generated class, e.g. non public ones, still get a proxy.
+	 * Implementations generated at build time by the annotation processor are
+	 * used regardless of this setting.
+	 *
+	 * @param generateImplementations
+	 *            true to generate implementations
+	 */
+	public void setGenerateImplementations(boolean generateImplementations) {
+		this.generateImplementations = generateImplementations;
+		this.instances = new Instances();
+	}
+
+	/**
+	 * @return true if instances read their values from snapshots
+	 */
+	public boolean isSnapshots() {
+		return this.snapshots;
+	}
+
+	/**
+	 * enables the snapshot mode for instances created afterwards: all values
+	 * of an interface are resolved, expanded and converted once, getters read
+	 * them with a single volatile load. Values change only on
+	 * {@link #reload()}.
+	 *
+	 * @param snapshots
+	 *            true to read values from snapshots
+	 */
+	public void setSnapshots(boolean snapshots) {
+		this.snapshots = snapshots;
+		this.instances = new Instances();
+	}
+
+	/**
+	 * @return lookup metrics of instances created while metrics were
+	 *         enabled, null if metrics are disabled
+	 */
+	public ConfigurationMetrics getMetrics() {
+		return this.metrics;
+	}
 
-		private Long getConfigurationPropertyValue(String propertyName, Long defaultValue)
-				throws NumberFormatException {
-			String value = this.getConfigurationPropertyValue(propertyName,
-					defaultValue != null ? "" + defaultValue : null);
-			if (value != null) {
-				return Long.parseLong(value);
-			} else {
-				return null;
+	/**
+	 * enables lookup metrics for instances created afterwards and publishes
+	 * them as platform MBean
+	 * <code>de.pa2.commons.configuration:type=ConfigurationMetrics,name=...</code>.
+	 * Instances created while metrics are disabled are not instrumented and
+	 * do not pay for it.
+	 *
+	 * @param metrics
+	 *            true to record metrics
+	 */
+	public synchronized void setMetrics(boolean metrics) {
+		if (metrics && this.metrics == null) {
+			ConfigurationMetrics created = new ConfigurationMetrics();
+			try {
+				created.register(new ObjectName("de.pa2.commons.configuration:type=ConfigurationMetrics,name="
+						+ this.getClass().getSimpleName() + "@" + Integer.toHexString(System.identityHashCode(this))));
+			} catch (MalformedObjectNameException e) {
+				throw new IllegalStateException(e);
+			}
+			this.metrics = created;
+			this.instances = new Instances();
+		} else if (!metrics && this.metrics != null) {
+			this.metrics.unregister();
+			this.metrics = null;
+			if (this.instrumentedResolver != null) {
+				this.instrumentedResolver.close();
+				this.instrumentedResolver = null;
 			}
+			this.instances = new Instances();
 		}
+	}
 
-		protected String getConfigurationPropertyName(String methodName) {
-			String methodNameWithoutGet = null;
-			if (methodName.startsWith("get")) {
-				methodNameWithoutGet = methodName.substring("get".length());
-			} else if (methodName.startsWith("set")) {
-				methodNameWithoutGet = methodName.substring("set".length());
-			} else if (methodName.startsWith("is")) {
-				methodNameWithoutGet = methodName.substring("is".length());
-			} else {
-				methodNameWithoutGet = methodName;
-			}
+	/**
+	 * @param reloadExecutor
+	 *            executor building new snapshots, defaults to the common
+	 *            fork join pool
+	 */
+	public void setReloadExecutor(Executor reloadExecutor) {
+		this.snapshotHandlers.executor = reloadExecutor;
+	}
 
-			StringBuilder buf = new StringBuilder();
-			if (this.configurationPropertyNamePrefix != null) {
-				if (this.configurationPropertyNamePrefix.endsWith(".")) {
-					buf.append(this.configurationPropertyNamePrefix);
-				} else {
-					buf.append(this.configurationPropertyNamePrefix).append(".");
-				}
+	/**
+	 * @param notificationExecutor
+	 *            executor delivering change events, defaults to the common
+	 *            fork join pool
+	 */
+	public synchronized void setNotificationExecutor(Executor notificationExecutor) {
+		this.notificationExecutor = notificationExecutor;
+		if (this.changeNotifier != null) {
+			this.changeNotifier.setExecutor(notificationExecutor);
+		}
+	}
+
+	/**
+	 * registers a listener that is notified asynchronously when the value of
+	 * a property changes, including changes of properties referenced through
+	 * placeholders. Changes are noticed for sources that report them, e.g.
+	 * watched files.
+	 *
+	 * @param propertyName
+	 *            name of the property
+	 * @param listener
+	 *            listener to notify
+	 * @return subscription to cancel
+	 */
+	public ConfigurationSubscription subscribe(String propertyName, ConfigurationChangeListener listener) {
+		return this.getChangeNotifier().subscribe(propertyName, listener);
+	}
+
+	/**
+	 * registers a listener that is notified asynchronously when the value
+	 * returned by a method of a configuration interface changes
+	 *
+	 * @param clazz
+	 *            configuration interface
+	 * @param methodName
+	 *            name of the getter without arguments
+	 * @param listener
+	 *            listener to notify
+	 * @return subscription to cancel
+	 * @see #subscribe(String, ConfigurationChangeListener)
+	 */
+	public <E extends Configuration> ConfigurationSubscription subscribe(Class<E> clazz, String methodName,
+			ConfigurationChangeListener listener) {
+		Method method;
+		try {
+			method = clazz.getMethod(methodName);
+		} catch (NoSuchMethodException e) {
+			throw new IllegalArgumentException("unknown method " + clazz.getName() + "." + methodName, e);
+		}
+		ConfigurationInterface metadata = ConfigurationInterface.of(clazz);
+		MethodAccessor accessor = metadata.getAccessor(method);
+		if (accessor instanceof PropertyAccessor) {
+			// events report the default of the getter while the property is not set
+			PropertyAccessor property = (PropertyAccessor) accessor;
+			return this.getChangeNotifier().subscribe(property.propertyName, property.defaultValue, listener);
+		}
+		return this.subscribe(MethodAccessor.getConfigurationPropertyName(methodName,
+				metadata.getConfigurationPropertyNamePrefix()), listener);
+	}
+
+	private synchronized ConfigurationChangeNotifier getChangeNotifier() {
+		if (this.changeNotifier == null) {
+			this.changeNotifier = new ConfigurationChangeNotifier(this.getSharedResolver(), this.notificationExecutor);
+		}
+		return this.changeNotifier;
+	}
+
+	/**
+	 * warms up the interfaces on the common fork join pool
+	 *
+	 * @see #warmup(Collection, ForkJoinPool)
+	 */
+	public WarmupReport warmup(Collection<Class<? extends Configuration>> interfaces) {
+		return this.warmup(interfaces, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * warms up all interfaces listed in the index written by the annotation
+	 * processor, on the common fork join pool
+	 *
+	 * @param classLoader
+	 *            class loader to read the index and the interfaces from
+	 * @see #warmup(Collection, ForkJoinPool)
+	 */
+	public WarmupReport warmup(ClassLoader classLoader) {
+		return this.warmup(ConfigurationImplementations.discover(classLoader), ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * creates the instances of the interfaces and resolves, expands and
+	 * converts all of their values in parallel, including runtime overrides.
+	 * The converted values are kept by the cached instances, so that the
+	 * first calls of the getters do not pay for it. Blocks until all interfaces are warmed
+	 * up or the first one failed.
+	 *
+	 * @param interfaces
+	 *            configuration interfaces
+	 * @param pool
+	 *            pool warming up the interfaces
+	 * @return time spent on each interface
+	 * @throws ConfigurationWarmupException
+	 *             for the first value that can not be resolved or converted,
+	 *             the remaining interfaces are cancelled
+	 */
+	public WarmupReport warmup(Collection<Class<? extends Configuration>> interfaces, ForkJoinPool pool) {
+		long start = System.nanoTime();
+		CompletionService<Long> completion = new ExecutorCompletionService<>(pool);
+		Map<Future<Long>, Class<? extends Configuration>> tasks = new LinkedHashMap<>();
+		for (Class<? extends Configuration> clazz : interfaces) {
+			tasks.put(completion.submit(() -> this.warmup(clazz)), clazz);
+		}
+		Map<Class<? extends Configuration>, Long> timings = new LinkedHashMap<>();
+		for (Class<? extends Configuration> clazz : interfaces) {
+			timings.put(clazz, null);
+		}
+		try {
+			for (int i = 0; i < tasks.size(); i++) {
+				Future<Long> done = completion.take();
+				timings.put(tasks.get(done), done.get());
 			}
-			for (int i = 0; i < methodNameWithoutGet.length(); i++) {
-				String c = methodNameWithoutGet.substring(i, i + 1);
-				if (c.toUpperCase().equals(c) && i > 0) {
-					buf.append(".");
-					buf.append(c.toLowerCase());
-				} else {
-					buf.append(c.toLowerCase());
-				}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("interrupted while warming up", e);
+		} catch (ExecutionException e) {
+			for (Future<Long> task : tasks.keySet()) {
+				task.cancel(false);
+			}
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
 			}
+			throw new IllegalStateException(e.getCause());
+		}
+		return new WarmupReport(timings, System.nanoTime() - start);
+	}
 
-			return buf.toString();
+	/**
+	 * @return nanoseconds spent on the interface
+	 */
+	private long warmup(Class<? extends Configuration> clazz) {
+		long start = System.nanoTime();
+		ConfigurationInvocationHandler handler;
+		try {
+			handler = this.instances.get(clazz).handler;
+		} catch (RuntimeException e) {
+			throw new ConfigurationWarmupException(clazz, null, e);
 		}
+		// through the handler of the cached instance, so that its conversions are kept
+		for (PropertyAccessor property : handler.metadata.getProperties()) {
+			try {
+				Object value = handler.execute(property, null);
+				if (value instanceof Closeable) {
+					// streams and channels are opened by the getter
+					((Closeable) value).close();
+				}
+			} catch (IOException | RuntimeException e) {
+				throw new ConfigurationWarmupException(clazz, property.propertyName, e);
+			}
+		}
+		return System.nanoTime() - start;
 	}
 
-	protected abstract PropertyResolver getResolver();
+	/**
+	 * resolves the values of all snapshot instances again in the background
+	 * and publishes each new snapshot atomically, readers are never blocked
+	 * and see either the old or the new values of an interface
+	 *
+	 * @return future completed when all snapshots are published
+	 */
+	public CompletableFuture<Void> reload() {
+		return this.snapshotHandlers.reload();
+	}
 
-	@SuppressWarnings({ "unchecked", "rawtypes" })
+	/**
+	 * returns the instance of the interface, instances are created once per
+	 * interface and reused until a setting affecting new instances changes
+	 */
+	@SuppressWarnings("unchecked")
 	@Override
 	public <E extends Configuration> E getInstance(Class<E> clazz) {
-		Class[] proxyInterfaces = new Class[] { clazz };
+		return (E) this.instances.get(clazz).instance;
+	}
+
+	/**
+	 * creates a new instance reading the given values with precedence over
+	 * all sources of the factory. The values are kept in a layer of their
+	 * own, setters of the instance change only this layer.
+	 *
+	 * @param clazz
+	 *            configuration interface
+	 * @param values
+	 *            values by property name
+	 * @return new instance, it is not cached
+	 */
+	@SuppressWarnings("unchecked")
+	public <E extends Configuration> E getInstance(Class<E> clazz, Map<String, String> values) {
+		ConfigurationMetrics metrics = this.metrics;
+		PropertyResolver base = metrics != null ? this.getInstrumentedResolver(metrics) : this.getSharedResolver();
+		return (E) this.createInstance(clazz, new OverlayPropertyResolver(base, PersistentPropertyMap.of(values)));
+	}
+
+	/**
+	 * passes the {@link TimeToLive} annotations of an interface to the
+	 * caching resolvers of the chain
+	 */
+	private static void applyTimesToLive(PropertyResolver resolver, ConfigurationInterface metadata) {
+		List<CachingPropertyResolver> caches = new ArrayList<>();
+		findCaches(resolver, caches);
+		if (caches.isEmpty()) {
+			return;
+		}
+		for (Map.Entry<String, Long> timeToLive : metadata.getTimesToLive().entrySet()) {
+			for (CachingPropertyResolver cache : caches) {
+				cache.setTimeToLive(timeToLive.getKey(), timeToLive.getValue(), TimeUnit.NANOSECONDS);
+			}
+		}
+	}
+
+	private static void findCaches(PropertyResolver resolver, List<CachingPropertyResolver> caches) {
+		if (resolver instanceof CachingPropertyResolver) {
+			caches.add((CachingPropertyResolver) resolver);
+		} else if (resolver instanceof AggregatedPropertyResolver) {
+			for (PropertyResolver layer : ((AggregatedPropertyResolver) resolver).getResolvers()) {
+				findCaches(layer, caches);
+			}
+		} else if (resolver instanceof OverlayPropertyResolver) {
+			findCaches(((OverlayPropertyResolver) resolver).getBase(), caches);
+		} else if (resolver instanceof LazyPropertyResolver && ((LazyPropertyResolver) resolver).isLoaded()) {
+			findCaches(((LazyPropertyResolver) resolver).getResolver(), caches);
+		}
+	}
 
-		PropertyResolver resolver = this.getResolver();
+	/**
+	 * @param values
+	 *            own values of the instance on top of the shared chain, null
+	 *            if it has none, e.g. the overrides of a tenant
+	 */
+	Object createInstance(Class<?> clazz, OverlayPropertyResolver values) {
+		return this.createInstance(clazz, this.createHandler(clazz, values));
+	}
 
-		String configurationPropertyNamePrefix = null;
+	private ConfigurationInvocationHandler createHandler(Class<?> clazz, OverlayPropertyResolver values) {
+		PropertyResolver resolver = this.getSharedResolver();
 
-		ConfigurationPrefix prefixAnnotation = clazz.getAnnotation(ConfigurationPrefix.class);
-		if (prefixAnnotation != null) {
-			configurationPropertyNamePrefix = prefixAnnotation.value();
+		ConfigurationMetrics metrics = this.metrics;
+		ConfigurationInterface metadata = ConfigurationInterface.of(clazz);
+		applyTimesToLive(resolver, metadata);
+		PropertyResolver instanceResolver = values;
+		if (instanceResolver == null) {
+			instanceResolver = metrics != null ? this.getInstrumentedResolver(metrics) : resolver;
+		}
+		ConfigurationInvocationHandler handler = new ConfigurationInvocationHandler(instanceResolver, metadata,
+				metrics);
+		if (this.snapshots) {
+			this.snapshotHandlers.add(handler);
+			this.listenForSnapshots(resolver);
+			if (values != null) {
+				// the own values are not observed through the shared chain
+				values.addOverrideListener(this.snapshotHandlers);
+			}
 		}
-		Object configuration = Proxy.newProxyInstance(clazz.getClassLoader(), proxyInterfaces,
-				new ConfigurationInvocationHandler(resolver, clazz, configurationPropertyNamePrefix));
+		return handler;
+	}
 
-		return (E) configuration;
+	private Object createInstance(Class<?> clazz, ConfigurationInvocationHandler handler) {
+		ConfigurationInterface metadata = handler.metadata;
+		if (metadata.getImplementation() != null) {
+			return metadata.getImplementation().newInstance(handler.bind(null));
+		}
+		if (this.generateImplementations) {
+			Object generated = ConfigurationClassGenerator.newInstance(clazz, handler);
+			if (generated != null) {
+				return generated;
+			}
+		}
+		return Proxy.newProxyInstance(clazz.getClassLoader(), new Class<?>[] { clazz }, handler);
+	}
+
+	private synchronized void listenForSnapshots(PropertyResolver resolver) {
+		if (!this.snapshotHandlersRegistered && resolver instanceof ObservablePropertyResolver) {
+			((ObservablePropertyResolver) resolver).addChangeListener(this.snapshotHandlers);
+			this.snapshotHandlersRegistered = true;
+		}
 	}
 
 }
@@ -0,0 +1,251 @@
+/*
+ * copyright (C) 2008-2019 Patrick Stricker
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA
+ *
+ * 	Patrick Stricker - http://pa2.de
+ */
+package de.pa2.commons.configuration;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * binary content referenced by a configuration value, either
+ * <code>resource://path</code> on the class path or a <code>file://</code>
+ * URI. The content is read once and kept until the file changes, resources
+ * inside jars never change. Files are checked for changes at most once per
+ * {@link #CHECK_INTERVAL_NANOS}.
+ */
+final class BinaryValue {
+	static final String RESOURCE_PREFIX = "resource://";
+
+	static final String FILE_PREFIX = "file:";
+
+	/**
+	 * minimum time between two checks of the modification time of a file
+	 */
+	static final long CHECK_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+	/**
+	 * configuration value the content was located by
+	 */
+	private final String value;
+
+	/**
+	 * file of the content, null if it is not on the default file system, e.g.
+	 * inside a jar
+	 */
+	private final Path path;
+
+	/**
+	 * url of the content if it is not a file
+	 */
+	private final URL url;
+
+	/**
+	 * modification time and size of the file when it was located
+	 */
+	private final long modified;
+
+	private final long size;
+
+	/**
+	 * time of the next check of the file, see {@link System#nanoTime()}
+	 */
+	private volatile long nextCheck;
+
+	private volatile byte[] bytes = null;
+
+	private volatile ByteBuffer buffer = null;
+
+	private BinaryValue(String value, Path path, URL url) throws IOException {
+		super();
+		this.value = value;
+		this.path = path;
+		this.url = url;
+		if (path != null) {
+			BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+			this.modified = attributes.lastModifiedTime().toMillis();
+			this.size = attributes.size();
+		} else {
+			this.modified = 0;
+			this.size = -1;
+		}
+		this.nextCheck = System.nanoTime() + CHECK_INTERVAL_NANOS;
+	}
+
+	/**
+	 * @param value
+	 *            configuration value
+	 * @return content referenced by the value, null if the value is no
+	 *         supported reference
+	 * @throws UncheckedIOException
+	 *             if the resource or file does not exist
+	 */
+	static BinaryValue locate(String value) {
+		try {
+			if (value == null) {
+				return null;
+			} else if (value.startsWith(RESOURCE_PREFIX)) {
+				String resourcePath = value.substring(RESOURCE_PREFIX.length());
+				URL resource = BinaryValue.class.getClassLoader().getResource(resourcePath);
+				if (resource == null) {
+					throw new FileNotFoundException("resource not found: " + resourcePath);
+				}
+				if ("file".equals(resource.getProtocol())) {
+					return new BinaryValue(value, Paths.get(resource.toURI()), null);
+				}
+				return new BinaryValue(value, null, resource);
+			} else if (value.startsWith(FILE_PREFIX)) {
+				return new BinaryValue(value, Paths.get(new URI(value)), null);
+			}
+			return null;
+		} catch (IOException e) {
+			throw new UncheckedIOException("could not read " + value, e);
+		} catch (URISyntaxException e) {
+			throw new IllegalArgumentException("could not read " + value, e);
+		}
+	}
+
+	/**
+	 * @param value
+	 *            current configuration value
+	 * @return true if the value is unchanged and references the same content
+	 */
+	boolean isLocatedBy(String value) {
+		return this.value.equals(value);
+	}
+
+	/**
+	 * @param value
+	 *            current configuration value
+	 * @return true if the value is unchanged and the file was not modified
+	 *         since it was located, or was checked less than
+	 *         {@link #CHECK_INTERVAL_NANOS} ago
+	 */
+	boolean isCurrent(String value) {
+		if (!this.isLocatedBy(value)) {
+			return false;
+		}
+		if (this.path == null) {
+			return true;
+		}
+		long now = System.nanoTime();
+		if (now - this.nextCheck < 0) {
+			return true;
+		}
+		this.nextCheck = now + CHECK_INTERVAL_NANOS;
+		try {
+			BasicFileAttributes attributes = Files.readAttributes(this.path, BasicFileAttributes.class);
+			return attributes.lastModifiedTime().toMillis() == this.modified && attributes.size() == this.size;
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * @return new stream of the content
+	 */
+	InputStream openStream() {
+		try {
+			return this.path != null ? Files.newInputStream(this.path) : this.url.openStream();
+		} catch (IOException e) {
+			throw new UncheckedIOException("could not read " + this.value, e);
+		}
+	}
+
+	/**
+	 * @return new channel of the content
+	 */
+	ReadableByteChannel openChannel() {
+		try {
+			return this.path != null ? Files.newByteChannel(this.path, StandardOpenOption.READ)
+					: Channels.newChannel(this.url.openStream());
+		} catch (IOException e) {
+			throw new UncheckedIOException("could not read " + this.value, e);
+		}
+	}
+
+	/**
+	 * @return content, read once, the array must not be modified
+	 */
+	byte[] getBytes() {
+		byte[] result = this.bytes;
+		if (result == null) {
+			try {
+				result = this.path != null ? Files.readAllBytes(this.path) : read(this.url);
+			} catch (IOException e) {
+				throw new UncheckedIOException("could not read " + this.value, e);
+			}
+			this.bytes = result;
+		}
+		return result;
+	}
+
+	/**
+	 * Files are mapped into memory instead of being read. The mapping stays
+	 * valid when the file is replaced by a rename, but truncating the mapped
+	 * file in place makes reads of the buffer fail with an
+	 * {@link InternalError} or crash the JVM, so files read through
+	 * <code>ByteBuffer</code> getters have to be replaced atomically.
+	 *
+	 * @return read only buffer of the content
+	 */
+	ByteBuffer getBuffer() {
+		ByteBuffer result = this.buffer;
+		if (result == null) {
+			if (this.path != null) {
+				try (FileChannel channel = FileChannel.open(this.path, StandardOpenOption.READ)) {
+					result = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+				} catch (IOException e) {
+					throw new UncheckedIOException("could not map " + this.value, e);
+				}
+			} else {
+				result = ByteBuffer.wrap(this.getBytes()).asReadOnlyBuffer();
+			}
+			this.buffer = result;
+		}
+		// independent position and limit for each caller
+		return result.duplicate();
+	}
+
+	private static byte[] read(URL url) throws IOException {
+		try (InputStream in = url.openStream()) {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			byte[] chunk = new byte[8192];
+			for (int read = in.read(chunk); read >= 0; read = in.read(chunk)) {
+				out.write(chunk, 0, read);
+			}
+			return out.toByteArray();
+		}
+	}
+}
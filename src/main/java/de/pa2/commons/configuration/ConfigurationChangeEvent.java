@@ -0,0 +1,65 @@
+/*
+ * copyright (C) 2008-2019 Patrick Stricker
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA
+ *
+ * 	Patrick Stricker - http://pa2.de
+ */
+package de.pa2.commons.configuration;
+
+/**
+ * change of a configuration property value
+ */
+public final class ConfigurationChangeEvent {
+	private final String propertyName;
+
+	private final String oldValue;
+
+	private final String newValue;
+
+	public ConfigurationChangeEvent(String propertyName, String oldValue, String newValue) {
+		super();
+		this.propertyName = propertyName;
+		this.oldValue = oldValue;
+		this.newValue = newValue;
+	}
+
+	/**
+	 * @return name of the subscribed property
+	 */
+	public String getPropertyName() {
+		return this.propertyName;
+	}
+
+	/**
+	 * @return previous value with replaced placeholders, may be null
+	 */
+	public String getOldValue() {
+		return this.oldValue;
+	}
+
+	/**
+	 * @return current value with replaced placeholders, may be null
+	 */
+	public String getNewValue() {
+		return this.newValue;
+	}
+
+	@Override
+	public String toString() {
+		return "ConfigurationChangeEvent(" + this.propertyName + ": '" + this.oldValue + "' -> '" + this.newValue
+				+ "')";
+	}
+}
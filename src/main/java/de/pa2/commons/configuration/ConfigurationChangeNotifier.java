@@ -0,0 +1,209 @@
+/*
+ * copyright (C) 2008-2019 Patrick Stricker
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA
+ *
+ * 	Patrick Stricker - http://pa2.de
+ */
+package de.pa2.commons.configuration;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.pa2.commons.configuration.resolvers.ObservablePropertyResolver;
+import de.pa2.commons.configuration.resolvers.PropertyReplacementUtil;
+import de.pa2.commons.configuration.resolvers.PropertyResolver;
+
+/**
+ * delivers change events to subscribers of single properties. Each
+ * subscription is indexed by the property itself and all properties its value
+ * references through placeholders, changes of other properties cause no work.
+ */
+final class ConfigurationChangeNotifier {
+	private static final Logger LOG = LoggerFactory.getLogger(ConfigurationChangeNotifier.class);
+
+	private final PropertyResolver resolver;
+
+	private volatile Executor executor;
+
+	/**
+	 * subscriptions by the names of the properties they depend on
+	 */
+	private final Map<String, Set<Subscription>> dependents = new ConcurrentHashMap<>();
+
+	/**
+	 * @param resolver
+	 *            resolver whose changes are delivered, only changes of
+	 *            {@link ObservablePropertyResolver}s are noticed
+	 * @param executor
+	 *            executor delivering the events
+	 */
+	ConfigurationChangeNotifier(PropertyResolver resolver, Executor executor) {
+		super();
+		this.resolver = resolver;
+		this.executor = executor;
+		if (resolver instanceof ObservablePropertyResolver) {
+			((ObservablePropertyResolver) resolver).addChangeListener(this::propertiesChanged);
+		}
+	}
+
+	void setExecutor(Executor executor) {
+		this.executor = executor;
+	}
+
+	ConfigurationSubscription subscribe(String propertyName, ConfigurationChangeListener listener) {
+		return this.subscribe(propertyName, null, listener);
+	}
+
+	/**
+	 * @param defaultValue
+	 *            value reported while the property is not set, e.g. the
+	 *            default of a getter
+	 */
+	ConfigurationSubscription subscribe(String propertyName, String defaultValue,
+			ConfigurationChangeListener listener) {
+		Subscription subscription = new Subscription(propertyName, defaultValue, listener);
+		subscription.update();
+		return subscription;
+	}
+
+	/**
+	 * notifies the subscriptions depending on the changed properties
+	 *
+	 * @param propertyNames
+	 *            names of changed properties
+	 */
+	void propertiesChanged(Set<String> propertyNames) {
+		Set<Subscription> affected = null;
+		for (String propertyName : propertyNames) {
+			Set<Subscription> subscriptions = this.dependents.get(propertyName);
+			if (subscriptions != null && !subscriptions.isEmpty()) {
+				if (affected == null) {
+					affected = new HashSet<>();
+				}
+				affected.addAll(subscriptions);
+			}
+		}
+		if (affected != null) {
+			for (Subscription subscription : affected) {
+				this.executor.execute(subscription::update);
+			}
+		}
+	}
+
+	/**
+	 * @param defaultValue
+	 *            value of the property while it is not set, its placeholders
+	 *            are dependencies as well
+	 * @return names of the property and of all properties it references,
+	 *         directly or through other placeholders. Keys with nested
+	 *         placeholders are resolved to the key they currently reference.
+	 */
+	private Set<String> getDependencies(String propertyName, String defaultValue) {
+		Set<String> dependencies = new HashSet<>();
+		dependencies.add(propertyName);
+		LinkedList<String> pending = new LinkedList<>(PropertyReplacementUtil
+				.getPlaceholderNames(this.resolver.getProperty(propertyName, defaultValue), this.resolver));
+		while (!pending.isEmpty()) {
+			String name = pending.removeFirst();
+			if (dependencies.add(name)) {
+				pending.addAll(PropertyReplacementUtil.getPlaceholderNames(this.resolver.getProperty(name, null),
+						this.resolver));
+			}
+		}
+		return dependencies;
+	}
+
+	/**
+	 * subscription of a single property
+	 */
+	private final class Subscription implements ConfigurationSubscription {
+		private final String propertyName;
+
+		private final String defaultValue;
+
+		private final ConfigurationChangeListener listener;
+
+		private Set<String> dependencies = Collections.emptySet();
+
+		private String value = null;
+
+		private boolean cancelled = false;
+
+		Subscription(String propertyName, String defaultValue, ConfigurationChangeListener listener) {
+			super();
+			this.propertyName = propertyName;
+			this.defaultValue = defaultValue;
+			this.listener = listener;
+		}
+
+		/**
+		 * resolves the value and the dependencies again, notifies the listener
+		 * if the value changed
+		 */
+		synchronized void update() {
+			if (this.cancelled) {
+				return;
+			}
+			boolean initial = this.dependencies.isEmpty();
+			this.index(ConfigurationChangeNotifier.this.getDependencies(this.propertyName,
+					this.defaultValue));
+
+			String oldValue = this.value;
+			this.value = PropertyReplacementUtil.replacePlaceholders(
+					ConfigurationChangeNotifier.this.resolver.getProperty(this.propertyName, this.defaultValue),
+					ConfigurationChangeNotifier.this.resolver);
+			if (!initial && !Objects.equals(oldValue, this.value)) {
+				try {
+					this.listener.configurationChanged(new ConfigurationChangeEvent(this.propertyName, oldValue,
+							this.value));
+				} catch (RuntimeException e) {
+					LOG.error("listener failed on change of {}", this.propertyName, e);
+				}
+			}
+		}
+
+		private void index(Set<String> newDependencies) {
+			for (String dependency : this.dependencies) {
+				if (!newDependencies.contains(dependency)) {
+					Set<Subscription> subscriptions = ConfigurationChangeNotifier.this.dependents.get(dependency);
+					if (subscriptions != null) {
+						subscriptions.remove(this);
+					}
+				}
+			}
+			for (String dependency : newDependencies) {
+				ConfigurationChangeNotifier.this.dependents
+						.computeIfAbsent(dependency, name -> ConcurrentHashMap.newKeySet()).add(this);
+			}
+			this.dependencies = newDependencies;
+		}
+
+		@Override
+		public synchronized void cancel() {
+			this.cancelled = true;
+			this.index(Collections.<String> emptySet());
+		}
+	}
+}
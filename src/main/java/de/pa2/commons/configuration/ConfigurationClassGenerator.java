@@ -0,0 +1,550 @@
+/*
+ * copyright (C) 2008-2019 Patrick Stricker
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA
+ *
+ * 	Patrick Stricker - http://pa2.de
+ */
+package de.pa2.commons.configuration;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * generates concrete classes implementing configuration interfaces at runtime.
+ * Each method of a generated class directly calls the matching index of
+ * {@link ConfigurationValues}, getters returning int, long and boolean are
+ * not boxed. The classes are written as plain class files and defined by a
+ * dedicated class loader, so this works on Java 8 as well.
+ */
+final class ConfigurationClassGenerator {
+	private static final Logger LOG = LoggerFactory.getLogger(ConfigurationClassGenerator.class);
+
+	private static final String OBJECT = "java/lang/Object";
+
+	private static final String VALUES = internalName(ConfigurationValues.class);
+
+	private static final String VALUES_DESCRIPTOR = "L" + VALUES + ";";
+
+	/**
+	 * generated classes, computed once per interface
+	 */
+	private static final ClassValue<GeneratedClass> GENERATED_CLASSES = new ClassValue<GeneratedClass>() {
+		@Override
+		protected GeneratedClass computeValue(Class<?> type) {
+			return generate(type);
+		}
+	};
+
+	/**
+	 * generated implementation of a configuration interface
+	 */
+	static final class GeneratedClass {
+		/**
+		 * constructor taking {@link ConfigurationValues}, null if the interface
+		 * is not supported
+		 */
+		final Constructor<?> constructor;
+
+		/**
+		 * methods in the order of their indexes
+		 */
+		final Method[] methods;
+
+		GeneratedClass(Constructor<?> constructor, Method[] methods) {
+			super();
+			this.constructor = constructor;
+			this.methods = methods;
+		}
+	}
+
+	private ConfigurationClassGenerator() {
+		super();
+	}
+
+	/**
+	 * creates an instance of the generated implementation
+	 *
+	 * @param clazz
+	 *            configuration interface
+	 * @param handler
+	 *            handler providing the values
+	 * @return new instance or null if no implementation could be generated
+	 */
+	static <E> E newInstance(Class<E> clazz, AbstractConfigurationFactory.ConfigurationInvocationHandler handler) {
+		GeneratedClass generatedClass = GENERATED_CLASSES.get(clazz);
+		if (generatedClass.constructor == null) {
+			return null;
+		}
+		try {
+			return clazz.cast(generatedClass.constructor.newInstance(handler.bind(generatedClass.methods)));
+		} catch (ReflectiveOperationException e) {
+			LOG.warn("could not instantiate generated implementation of {}", clazz.getName(), e);
+			return null;
+		}
+	}
+
+	private static GeneratedClass generate(Class<?> clazz) {
+		Method[] methods = getMethods(clazz);
+		if (!isAccessible(clazz)) {
+			LOG.debug("{} or one of its method signatures is not public, using proxy", clazz.getName());
+			return new GeneratedClass(null, methods);
+		}
+		for (Method method : methods) {
+			if (!isAccessible(method.getReturnType())) {
+				LOG.debug("{} or one of its method signatures is not public, using proxy", clazz.getName());
+				return new GeneratedClass(null, methods);
+			}
+			for (Class<?> parameterType : method.getParameterTypes()) {
+				if (!isAccessible(parameterType)) {
+					LOG.debug("{} or one of its method signatures is not public, using proxy", clazz.getName());
+					return new GeneratedClass(null, methods);
+				}
+			}
+		}
+
+		String className = clazz.getName() + "$$Configuration";
+		try {
+			byte[] classFile = writeClassFile(className, clazz, methods);
+			GeneratedClassLoader loader = new GeneratedClassLoader(clazz.getClassLoader());
+			Class<?> generated = loader.define(className, classFile);
+			return new GeneratedClass(generated.getConstructor(ConfigurationValues.class), methods);
+		} catch (LinkageError | ReflectiveOperationException e) {
+			LOG.warn("could not generate implementation of {}, using proxy", clazz.getName(), e);
+			return new GeneratedClass(null, methods);
+		}
+	}
+
+	/**
+	 * @return methods to implement, toString first and without duplicate
+	 *         signatures
+	 */
+	private static Method[] getMethods(Class<?> clazz) {
+		Map<String, Method> methods = new LinkedHashMap<>();
+		try {
+			Method toString = Object.class.getMethod("toString");
+			methods.put(toString.getName() + methodDescriptor(toString), toString);
+		} catch (NoSuchMethodException e) {
+			throw new IllegalStateException(e);
+		}
+		for (Method method : clazz.getMethods()) {
+			if (!Modifier.isStatic(method.getModifiers())) {
+				String key = method.getName() + methodDescriptor(method);
+				if (!methods.containsKey(key)) {
+					methods.put(key, method);
+				}
+			}
+		}
+		return methods.values().toArray(new Method[methods.size()]);
+	}
+
+	private static boolean isAccessible(Class<?> type) {
+		while (type.isArray()) {
+			type = type.getComponentType();
+		}
+		if (type.isPrimitive()) {
+			return true;
+		}
+		for (Class<?> c = type; c != null; c = c.getEnclosingClass()) {
+			if (!Modifier.isPublic(c.getModifiers())) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static byte[] writeClassFile(String className, Class<?> clazz, Method[] methods) {
+		ConstantPool cp = new ConstantPool();
+		String thisName = className.replace('.', '/');
+		int thisClass = cp.classRef(thisName);
+		int superClass = cp.classRef(OBJECT);
+		int interfaceClass = cp.classRef(internalName(clazz));
+		int valuesField = cp.fieldRef(thisName, "values", VALUES_DESCRIPTOR);
+		int code = cp.utf8("Code");
+
+		try {
+			ByteArrayOutputStream methodsBuffer = new ByteArrayOutputStream();
+			DataOutputStream out = new DataOutputStream(methodsBuffer);
+
+			// constructor
+			Code init = new Code();
+			init.op(0x2a); // aload_0
+			init.op(0xb7).u2(cp.methodRef(OBJECT, "<init>", "()V")); // invokespecial
+			init.op(0x2a); // aload_0
+			init.op(0x2b); // aload_1
+			init.op(0xb5).u2(valuesField); // putfield
+			init.op(0xb1); // return
+			writeMethod(out, cp, code, "<init>", "(" + VALUES_DESCRIPTOR + ")V", init, 2, 2);
+
+			for (int i = 0; i < methods.length; i++) {
+				Method method = methods[i];
+				Code body = new Code();
+				int maxLocals = writeMethodBody(body, cp, valuesField, i, method);
+				writeMethod(out, cp, code, method.getName(), methodDescriptor(method), body, 8, maxLocals);
+			}
+			out.flush();
+
+			ByteArrayOutputStream classBuffer = new ByteArrayOutputStream();
+			DataOutputStream classOut = new DataOutputStream(classBuffer);
+			classOut.writeInt(0xCAFEBABE);
+			classOut.writeShort(0);
+			classOut.writeShort(52); // java 8
+			cp.write(classOut);
+			classOut.writeShort(0x0001 | 0x0010 | 0x0020); // public final super
+			classOut.writeShort(thisClass);
+			classOut.writeShort(superClass);
+			classOut.writeShort(1);
+			classOut.writeShort(interfaceClass);
+			classOut.writeShort(1);
+			classOut.writeShort(0x0002 | 0x0010); // private final
+			classOut.writeShort(cp.utf8("values"));
+			classOut.writeShort(cp.utf8(VALUES_DESCRIPTOR));
+			classOut.writeShort(0);
+			classOut.writeShort(methods.length + 1);
+			methodsBuffer.writeTo(classOut);
+			classOut.writeShort(0);
+			classOut.flush();
+			return classBuffer.toByteArray();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * writes the body of an interface method, forwarding to
+	 * {@link ConfigurationValues}
+	 *
+	 * @return max locals
+	 */
+	private static int writeMethodBody(Code body, ConstantPool cp, int valuesField, int index, Method method) {
+		Class<?> returnType = method.getReturnType();
+		Class<?>[] parameterTypes = method.getParameterTypes();
+
+		body.op(0x2a); // aload_0
+		body.op(0xb4).u2(valuesField); // getfield
+		body.pushInt(cp, index);
+
+		if (parameterTypes.length == 0 && int.class.equals(returnType)) {
+			body.invokeInterface(cp.interfaceMethodRef(VALUES, "getInt", "(I)I"), 2);
+			body.op(0xac); // ireturn
+			return 1;
+		} else if (parameterTypes.length == 0 && long.class.equals(returnType)) {
+			body.invokeInterface(cp.interfaceMethodRef(VALUES, "getLong", "(I)J"), 2);
+			body.op(0xad); // lreturn
+			return 1;
+		} else if (parameterTypes.length == 0 && boolean.class.equals(returnType)) {
+			body.invokeInterface(cp.interfaceMethodRef(VALUES, "getBoolean", "(I)Z"), 2);
+			body.op(0xac); // ireturn
+			return 1;
+		} else if (parameterTypes.length == 0 && !returnType.isPrimitive()) {
+			body.invokeInterface(cp.interfaceMethodRef(VALUES, "getValue", "(I)L" + OBJECT + ";"), 2);
+			if (!Object.class.equals(returnType)) {
+				body.op(0xc0).u2(cp.classRef(internalName(returnType))); // checkcast
+			}
+			body.op(0xb0); // areturn
+			return 1;
+		}
+
+		int locals = 1;
+		if (parameterTypes.length == 0) {
+			body.op(0x01); // aconst_null
+		} else {
+			body.pushInt(cp, parameterTypes.length);
+			body.op(0xbd).u2(cp.classRef(OBJECT)); // anewarray
+			for (int i = 0; i < parameterTypes.length; i++) {
+				Class<?> parameterType = parameterTypes[i];
+				body.op(0x59); // dup
+				body.pushInt(cp, i);
+				if (long.class.equals(parameterType)) {
+					body.op(0x16).u1(locals); // lload
+					locals += 2;
+				} else if (double.class.equals(parameterType)) {
+					body.op(0x18).u1(locals); // dload
+					locals += 2;
+				} else if (float.class.equals(parameterType)) {
+					body.op(0x17).u1(locals); // fload
+					locals++;
+				} else if (parameterType.isPrimitive()) {
+					body.op(0x15).u1(locals); // iload
+					locals++;
+				} else {
+					body.op(0x19).u1(locals); // aload
+					locals++;
+				}
+				if (parameterType.isPrimitive()) {
+					String wrapper = internalName(wrapperType(parameterType));
+					body.op(0xb8).u2(cp.methodRef(wrapper, "valueOf",
+							"(" + descriptor(parameterType) + ")L" + wrapper + ";")); // invokestatic
+				}
+				body.op(0x53); // aastore
+			}
+		}
+		body.invokeInterface(cp.interfaceMethodRef(VALUES, "invoke", "(I[L" + OBJECT + ";)L" + OBJECT + ";"), 3);
+
+		if (void.class.equals(returnType)) {
+			body.op(0x57); // pop
+			body.op(0xb1); // return
+		} else if (returnType.isPrimitive()) {
+			String wrapper = internalName(wrapperType(returnType));
+			body.op(0xc0).u2(cp.classRef(wrapper)); // checkcast
+			body.op(0xb6).u2(cp.methodRef(wrapper, returnType.getName() + "Value", "()" + descriptor(returnType)));
+			if (long.class.equals(returnType)) {
+				body.op(0xad); // lreturn
+			} else if (double.class.equals(returnType)) {
+				body.op(0xaf); // dreturn
+			} else if (float.class.equals(returnType)) {
+				body.op(0xae); // freturn
+			} else {
+				body.op(0xac); // ireturn
+			}
+		} else {
+			if (!Object.class.equals(returnType)) {
+				body.op(0xc0).u2(cp.classRef(internalName(returnType))); // checkcast
+			}
+			body.op(0xb0); // areturn
+		}
+		return locals;
+	}
+
+	private static void writeMethod(DataOutputStream out, ConstantPool cp, int codeAttribute, String name,
+			String descriptor, Code code, int maxStack, int maxLocals) throws IOException {
+		out.writeShort(0x0001); // public
+		out.writeShort(cp.utf8(name));
+		out.writeShort(cp.utf8(descriptor));
+		out.writeShort(1);
+		out.writeShort(codeAttribute);
+		out.writeInt(12 + code.size());
+		out.writeShort(maxStack);
+		out.writeShort(maxLocals);
+		out.writeInt(code.size());
+		code.writeTo(out);
+		out.writeShort(0); // exception table
+		out.writeShort(0); // attributes
+	}
+
+	private static Class<?> wrapperType(Class<?> type) {
+		if (int.class.equals(type)) {
+			return Integer.class;
+		} else if (long.class.equals(type)) {
+			return Long.class;
+		} else if (boolean.class.equals(type)) {
+			return Boolean.class;
+		} else if (byte.class.equals(type)) {
+			return Byte.class;
+		} else if (short.class.equals(type)) {
+			return Short.class;
+		} else if (char.class.equals(type)) {
+			return Character.class;
+		} else if (float.class.equals(type)) {
+			return Float.class;
+		} else if (double.class.equals(type)) {
+			return Double.class;
+		}
+		throw new IllegalArgumentException("not a primitive type: " + type);
+	}
+
+	private static String internalName(Class<?> type) {
+		return type.getName().replace('.', '/');
+	}
+
+	private static String descriptor(Class<?> type) {
+		if (type.isPrimitive()) {
+			if (int.class.equals(type)) {
+				return "I";
+			} else if (long.class.equals(type)) {
+				return "J";
+			} else if (boolean.class.equals(type)) {
+				return "Z";
+			} else if (byte.class.equals(type)) {
+				return "B";
+			} else if (short.class.equals(type)) {
+				return "S";
+			} else if (char.class.equals(type)) {
+				return "C";
+			} else if (float.class.equals(type)) {
+				return "F";
+			} else if (double.class.equals(type)) {
+				return "D";
+			}
+			return "V";
+		} else if (type.isArray()) {
+			return internalName(type);
+		}
+		return "L" + internalName(type) + ";";
+	}
+
+	private static String methodDescriptor(Method method) {
+		StringBuilder buf = new StringBuilder("(");
+		for (Class<?> parameterType : method.getParameterTypes()) {
+			buf.append(descriptor(parameterType));
+		}
+		return buf.append(")").append(descriptor(method.getReturnType())).toString();
+	}
+
+	/**
+	 * bytecode of a single method
+	 */
+	private static final class Code extends ByteArrayOutputStream {
+		Code op(int opcode) {
+			this.write(opcode);
+			return this;
+		}
+
+		Code u1(int value) {
+			this.write(value);
+			return this;
+		}
+
+		Code u2(int value) {
+			this.write(value >>> 8);
+			this.write(value);
+			return this;
+		}
+
+		void pushInt(ConstantPool cp, int value) {
+			if (value <= 5) {
+				this.op(0x03 + value); // iconst_n
+			} else if (value <= Byte.MAX_VALUE) {
+				this.op(0x10).u1(value); // bipush
+			} else if (value <= Short.MAX_VALUE) {
+				this.op(0x11).u2(value); // sipush
+			} else {
+				this.op(0x13).u2(cp.integer(value)); // ldc_w
+			}
+		}
+
+		void invokeInterface(int methodRef, int count) {
+			this.op(0xb9).u2(methodRef).u1(count).u1(0);
+		}
+	}
+
+	/**
+	 * constant pool of the generated class
+	 */
+	private static final class ConstantPool {
+		private final Map<String, Integer> indexes = new HashMap<>();
+
+		private final List<byte[]> entries = new ArrayList<>();
+
+		int utf8(String value) {
+			Integer index = this.indexes.get("utf8:" + value);
+			if (index == null) {
+				ByteArrayOutputStream buf = new ByteArrayOutputStream();
+				try {
+					DataOutputStream out = new DataOutputStream(buf);
+					out.writeByte(1);
+					out.writeUTF(value);
+					out.flush();
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+				index = this.add("utf8:" + value, buf.toByteArray());
+			}
+			return index;
+		}
+
+		int integer(int value) {
+			Integer index = this.indexes.get("int:" + value);
+			if (index == null) {
+				index = this.add("int:" + value, new byte[] { 3, (byte) (value >>> 24), (byte) (value >>> 16),
+						(byte) (value >>> 8), (byte) value });
+			}
+			return index;
+		}
+
+		int classRef(String internalName) {
+			return this.reference("class:" + internalName, 7, this.utf8(internalName), -1);
+		}
+
+		int fieldRef(String owner, String name, String descriptor) {
+			return this.memberRef(9, owner, name, descriptor);
+		}
+
+		int methodRef(String owner, String name, String descriptor) {
+			return this.memberRef(10, owner, name, descriptor);
+		}
+
+		int interfaceMethodRef(String owner, String name, String descriptor) {
+			return this.memberRef(11, owner, name, descriptor);
+		}
+
+		private int memberRef(int tag, String owner, String name, String descriptor) {
+			int classIndex = this.classRef(owner);
+			int nameAndType = this.reference("nat:" + name + ":" + descriptor, 12, this.utf8(name),
+					this.utf8(descriptor));
+			return this.reference(tag + ":" + owner + "." + name + ":" + descriptor, tag, classIndex, nameAndType);
+		}
+
+		private int reference(String key, int tag, int first, int second) {
+			Integer index = this.indexes.get(key);
+			if (index == null) {
+				byte[] entry = second < 0 ? new byte[] { (byte) tag, (byte) (first >>> 8), (byte) first }
+						: new byte[] { (byte) tag, (byte) (first >>> 8), (byte) first, (byte) (second >>> 8),
+								(byte) second };
+				index = this.add(key, entry);
+			}
+			return index;
+		}
+
+		private int add(String key, byte[] entry) {
+			this.entries.add(entry);
+			int index = this.entries.size();
+			this.indexes.put(key, index);
+			return index;
+		}
+
+		void write(DataOutputStream out) throws IOException {
+			out.writeShort(this.entries.size() + 1);
+			for (byte[] entry : this.entries) {
+				out.write(entry);
+			}
+		}
+	}
+
+	/**
+	 * defines generated classes, resolves {@link ConfigurationValues} from this
+	 * library even if the interface class loader does not see it directly
+	 */
+	private static final class GeneratedClassLoader extends ClassLoader {
+		GeneratedClassLoader(ClassLoader parent) {
+			super(parent);
+		}
+
+		@Override
+		protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+			if (ConfigurationValues.class.getName().equals(name)) {
+				return ConfigurationValues.class;
+			}
+			return super.loadClass(name, resolve);
+		}
+
+		Class<?> define(String name, byte[] classFile) {
+			return this.defineClass(name, classFile, 0, classFile.length);
+		}
+	}
+}
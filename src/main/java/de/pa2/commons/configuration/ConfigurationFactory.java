@@ -0,0 +1,61 @@
+/*
+ * copyright (C) 2008-2019 Patrick Stricker
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA
+ *
+ * 	Patrick Stricker - http://pa2.de
+ */
+package de.pa2.commons.configuration;
+
+import java.util.Map;
+
+/**
+ * static access to a shared {@link DefaultConfigurationFactory}, created on
+ * first use
+ */
+public final class ConfigurationFactory {
+
+	private ConfigurationFactory() {
+		super();
+	}
+
+	private static final class Holder {
+		static final DefaultConfigurationFactory FACTORY = new DefaultConfigurationFactory();
+	}
+
+	/**
+	 * @return shared factory, e.g. to set runtime overrides
+	 */
+	public static DefaultConfigurationFactory getFactory() {
+		return Holder.FACTORY;
+	}
+
+	/**
+	 * @return cached instance of the interface
+	 */
+	public static <E extends Configuration> E getInstance(Class<E> clazz) {
+		return Holder.FACTORY.getInstance(clazz);
+	}
+
+	/**
+	 * @param values
+	 *            values by property name with precedence over all other
+	 *            sources
+	 * @return new instance of the interface
+	 */
+	public static <E extends Configuration> E getInstance(Class<E> clazz, Map<String, String> values) {
+		return Holder.FACTORY.getInstance(clazz, values);
+	}
+}
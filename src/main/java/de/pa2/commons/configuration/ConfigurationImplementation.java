@@ -0,0 +1,57 @@
+/*
+ * copyright (C) 2008-2019 Patrick Stricker
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA
+ *
+ * 	Patrick Stricker - http://pa2.de
+ */
+package de.pa2.commons.configuration;
+
+import java.util.List;
+
+/**
+ * implementation of a configuration interface generated at build time by
+ * {@link de.pa2.commons.configuration.processor.ConfigurationProcessor}, the
+ * factories use it instead of a proxy when it is present
+ *
+ * @param <E>
+ *            configuration interface
+ */
+public interface ConfigurationImplementation<E extends Configuration> {
+
+	/**
+	 * @return implemented configuration interface
+	 */
+	Class<E> getInterface();
+
+	/**
+	 * @return value of the {@link ConfigurationPrefix} annotation of the
+	 *         interface, null if it is not annotated
+	 */
+	String getConfigurationPropertyNamePrefix();
+
+	/**
+	 * @return methods of the interface in the order of their indexes in
+	 *         {@link ConfigurationValues}
+	 */
+	List<ConfigurationMethod> getMethods();
+
+	/**
+	 * @param values
+	 *            values of the instance
+	 * @return new instance of the interface
+	 */
+	E newInstance(ConfigurationValues values);
+}
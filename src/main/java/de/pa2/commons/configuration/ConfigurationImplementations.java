@@ -0,0 +1,113 @@
+/*
+ * copyright (C) 2008-2019 Patrick Stricker
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA
+ *
+ * 	Patrick Stricker - http://pa2.de
+ */
+package de.pa2.commons.configuration;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * finds implementations generated at build time
+ */
+final class ConfigurationImplementations {
+	private static final Logger LOG = LoggerFactory.getLogger(ConfigurationImplementations.class);
+
+	/**
+	 * suffix of the generated implementation classes
+	 */
+	static final String SUFFIX = "_Implementation";
+
+	private ConfigurationImplementations() {
+		super();
+	}
+
+	/**
+	 * @param interfaceName
+	 *            binary name of the configuration interface
+	 * @return binary name of its generated implementation, e.g.
+	 *         <code>com.example.Outer_Inner_Implementation</code> for
+	 *         <code>com.example.Outer$Inner</code>
+	 */
+	static String getImplementationName(String interfaceName) {
+		int packageEnd = interfaceName.lastIndexOf('.') + 1;
+		return interfaceName.substring(0, packageEnd) + interfaceName.substring(packageEnd).replace('$', '_')
+				+ SUFFIX;
+	}
+
+	/**
+	 * reads the index written by the annotation processor
+	 *
+	 * @param classLoader
+	 *            class loader to read the index and the implementations from
+	 * @return configuration interfaces with a generated implementation
+	 */
+	static List<Class<? extends Configuration>> discover(ClassLoader classLoader) {
+		List<Class<? extends Configuration>> interfaces = new ArrayList<>();
+		Iterator<?> implementations = ServiceLoader.load(ConfigurationImplementation.class, classLoader).iterator();
+		while (true) {
+			try {
+				if (!implementations.hasNext()) {
+					break;
+				}
+				interfaces.add(((ConfigurationImplementation<?>) implementations.next()).getInterface());
+			} catch (ServiceConfigurationError | LinkageError e) {
+				// stale entry, e.g. of a deleted interface
+				LOG.warn("skipping configuration implementation: {}", e.getMessage());
+			}
+		}
+		return interfaces;
+	}
+
+	/**
+	 * @param clazz
+	 *            configuration interface
+	 * @return generated implementation of the interface, null if there is none
+	 */
+	@SuppressWarnings("unchecked")
+	static <E extends Configuration> ConfigurationImplementation<E> find(Class<E> clazz) {
+		ClassLoader loader = clazz.getClassLoader();
+		if (loader == null) {
+			return null;
+		}
+		Class<?> implementationClazz;
+		try {
+			implementationClazz = Class.forName(getImplementationName(clazz.getName()), true, loader);
+		} catch (ClassNotFoundException | LinkageError e) {
+			return null;
+		}
+		if (!ConfigurationImplementation.class.isAssignableFrom(implementationClazz)) {
+			return null;
+		}
+		try {
+			ConfigurationImplementation<E> implementation = (ConfigurationImplementation<E>) implementationClazz
+					.getConstructor().newInstance();
+			// a class loader may see an implementation of another copy of the interface
+			return implementation.getInterface() == clazz ? implementation : null;
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			LOG.warn("could not instantiate generated implementation of {}", clazz.getName(), e);
+			return null;
+		}
+	}
+}
@@ -0,0 +1,274 @@
+/*
+ * copyright (C) 2008-2019 Patrick Stricker
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA
+ *
+ * 	Patrick Stricker - http://pa2.de
+ */
+package de.pa2.commons.configuration;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import de.pa2.commons.configuration.MethodAccessor.PropertyAccessor;
+import de.pa2.commons.configuration.MethodAccessor.ToStringAccessor;
+
+/**
+ * metadata of a configuration interface: the property name prefix and the
+ * compiled plans of its methods. The metadata of an interface is computed
+ * once and kept with the interface class, it does not keep class loaders
+ * alive.
+ */
+final class ConfigurationInterface {
+	private static final ClassValue<ConfigurationInterface> INTERFACES = new ClassValue<ConfigurationInterface>() {
+		@Override
+		@SuppressWarnings({ "unchecked", "rawtypes" })
+		protected ConfigurationInterface computeValue(Class<?> type) {
+			ConfigurationImplementation<?> implementation = Configuration.class.isAssignableFrom(type)
+					? ConfigurationImplementations.find((Class) type)
+					: null;
+			if (implementation != null) {
+				return new ConfigurationInterface(implementation);
+			}
+			return new ConfigurationInterface(type, getPrefix(type));
+		}
+	};
+
+	private final Class<?> interfaceClazz;
+
+	private final String configurationPropertyNamePrefix;
+
+	/**
+	 * plans of all methods that can be invoked on an instance
+	 */
+	private final Map<Method, MethodAccessor> accessors;
+
+	/**
+	 * plans of all getters, indexed by property index
+	 */
+	private final PropertyAccessor[] properties;
+
+	/**
+	 * implementation generated at build time, null if there is none
+	 */
+	private final ConfigurationImplementation<?> implementation;
+
+	/**
+	 * plans of the methods of the generated implementation in the order of
+	 * their indexes, null if there is no generated implementation
+	 */
+	private final MethodAccessor[] layout;
+
+	/**
+	 * times to live of the getters, read on first use
+	 */
+	private volatile Map<String, Long> timesToLive;
+
+	/**
+	 * plans of the methods of the generated implementation by signature, null
+	 * if there is no generated implementation
+	 */
+	private final Map<String, MethodAccessor> signatures;
+
+	ConfigurationInterface(Class<?> interfaceClazz, String configurationPropertyNamePrefix) {
+		super();
+		this.interfaceClazz = interfaceClazz;
+		this.configurationPropertyNamePrefix = configurationPropertyNamePrefix;
+
+		Map<Method, MethodAccessor> accessors = new HashMap<>();
+		List<PropertyAccessor> properties = new ArrayList<>();
+		for (Method method : interfaceClazz.getMethods()) {
+			MethodAccessor accessor = this.compile(method, properties.size());
+			accessors.put(method, accessor);
+			if (accessor instanceof PropertyAccessor) {
+				properties.add((PropertyAccessor) accessor);
+			}
+		}
+		this.properties = properties.toArray(new PropertyAccessor[properties.size()]);
+
+		// toString, equals and hashCode of java.lang.Object are dispatched to the instance as well
+		try {
+			accessors.put(Object.class.getMethod("toString"),
+					new ToStringAccessor(interfaceClazz.getName(), properties));
+			for (Method method : new Method[] { Object.class.getMethod("equals", Object.class),
+					Object.class.getMethod("hashCode") }) {
+				accessors.put(method, this.compile(method, -1));
+			}
+		} catch (NoSuchMethodException e) {
+			throw new IllegalStateException(e);
+		}
+		this.accessors = Collections.unmodifiableMap(accessors);
+		this.implementation = null;
+		this.layout = null;
+		this.signatures = null;
+	}
+
+	/**
+	 * uses the methods, property names and defaults computed at build time,
+	 * the interface is not inspected
+	 *
+	 * @param implementation
+	 *            generated implementation
+	 */
+	ConfigurationInterface(ConfigurationImplementation<?> implementation) {
+		super();
+		this.interfaceClazz = implementation.getInterface();
+		this.configurationPropertyNamePrefix = implementation.getConfigurationPropertyNamePrefix();
+		this.implementation = implementation;
+
+		List<ConfigurationMethod> methods = implementation.getMethods();
+		List<PropertyAccessor> properties = new ArrayList<>();
+		this.layout = new MethodAccessor[methods.size()];
+		for (int i = 0; i < this.layout.length; i++) {
+			ConfigurationMethod method = methods.get(i);
+			if (!"toString".equals(method.getName())) {
+				this.layout[i] = MethodAccessor.compile(this.interfaceClazz.getName(), method,
+						this.configurationPropertyNamePrefix, properties.size());
+				if (this.layout[i] instanceof PropertyAccessor) {
+					properties.add((PropertyAccessor) this.layout[i]);
+				}
+			}
+		}
+		this.properties = properties.toArray(new PropertyAccessor[properties.size()]);
+		ToStringAccessor toString = new ToStringAccessor(this.interfaceClazz.getName(), properties);
+		for (int i = 0; i < this.layout.length; i++) {
+			if (this.layout[i] == null) {
+				this.layout[i] = toString;
+			}
+		}
+		this.accessors = Collections.emptyMap();
+
+		// methods are looked up by signature, the interface is not inspected
+		Map<String, MethodAccessor> signatures = new HashMap<>();
+		Map<String, Long> timesToLive = new HashMap<>();
+		boolean complete = true;
+		for (int i = 0; i < this.layout.length; i++) {
+			ConfigurationMethod method = methods.get(i);
+			complete &= method.getParameterTypes() != null;
+			String signature = method.getSignature();
+			if (signature != null) {
+				signatures.put(signature, this.layout[i]);
+			}
+			if (method.getTimeToLive() >= 0 && method.getPropertyName() != null) {
+				timesToLive.put(method.getPropertyName(), method.getTimeToLive());
+			}
+		}
+		this.signatures = signatures;
+		if (complete) {
+			this.timesToLive = Collections.unmodifiableMap(timesToLive);
+		}
+		// else generated by an earlier version, the annotations are read on first use
+	}
+
+	/**
+	 * @param interfaceClazz
+	 *            configuration interface
+	 * @return metadata of the interface using the prefix of its
+	 *         {@link ConfigurationPrefix} annotation
+	 */
+	static ConfigurationInterface of(Class<?> interfaceClazz) {
+		return INTERFACES.get(interfaceClazz);
+	}
+
+	/**
+	 * @return value of the {@link ConfigurationPrefix} annotation, null if
+	 *         the interface is not annotated
+	 */
+	static String getPrefix(Class<?> interfaceClazz) {
+		ConfigurationPrefix prefixAnnotation = interfaceClazz.getAnnotation(ConfigurationPrefix.class);
+		return prefixAnnotation != null ? prefixAnnotation.value() : null;
+	}
+
+	/**
+	 * compiles the plan of a method, e.g. of a method that is not part of the
+	 * interface
+	 */
+	MethodAccessor compile(Method method, int index) {
+		return MethodAccessor.compile(this.interfaceClazz, method, this.configurationPropertyNamePrefix, index);
+	}
+
+	Class<?> getInterfaceClazz() {
+		return this.interfaceClazz;
+	}
+
+	String getConfigurationPropertyNamePrefix() {
+		return this.configurationPropertyNamePrefix;
+	}
+
+	/**
+	 * @return plan of the method, null if the method is not part of the
+	 *         interface
+	 */
+	MethodAccessor getAccessor(Method method) {
+		if (this.signatures != null) {
+			return this.signatures.get(ConfigurationMethod.signature(method.getName(), method.getParameterTypes()));
+		}
+		return this.accessors.get(method);
+	}
+
+	PropertyAccessor[] getProperties() {
+		return this.properties;
+	}
+
+	/**
+	 * reads the {@link TimeToLive} annotations of the getters once, only
+	 * needed if the resolver chain caches values. Generated implementations
+	 * provide them computed at build time.
+	 *
+	 * @return times to live in nanoseconds by property name
+	 */
+	Map<String, Long> getTimesToLive() {
+		Map<String, Long> timesToLive = this.timesToLive;
+		if (timesToLive == null) {
+			// racing callers compute the same map
+			timesToLive = this.readTimesToLive();
+			this.timesToLive = timesToLive;
+		}
+		return timesToLive;
+	}
+
+	private Map<String, Long> readTimesToLive() {
+		Map<String, Long> timesToLive = new HashMap<>();
+		for (Method method : this.interfaceClazz.getMethods()) {
+			TimeToLive timeToLive = method.getAnnotation(TimeToLive.class);
+			if (timeToLive != null) {
+				timesToLive.put(
+						ConfigurationMethod.getPropertyName(method.getName(), this.configurationPropertyNamePrefix),
+						timeToLive.unit().toNanos(timeToLive.value()));
+			}
+		}
+		return Collections.unmodifiableMap(timesToLive);
+	}
+
+	/**
+	 * @return implementation generated at build time, null if there is none
+	 */
+	ConfigurationImplementation<?> getImplementation() {
+		return this.implementation;
+	}
+
+	/**
+	 * @return plans of the methods of the generated implementation in the
+	 *         order of their indexes, null if there is no generated
+	 *         implementation
+	 */
+	MethodAccessor[] getLayout() {
+		return this.layout;
+	}
+}
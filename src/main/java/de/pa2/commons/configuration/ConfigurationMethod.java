@@ -0,0 +1,184 @@
+/*
+ * copyright (C) 2008-2019 Patrick Stricker
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA
+ *
+ * 	Patrick Stricker - http://pa2.de
+ */
+package de.pa2.commons.configuration;
+
+/**
+ * method of a configuration interface as computed at build time by the
+ * annotation processor, is used by generated configuration implementations
+ * and not meant to be created directly
+ */
+public final class ConfigurationMethod {
+	private final String name;
+
+	private final Class<?> returnType;
+
+	private final String propertyName;
+
+	private final String defaultValue;
+
+	/**
+	 * erased parameter types, null if they are not known
+	 */
+	private final Class<?>[] parameterTypes;
+
+	/**
+	 * time to live of the {@link TimeToLive} annotation in nanoseconds, -1 if
+	 * the method is not annotated
+	 */
+	private final long timeToLive;
+
+	/**
+	 * method of an implementation generated by an earlier version, its
+	 * parameter types and time to live are not known
+	 *
+	 * @param name
+	 *            name of the method
+	 * @param returnType
+	 *            erased return type of the method
+	 * @param propertyName
+	 *            name of the configuration property if the method is a
+	 *            getter, null otherwise
+	 * @param defaultValue
+	 *            default value as string, null if there is none
+	 */
+	public ConfigurationMethod(String name, Class<?> returnType, String propertyName, String defaultValue) {
+		this(name, returnType, null, propertyName, defaultValue, -1);
+	}
+
+	/**
+	 * @param name
+	 *            name of the method
+	 * @param returnType
+	 *            erased return type of the method
+	 * @param parameterTypes
+	 *            erased parameter types of the method
+	 * @param propertyName
+	 *            name of the configuration property if the method is a
+	 *            getter, null otherwise
+	 * @param defaultValue
+	 *            default value as string, null if there is none
+	 * @param timeToLive
+	 *            time to live of the {@link TimeToLive} annotation in
+	 *            nanoseconds, -1 if there is none
+	 */
+	public ConfigurationMethod(String name, Class<?> returnType, Class<?>[] parameterTypes, String propertyName,
+			String defaultValue, long timeToLive) {
+		super();
+		this.name = name;
+		this.returnType = returnType;
+		this.parameterTypes = parameterTypes;
+		this.propertyName = propertyName;
+		this.defaultValue = defaultValue;
+		this.timeToLive = timeToLive;
+	}
+
+	/**
+	 * translates a method name into a configuration property name, e.g.
+	 * <code>getMaxPoolSize</code> into <code>max.pool.size</code>
+	 *
+	 * @param methodName
+	 *            name of the method
+	 * @param configurationPropertyNamePrefix
+	 *            prefix of the property name, may be null
+	 * @return property name
+	 */
+	public static String getPropertyName(String methodName, String configurationPropertyNamePrefix) {
+		int start = 0;
+		if (methodName.startsWith("get") || methodName.startsWith("set")) {
+			start = 3;
+		} else if (methodName.startsWith("is")) {
+			start = 2;
+		}
+
+		StringBuilder buf = new StringBuilder(methodName.length() * 2);
+		if (configurationPropertyNamePrefix != null) {
+			buf.append(configurationPropertyNamePrefix);
+			if (!configurationPropertyNamePrefix.endsWith(".")) {
+				buf.append('.');
+			}
+		}
+		for (int i = start; i < methodName.length(); i++) {
+			char c = methodName.charAt(i);
+			if (Character.toUpperCase(c) == c && i > start) {
+				buf.append('.');
+			}
+			buf.append(Character.toLowerCase(c));
+		}
+
+		return buf.toString();
+	}
+
+	public String getName() {
+		return this.name;
+	}
+
+	public Class<?> getReturnType() {
+		return this.returnType;
+	}
+
+	public String getPropertyName() {
+		return this.propertyName;
+	}
+
+	public String getDefaultValue() {
+		return this.defaultValue;
+	}
+
+	/**
+	 * @return erased parameter types, null if they are not known
+	 */
+	public Class<?>[] getParameterTypes() {
+		return this.parameterTypes != null ? this.parameterTypes.clone() : null;
+	}
+
+	/**
+	 * @return time to live in nanoseconds, -1 if the method is not annotated
+	 *         with {@link TimeToLive}
+	 */
+	public long getTimeToLive() {
+		return this.timeToLive;
+	}
+
+	/**
+	 * @return key of a method by name and erased parameter types
+	 */
+	static String signature(String name, Class<?>[] parameterTypes) {
+		if (parameterTypes.length == 0) {
+			return name;
+		}
+		StringBuilder signature = new StringBuilder(name);
+		for (Class<?> parameterType : parameterTypes) {
+			signature.append(',').append(parameterType.getName());
+		}
+		return signature.toString();
+	}
+
+	/**
+	 * @return key of the method, null if its parameter types are not known
+	 *         and it is not a getter
+	 */
+	String getSignature() {
+		if (this.parameterTypes != null) {
+			return signature(this.name, this.parameterTypes);
+		}
+		// getters of earlier versions do not have parameters
+		return this.propertyName != null ? this.name : null;
+	}
+}
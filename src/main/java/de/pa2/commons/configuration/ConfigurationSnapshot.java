@@ -0,0 +1,128 @@
+/*
+ * copyright (C) 2008-2019 Patrick Stricker
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA
+ *
+ * 	Patrick Stricker - http://pa2.de
+ */
+package de.pa2.commons.configuration;
+
+import de.pa2.commons.configuration.MethodAccessor.BooleanAccessor;
+import de.pa2.commons.configuration.MethodAccessor.IntAccessor;
+import de.pa2.commons.configuration.MethodAccessor.LongAccessor;
+import de.pa2.commons.configuration.MethodAccessor.PropertyAccessor;
+import de.pa2.commons.configuration.resolvers.PropertyResolver;
+
+/**
+ * immutable set of resolved, placeholder expanded and converted values of a
+ * configuration interface, indexed by snapshot slot. Values of int, long and
+ * boolean getters are kept unboxed in a primitive array as well.
+ */
+final class ConfigurationSnapshot {
+	/**
+	 * values, boxed for primitive getters, or {@link Failure}
+	 */
+	private final Object[] values;
+
+	/**
+	 * values of int, long and boolean (1 for true) getters
+	 */
+	private final long[] primitives;
+
+	private ConfigurationSnapshot(Object[] values, long[] primitives) {
+		super();
+		this.values = values;
+		this.primitives = primitives;
+	}
+
+	/**
+	 * resolves all properties with one bulk lookup
+	 *
+	 * @param properties
+	 *            properties of the interface, indexed by their snapshot slot
+	 * @param resolver
+	 *            resolver used to look up property values
+	 * @return new snapshot
+	 */
+	static ConfigurationSnapshot build(PropertyAccessor[] properties, PropertyResolver resolver) {
+		Object[] values = new Object[properties.length];
+		long[] primitives = new long[properties.length];
+		PropertyResolver resolved = ResolvedProperties.resolve(properties, resolver);
+		for (PropertyAccessor property : properties) {
+			int slot = property.getSnapshotSlot();
+			if (slot >= 0) {
+				try {
+					if (property instanceof IntAccessor) {
+						int value = property.getInt(resolved, null);
+						primitives[slot] = value;
+						values[slot] = Integer.valueOf(value);
+					} else if (property instanceof LongAccessor) {
+						long value = property.getLong(resolved, null);
+						primitives[slot] = value;
+						values[slot] = Long.valueOf(value);
+					} else if (property instanceof BooleanAccessor) {
+						boolean value = property.getBoolean(resolved, null);
+						primitives[slot] = value ? 1 : 0;
+						values[slot] = Boolean.valueOf(value);
+					} else {
+						values[slot] = property.invoke(resolved, null);
+					}
+				} catch (RuntimeException e) {
+					// conversion errors are thrown when the value is read
+					values[slot] = new Failure(e);
+				}
+			}
+		}
+		return new ConfigurationSnapshot(values, primitives);
+	}
+
+	/**
+	 * @param slot
+	 *            snapshot slot of the property
+	 * @return converted value
+	 */
+	Object get(int slot) {
+		Object value = this.values[slot];
+		if (value instanceof Failure) {
+			throw ((Failure) value).exception;
+		}
+		return value;
+	}
+
+	/**
+	 * @param slot
+	 *            snapshot slot of an int, long or boolean property
+	 * @return unboxed value
+	 */
+	long getPrimitive(int slot) {
+		Object value = this.values[slot];
+		if (value instanceof Failure) {
+			throw ((Failure) value).exception;
+		}
+		return this.primitives[slot];
+	}
+
+	/**
+	 * value that could not be resolved
+	 */
+	private static final class Failure {
+		private final RuntimeException exception;
+
+		Failure(RuntimeException exception) {
+			super();
+			this.exception = exception;
+		}
+	}
+}
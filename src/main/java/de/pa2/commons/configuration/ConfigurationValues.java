@@ -0,0 +1,66 @@
+/*
+ * copyright (C) 2008-2019 Patrick Stricker
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA
+ *
+ * 	Patrick Stricker - http://pa2.de
+ */
+package de.pa2.commons.configuration;
+
+/**
+ * index based access to the values of a configuration instance, is used by
+ * generated configuration implementations and not meant to be called directly
+ */
+public interface ConfigurationValues {
+
+	/**
+	 * @param index
+	 *            index of the method in the generated implementation
+	 * @return value of a method without arguments returning an object
+	 */
+	Object getValue(int index);
+
+	/**
+	 * @param index
+	 *            index of the method in the generated implementation
+	 * @return value of a method without arguments returning int
+	 */
+	int getInt(int index);
+
+	/**
+	 * @param index
+	 *            index of the method in the generated implementation
+	 * @return value of a method without arguments returning long
+	 */
+	long getLong(int index);
+
+	/**
+	 * @param index
+	 *            index of the method in the generated implementation
+	 * @return value of a method without arguments returning boolean
+	 */
+	boolean getBoolean(int index);
+
+	/**
+	 * invokes any other method
+	 *
+	 * @param index
+	 *            index of the method in the generated implementation
+	 * @param args
+	 *            method arguments, may be null
+	 * @return method result, boxed for primitive return types
+	 */
+	Object invoke(int index, Object[] args);
+}
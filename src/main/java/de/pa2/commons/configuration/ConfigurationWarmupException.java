@@ -0,0 +1,55 @@
+/*
+ * copyright (C) 2008-2019 Patrick Stricker
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA
+ *
+ * 	Patrick Stricker - http://pa2.de
+ */
+package de.pa2.commons.configuration;
+
+/**
+ * thrown by a warmup if a value of a configuration interface can not be
+ * resolved or converted
+ */
+public class ConfigurationWarmupException extends RuntimeException {
+	private static final long serialVersionUID = 1L;
+
+	private final Class<? extends Configuration> interfaceClazz;
+
+	private final String propertyName;
+
+	public ConfigurationWarmupException(Class<? extends Configuration> interfaceClazz, String propertyName,
+			Throwable cause) {
+		super("could not warm up " + interfaceClazz.getName()
+				+ (propertyName != null ? ", property '" + propertyName + "'" : "") + ": " + cause.getMessage(),
+				cause);
+		this.interfaceClazz = interfaceClazz;
+		this.propertyName = propertyName;
+	}
+
+	/**
+	 * @return configuration interface that failed
+	 */
+	public Class<? extends Configuration> getInterfaceClazz() {
+		return this.interfaceClazz;
+	}
+
+	/**
+	 * @return property that failed, null if the interface itself failed
+	 */
+	public String getPropertyName() {
+		return this.propertyName;
+	}
+}
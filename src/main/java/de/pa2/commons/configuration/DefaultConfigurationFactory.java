@@ -21,13 +21,19 @@ package de.pa2.commons.configuration;
 
 import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import de.pa2.commons.configuration.resolvers.AggregatedPropertyResolver;
 import de.pa2.commons.configuration.resolvers.EnvironmentResolver;
+import de.pa2.commons.configuration.resolvers.LazyPropertyResolver;
+import de.pa2.commons.configuration.resolvers.PropertyFileWatcher;
 import de.pa2.commons.configuration.resolvers.PropertyResolver;
 import de.pa2.commons.configuration.resolvers.ResourcePropertyResolver;
 import de.pa2.commons.configuration.resolvers.SystemPropertyResolver;
@@ -36,46 +42,147 @@ import de.pa2.commons.configuration.resolvers.SystemPropertyResolver;
  * configuration factory that uses multiple sources for configuration values
  */
 public class DefaultConfigurationFactory extends AbstractConfigurationFactory implements Factory {
+	private static final Logger LOG = LoggerFactory.getLogger(DefaultConfigurationFactory.class);
+
+	/**
+	 * reloads changed properties files, null if files are not watched.
+	 * Guarded by {@link #fileResolvers}.
+	 */
+	private PropertyFileWatcher fileWatcher = null;
+
+	/**
+	 * resolvers of the properties files in the resolver chain, added when
+	 * their layer is loaded
+	 */
+	private final List<ResourcePropertyResolver> fileResolvers = new ArrayList<>();
+
+	/**
+	 * host specific and default properties, loaded in parallel from the
+	 * creation of the factory on
+	 */
+	private final LazyPropertyResolver[] layers;
+
+	/**
+	 * system properties, the layer with the highest precedence
+	 */
+	private final SystemPropertyResolver systemProperties;
 
 	public DefaultConfigurationFactory() {
-		super();
+		this(false);
 	}
 
-	@Override
-	protected PropertyResolver getResolver() {
-		AggregatedPropertyResolver resolver = new AggregatedPropertyResolver();
-
-		// system properties get highest priority
-		resolver.add(new SystemPropertyResolver());
+	/**
+	 * @param systemPropertySnapshot
+	 *            true to read a copy of the system properties without locking,
+	 *            it is updated by {@link #refreshSystemProperties()}
+	 */
+	public DefaultConfigurationFactory(boolean systemPropertySnapshot) {
+		super();
+		this.systemProperties = new SystemPropertyResolver(systemPropertySnapshot);
+		this.layers = new LazyPropertyResolver[] {
+				// host specific properties provided as file
+				new LazyPropertyResolver("host specific file", () -> this.loadFile(getHostName() + ".properties")),
+				// host specific properties provided as resource
+				new LazyPropertyResolver("host specific resource",
+						() -> new ResourcePropertyResolver(getHostName() + ".properties")),
+				// default properties provided as file
+				new LazyPropertyResolver("default file", () -> this.loadFile("default.properties")),
+				// default properties provided as resource
+				new LazyPropertyResolver("default resource", () -> new ResourcePropertyResolver("default.properties")) };
+		for (LazyPropertyResolver layer : this.layers) {
+			layer.load();
+		}
+	}
 
-		// environment gets almost highest priority
-		resolver.add(new EnvironmentResolver());
+	/**
+	 * copies the system properties again if they are read from a snapshot,
+	 * instances in snapshot mode and subscribers are notified about the
+	 * changes
+	 *
+	 * @return names of the changed properties
+	 */
+	public Set<String> refreshSystemProperties() {
+		return this.systemProperties.refresh();
+	}
 
-		String hostSpecificPropertyFileName = getHostName() + ".properties";
+	/**
+	 * reloads the host specific and default properties files when they change,
+	 * without blocking readers. Instances in snapshot mode get new snapshots.
+	 *
+	 * @param debounceMillis
+	 *            time to wait after the last change of a file before it is
+	 *            reloaded
+	 * @throws IOException
+	 *             if the files can not be watched
+	 */
+	public void watchFiles(long debounceMillis) throws IOException {
+		synchronized (this.fileResolvers) {
+			if (this.fileWatcher == null) {
+				this.fileWatcher = new PropertyFileWatcher(debounceMillis);
+				for (ResourcePropertyResolver fileResolver : this.fileResolvers) {
+					this.watch(fileResolver);
+				}
+			}
+		}
+	}
 
-		// host specific properties provided as file
-		File hostSpecificFile = this.detectFile(hostSpecificPropertyFileName);
-		if (hostSpecificFile != null && hostSpecificFile.exists()) {
-			try {
-				resolver.add(new ResourcePropertyResolver(new FileInputStream(hostSpecificFile)));
-			} catch (FileNotFoundException e) {
+	/**
+	 * stops reloading changed properties files
+	 *
+	 * @throws IOException
+	 *             if the watcher could not be closed
+	 */
+	public void stopWatchingFiles() throws IOException {
+		synchronized (this.fileResolvers) {
+			if (this.fileWatcher != null) {
+				this.fileWatcher.close();
+				this.fileWatcher = null;
 			}
 		}
+	}
 
-		// host specific properties provided as resource
-		resolver.add(new ResourcePropertyResolver(hostSpecificPropertyFileName));
+	/**
+	 * runs in the background, the lock of the factory is not needed
+	 *
+	 * @return resolver of the file, null if it does not exist
+	 */
+	private ResourcePropertyResolver loadFile(String fileName) {
+		File file = detectFile(fileName);
+		if (file == null || !file.exists()) {
+			return null;
+		}
+		ResourcePropertyResolver fileResolver = new ResourcePropertyResolver(file);
+		synchronized (this.fileResolvers) {
+			this.fileResolvers.add(fileResolver);
+			this.watch(fileResolver);
+		}
+		return fileResolver;
+	}
 
-		// default properties provided as file
-		File defaultFile = detectFile("default.properties");
-		if (defaultFile != null && defaultFile.exists()) {
+	private void watch(ResourcePropertyResolver resolver) {
+		if (this.fileWatcher != null) {
 			try {
-				resolver.add(new ResourcePropertyResolver(new FileInputStream(defaultFile)));
-			} catch (FileNotFoundException e) {
+				this.fileWatcher.register(resolver);
+			} catch (IOException e) {
+				LOG.warn("could not watch {}", resolver.getFile(), e);
 			}
 		}
+	}
+
+	@Override
+	protected PropertyResolver getResolver() {
+		AggregatedPropertyResolver resolver = new AggregatedPropertyResolver(true);
+
+		// system properties get highest priority
+		resolver.add(this.systemProperties);
 
-		// default properties provided as resource
-		resolver.add(new ResourcePropertyResolver("default.properties"));
+		// environment gets almost highest priority
+		resolver.add(new EnvironmentResolver());
+
+		// files and resources, a lookup only waits for the layers it reaches
+		for (LazyPropertyResolver layer : this.layers) {
+			resolver.add(layer);
+		}
 		return resolver;
 	}
 
@@ -102,12 +209,26 @@ public class DefaultConfigurationFactory extends AbstractConfigurationFactory im
 		return result;
 	}
 
+	/**
+	 * host name detected once, detection may start a process
+	 */
+	private static final class HostName {
+		static final String VALUE = detectHostName();
+	}
+
+	/**
+	 * @return the current host name, detected on the first call
+	 */
+	private static String getHostName() {
+		return HostName.VALUE;
+	}
+
 	/**
 	 * detects the current host name
 	 *
 	 * @return
 	 */
-	private static String getHostName() {
+	private static String detectHostName() {
 		// windows
 		String hostName = System.getenv("COMPUTERNAME");
 
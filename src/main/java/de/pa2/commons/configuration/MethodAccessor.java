@@ -0,0 +1,730 @@
+/*
+ * copyright (C) 2008-2019 Patrick Stricker
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA
+ *
+ * 	Patrick Stricker - http://pa2.de
+ */
+package de.pa2.commons.configuration;
+
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.pa2.commons.configuration.converters.ValueConverter;
+import de.pa2.commons.configuration.converters.ValueConverters;
+import de.pa2.commons.configuration.metrics.InstrumentedPropertyResolver;
+import de.pa2.commons.configuration.resolvers.OverlayPropertyResolver;
+import de.pa2.commons.configuration.resolvers.PropertyKeys;
+import de.pa2.commons.configuration.resolvers.PropertyReplacementUtil;
+import de.pa2.commons.configuration.resolvers.PropertyResolver;
+
+/**
+ * immutable plan for a single method of a configuration interface, compiled
+ * once so that invocations do not need to inspect the method again
+ */
+abstract class MethodAccessor {
+	private static final Logger LOG = LoggerFactory.getLogger(MethodAccessor.class);
+
+	/**
+	 * executes the plan
+	 *
+	 * @param resolver
+	 *            resolver used to look up property values
+	 * @param args
+	 *            method arguments, may be null
+	 * @return method result
+	 */
+	abstract Object invoke(PropertyResolver resolver, Object[] args);
+
+	/**
+	 * executes the plan for an instance that keeps the last conversions of
+	 * its values
+	 *
+	 * @param conversions
+	 *            last conversions of the instance by property index, may be
+	 *            null
+	 */
+	Object invoke(PropertyResolver resolver, Object[] args, Conversion[] conversions) {
+		return this.invoke(resolver, args);
+	}
+
+	/**
+	 * executes the plan of a method returning int
+	 */
+	int getInt(PropertyResolver resolver, Conversion[] conversions) {
+		return ((Number) this.invoke(resolver, null, conversions)).intValue();
+	}
+
+	/**
+	 * executes the plan of a method returning long
+	 */
+	long getLong(PropertyResolver resolver, Conversion[] conversions) {
+		return ((Number) this.invoke(resolver, null, conversions)).longValue();
+	}
+
+	/**
+	 * executes the plan of a method returning boolean
+	 */
+	boolean getBoolean(PropertyResolver resolver, Conversion[] conversions) {
+		return ((Boolean) this.invoke(resolver, null, conversions)).booleanValue();
+	}
+
+	/**
+	 * @return slot of the value in a {@link ConfigurationSnapshot} or -1 if
+	 *         the value is always resolved
+	 */
+	int getSnapshotSlot() {
+		return -1;
+	}
+
+	/**
+	 * @return name of the property read by the method, null if it is not a
+	 *         getter
+	 */
+	String getPropertyName() {
+		return null;
+	}
+
+	/**
+	 * compiles the plan for a method of a configuration interface
+	 *
+	 * @param interfaceClazz
+	 *            configuration interface
+	 * @param method
+	 *            method of the configuration interface
+	 * @param configurationPropertyNamePrefix
+	 *            prefix of the property names, may be null
+	 * @param index
+	 *            index of the property within the interface, used if the
+	 *            method is a getter
+	 * @return compiled plan
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	static MethodAccessor compile(Class<?> interfaceClazz, Method method, String configurationPropertyNamePrefix,
+			int index) {
+		final String methodName = method.getName();
+		final Class returnType = method.getReturnType();
+
+		if (methodName.startsWith("set")) {
+			/**
+			 * void setXXX
+			 */
+			return new SetterAccessor(getConfigurationPropertyName(methodName, configurationPropertyNamePrefix));
+		} else if (methodName.startsWith("get") || methodName.startsWith("is")) {
+			return compileGetter(interfaceClazz.getName(), methodName, returnType,
+					getConfigurationPropertyName(methodName, configurationPropertyNamePrefix),
+					getDefaultValue(method, returnType), index);
+		}
+		return new UnimplementedAccessor("unimplemented method:" + method.toString());
+	}
+
+	/**
+	 * compiles the plan for a method described by a generated implementation
+	 *
+	 * @param interfaceName
+	 *            name of the configuration interface
+	 * @param method
+	 *            method of the configuration interface
+	 * @param configurationPropertyNamePrefix
+	 *            prefix of the property names, may be null
+	 * @param index
+	 *            index of the property within the interface, used if the
+	 *            method is a getter
+	 * @return compiled plan
+	 */
+	static MethodAccessor compile(String interfaceName, ConfigurationMethod method,
+			String configurationPropertyNamePrefix, int index) {
+		if (method.getName().startsWith("set")) {
+			return new SetterAccessor(getConfigurationPropertyName(method.getName(), configurationPropertyNamePrefix));
+		} else if (method.getPropertyName() != null) {
+			return compileGetter(interfaceName, method.getName(), method.getReturnType(), method.getPropertyName(),
+					method.getDefaultValue(), index);
+		}
+		return new UnimplementedAccessor("unimplemented method:" + interfaceName + "." + method.getName());
+	}
+
+	/**
+	 * @return value of the default annotation matching the return type as
+	 *         string, null if there is none. Types without an own annotation
+	 *         use {@link DefaultStringValue}, it is converted like a
+	 *         configured value.
+	 */
+	private static String getDefaultValue(Method method, Class<?> returnType) {
+		if (int.class.equals(returnType) || Integer.class.equals(returnType)) {
+			DefaultIntValue defaultValue = method.getAnnotation(DefaultIntValue.class);
+			return defaultValue != null ? Integer.toString(defaultValue.value()) : null;
+		} else if (long.class.equals(returnType) || Long.class.equals(returnType)) {
+			DefaultLongValue defaultValue = method.getAnnotation(DefaultLongValue.class);
+			return defaultValue != null ? Long.toString(defaultValue.value()) : null;
+		} else if (boolean.class.equals(returnType) || Boolean.class.equals(returnType)) {
+			DefaultBooleanValue defaultValue = method.getAnnotation(DefaultBooleanValue.class);
+			return defaultValue != null ? Boolean.toString(defaultValue.value()) : null;
+		}
+		DefaultStringValue defaultValue = method.getAnnotation(DefaultStringValue.class);
+		return defaultValue != null ? defaultValue.value() : null;
+	}
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private static MethodAccessor compileGetter(String interfaceName, String methodName, Class returnType,
+			String propertyName, String defaultValue, int index) {
+		if (String.class.equals(returnType)) {
+			return new StringAccessor(propertyName, defaultValue, index);
+		} else if (int.class.equals(returnType)) {
+			return new IntAccessor(propertyName, defaultValue != null ? defaultValue : "0", index);
+		} else if (Integer.class.equals(returnType)) {
+			return new IntegerAccessor(propertyName, defaultValue, index);
+		} else if (long.class.equals(returnType)) {
+			return new LongAccessor(propertyName, defaultValue != null ? defaultValue : "0", index);
+		} else if (Long.class.equals(returnType)) {
+			return new LongObjectAccessor(propertyName, defaultValue, index);
+		} else if (boolean.class.equals(returnType)) {
+			return new BooleanAccessor(propertyName, defaultValue != null ? defaultValue : "false", index);
+		} else if (Boolean.class.equals(returnType)) {
+			return new BooleanObjectAccessor(propertyName, defaultValue, index);
+		} else if (byte[].class.equals(returnType)) {
+			return new BinaryAccessor(propertyName, BinaryAccessor.Kind.BYTES, index);
+		} else if (ByteBuffer.class.equals(returnType)) {
+			return new BinaryAccessor(propertyName, BinaryAccessor.Kind.BUFFER, index);
+		} else if (InputStream.class.equals(returnType)) {
+			return new BinaryAccessor(propertyName, BinaryAccessor.Kind.STREAM, index);
+		} else if (ReadableByteChannel.class.equals(returnType)) {
+			return new BinaryAccessor(propertyName, BinaryAccessor.Kind.CHANNEL, index);
+		}
+		ValueConverter converter = ValueConverters.get(returnType);
+		if (converter != null) {
+			return new ConvertedAccessor(propertyName,
+					defaultValue == null && returnType.isPrimitive() ? "0" : defaultValue, converter, index);
+		}
+		return new UnsupportedTypeAccessor(propertyName, index, "could not determine configuration value for "
+				+ interfaceName + "." + methodName + " returning object of type '" + returnType.getName()
+				+ "', register a " + ValueConverter.class.getName());
+	}
+
+	/**
+	 * translates a method name into a configuration property name, e.g.
+	 * <code>getMaxPoolSize</code> into <code>max.pool.size</code>
+	 *
+	 * @param methodName
+	 *            name of the method
+	 * @param configurationPropertyNamePrefix
+	 *            prefix of the property name, may be null
+	 * @return property name
+	 */
+	static String getConfigurationPropertyName(String methodName, String configurationPropertyNamePrefix) {
+		return ConfigurationMethod.getPropertyName(methodName, configurationPropertyNamePrefix);
+	}
+
+	/**
+	 * accessor of a getter that reads a single configuration property
+	 */
+	abstract static class PropertyAccessor extends MethodAccessor {
+		/**
+		 * name of the configuration property
+		 */
+		final String propertyName;
+
+		/**
+		 * default value as string, may be null
+		 */
+		final String defaultValue;
+
+		/**
+		 * index of the property within the interface
+		 */
+		final int index;
+
+		PropertyAccessor(String propertyName, String defaultValue, int index) {
+			super();
+			// shares the name with the layers storing the property
+			this.propertyName = PropertyKeys.canonical(propertyName);
+			this.defaultValue = defaultValue;
+			this.index = index;
+		}
+
+		@Override
+		int getSnapshotSlot() {
+			return this.index;
+		}
+
+		@Override
+		String getPropertyName() {
+			return this.propertyName;
+		}
+
+		/**
+		 * converts a resolved value, the last conversion is kept by the
+		 * instance so that an unchanged value is returned without allocating.
+		 * Instances reading different resolvers, e.g. of different tenants, do
+		 * not share their conversions.
+		 *
+		 * @param value
+		 *            resolved value, may be null
+		 * @param conversions
+		 *            last conversions of the instance, may be null
+		 * @return converted value
+		 */
+		Object convert(String value, Conversion[] conversions) {
+			if (value == null || conversions == null || this.index < 0) {
+				return this.convertValue(value);
+			}
+			Conversion last = conversions[this.index];
+			if (last != null && last.value.equals(value)) {
+				return last.result;
+			}
+			Object result = this.convertValue(value);
+			// racing readers store equal conversions, the fields are final
+			conversions[this.index] = new Conversion(value, result);
+			return result;
+		}
+
+		/**
+		 * converts a resolved int or long value, an unchanged value is read
+		 * from the primitive slot of the instance
+		 */
+		long convertPrimitive(String value, Conversion[] conversions) {
+			if (value != null && conversions != null && this.index >= 0) {
+				Conversion last = conversions[this.index];
+				if (last != null && last.value.equals(value)) {
+					return last.primitive;
+				}
+			}
+			return ((Number) this.convert(value, conversions)).longValue();
+		}
+
+		/**
+		 * @param value
+		 *            resolved value, may be null
+		 * @return value converted into the return type of the getter
+		 */
+		Object convertValue(String value) {
+			return value;
+		}
+
+		/**
+		 * @return resolved value with replaced placeholders or default value
+		 */
+		String getConfigurationPropertyValue(PropertyResolver resolver) {
+			String cleanedValue;
+			if (resolver instanceof InstrumentedPropertyResolver) {
+				cleanedValue = ((InstrumentedPropertyResolver) resolver).resolve(this.propertyName, this.defaultValue);
+			} else {
+				String value = resolver.getProperty(this.propertyName, this.defaultValue);
+				cleanedValue = PropertyReplacementUtil.replacePlaceholders(value, resolver);
+			}
+
+			if (LOG.isDebugEnabled()) {
+				LOG.debug("configuration property '{}': {} (default:'{}')", this.propertyName, cleanedValue,
+						this.defaultValue);
+			}
+
+			return cleanedValue;
+		}
+	}
+
+	/**
+	 * resolved value and the result of its conversion
+	 */
+	static final class Conversion {
+		final String value;
+
+		final Object result;
+
+		/**
+		 * int or long result as primitive, read by the primitive getters
+		 * without unboxing
+		 */
+		final long primitive;
+
+		Conversion(String value, Object result) {
+			super();
+			this.value = value;
+			this.result = result;
+			this.primitive = result instanceof Integer || result instanceof Long ? ((Number) result).longValue() : 0;
+		}
+	}
+
+	/**
+	 * String getXXX
+	 */
+	static final class StringAccessor extends PropertyAccessor {
+		StringAccessor(String propertyName, String defaultValue, int index) {
+			super(propertyName, defaultValue, index);
+		}
+
+		@Override
+		Object invoke(PropertyResolver resolver, Object[] args) {
+			return this.getConfigurationPropertyValue(resolver);
+		}
+	}
+
+	/**
+	 * int getXXX
+	 */
+	static final class IntAccessor extends PropertyAccessor {
+		IntAccessor(String propertyName, String defaultValue, int index) {
+			super(propertyName, defaultValue, index);
+		}
+
+		@Override
+		Object invoke(PropertyResolver resolver, Object[] args) throws NumberFormatException {
+			return this.invoke(resolver, args, null);
+		}
+
+		@Override
+		Object invoke(PropertyResolver resolver, Object[] args, Conversion[] conversions)
+				throws NumberFormatException {
+			return this.convert(this.getConfigurationPropertyValue(resolver), conversions);
+		}
+
+		@Override
+		Object convertValue(String value) throws NumberFormatException {
+			return Integer.valueOf(value);
+		}
+
+		@Override
+		int getInt(PropertyResolver resolver, Conversion[] conversions) throws NumberFormatException {
+			return (int) this.convertPrimitive(this.getConfigurationPropertyValue(resolver), conversions);
+		}
+	}
+
+	/**
+	 * Integer getXXX
+	 */
+	static final class IntegerAccessor extends PropertyAccessor {
+		IntegerAccessor(String propertyName, String defaultValue, int index) {
+			super(propertyName, defaultValue, index);
+		}
+
+		@Override
+		Object invoke(PropertyResolver resolver, Object[] args) throws NumberFormatException {
+			return this.invoke(resolver, args, null);
+		}
+
+		@Override
+		Object invoke(PropertyResolver resolver, Object[] args, Conversion[] conversions)
+				throws NumberFormatException {
+			return this.convert(this.getConfigurationPropertyValue(resolver), conversions);
+		}
+
+		@Override
+		Object convertValue(String value) throws NumberFormatException {
+			return value != null ? Integer.valueOf(value) : null;
+		}
+	}
+
+	/**
+	 * long getXXX
+	 */
+	static final class LongAccessor extends PropertyAccessor {
+		LongAccessor(String propertyName, String defaultValue, int index) {
+			super(propertyName, defaultValue, index);
+		}
+
+		@Override
+		Object invoke(PropertyResolver resolver, Object[] args) throws NumberFormatException {
+			return this.invoke(resolver, args, null);
+		}
+
+		@Override
+		Object invoke(PropertyResolver resolver, Object[] args, Conversion[] conversions)
+				throws NumberFormatException {
+			return this.convert(this.getConfigurationPropertyValue(resolver), conversions);
+		}
+
+		@Override
+		Object convertValue(String value) throws NumberFormatException {
+			return Long.valueOf(value);
+		}
+
+		@Override
+		long getLong(PropertyResolver resolver, Conversion[] conversions) throws NumberFormatException {
+			return this.convertPrimitive(this.getConfigurationPropertyValue(resolver), conversions);
+		}
+	}
+
+	/**
+	 * Long getXXX
+	 */
+	static final class LongObjectAccessor extends PropertyAccessor {
+		LongObjectAccessor(String propertyName, String defaultValue, int index) {
+			super(propertyName, defaultValue, index);
+		}
+
+		@Override
+		Object invoke(PropertyResolver resolver, Object[] args) throws NumberFormatException {
+			return this.invoke(resolver, args, null);
+		}
+
+		@Override
+		Object invoke(PropertyResolver resolver, Object[] args, Conversion[] conversions)
+				throws NumberFormatException {
+			return this.convert(this.getConfigurationPropertyValue(resolver), conversions);
+		}
+
+		@Override
+		Object convertValue(String value) throws NumberFormatException {
+			return value != null ? Long.valueOf(value) : null;
+		}
+	}
+
+	/**
+	 * boolean isXXX
+	 */
+	static final class BooleanAccessor extends PropertyAccessor {
+		BooleanAccessor(String propertyName, String defaultValue, int index) {
+			super(propertyName, defaultValue, index);
+		}
+
+		@Override
+		Object invoke(PropertyResolver resolver, Object[] args) {
+			return this.getBoolean(resolver, null);
+		}
+
+		@Override
+		boolean getBoolean(PropertyResolver resolver, Conversion[] conversions) {
+			return "TRUE".equalsIgnoreCase(this.getConfigurationPropertyValue(resolver));
+		}
+	}
+
+	/**
+	 * Boolean isXXX
+	 */
+	static final class BooleanObjectAccessor extends PropertyAccessor {
+		BooleanObjectAccessor(String propertyName, String defaultValue, int index) {
+			super(propertyName, defaultValue, index);
+		}
+
+		@Override
+		Object invoke(PropertyResolver resolver, Object[] args) {
+			String value = this.getConfigurationPropertyValue(resolver);
+			return value != null ? Boolean.valueOf("true".equalsIgnoreCase(value)) : null;
+		}
+	}
+
+	/**
+	 * Enum, double, Duration, ... getXXX converted by a {@link ValueConverter}
+	 */
+	static final class ConvertedAccessor extends PropertyAccessor {
+		private final ValueConverter<?> converter;
+
+		ConvertedAccessor(String propertyName, String defaultValue, ValueConverter<?> converter, int index) {
+			super(propertyName, defaultValue, index);
+			this.converter = converter;
+		}
+
+		@Override
+		Object invoke(PropertyResolver resolver, Object[] args) {
+			return this.invoke(resolver, args, null);
+		}
+
+		@Override
+		Object invoke(PropertyResolver resolver, Object[] args, Conversion[] conversions) {
+			return this.convert(this.getConfigurationPropertyValue(resolver), conversions);
+		}
+
+		@Override
+		Object convertValue(String value) {
+			return value != null ? this.converter.convert(value) : null;
+		}
+	}
+
+	/**
+	 * byte[], ByteBuffer, InputStream or ReadableByteChannel getXXX, reads
+	 * resource://path and file:// values
+	 */
+	static final class BinaryAccessor extends PropertyAccessor {
+		/**
+		 * return types
+		 */
+		enum Kind {
+			BYTES, BUFFER, STREAM, CHANNEL
+		}
+
+		private final Kind kind;
+
+		BinaryAccessor(String propertyName, Kind kind, int index) {
+			super(propertyName, null, index);
+			this.kind = kind;
+		}
+
+		@Override
+		int getSnapshotSlot() {
+			// binary values are kept by the instance until the source changes
+			return -1;
+		}
+
+		@Override
+		Object invoke(PropertyResolver resolver, Object[] args) {
+			return this.invoke(resolver, args, null);
+		}
+
+		/**
+		 * the content of the last value is kept in the slot of the property,
+		 * like the conversions of other values
+		 */
+		@Override
+		Object invoke(PropertyResolver resolver, Object[] args, Conversion[] conversions) {
+			String value = this.getConfigurationPropertyValue(resolver);
+
+			boolean keep = conversions != null && this.index >= 0;
+			Conversion last = keep ? conversions[this.index] : null;
+			BinaryValue current = last != null ? (BinaryValue) last.result : null;
+			boolean cached = this.kind == Kind.STREAM || this.kind == Kind.CHANNEL
+					? current != null && current.isLocatedBy(value)
+					: current != null && current.isCurrent(value);
+			if (!cached) {
+				current = BinaryValue.locate(value);
+				if (current == null) {
+					LOG.error("could not read binary configuration value for '{}': {}", this.propertyName, value);
+					return null;
+				}
+				if (keep) {
+					conversions[this.index] = new Conversion(value, current);
+				}
+			}
+			switch (this.kind) {
+			case BUFFER:
+				return current.getBuffer();
+			case STREAM:
+				return current.openStream();
+			case CHANNEL:
+				return current.openChannel();
+			default:
+				// callers may modify the array
+				return current.getBytes().clone();
+			}
+		}
+	}
+
+	/**
+	 * getter with a return type that is not supported
+	 */
+	static final class UnsupportedTypeAccessor extends PropertyAccessor {
+		private final String message;
+
+		UnsupportedTypeAccessor(String propertyName, int index, String message) {
+			super(propertyName, null, index);
+			this.message = message;
+		}
+
+		@Override
+		int getSnapshotSlot() {
+			return -1;
+		}
+
+		@Override
+		Object invoke(PropertyResolver resolver, Object[] args) {
+			LOG.error(this.message);
+			return null;
+		}
+	}
+
+	/**
+	 * void setXXX, writes the runtime override layer of the factory
+	 */
+	static final class SetterAccessor extends MethodAccessor {
+		private final String propertyName;
+
+		SetterAccessor(String propertyName) {
+			super();
+			this.propertyName = PropertyKeys.canonical(propertyName);
+		}
+
+		@Override
+		Object invoke(PropertyResolver resolver, Object[] args) {
+			if (resolver instanceof InstrumentedPropertyResolver) {
+				resolver = ((InstrumentedPropertyResolver) resolver).getResolver();
+			}
+			if (!(resolver instanceof OverlayPropertyResolver) || args == null || args.length != 1) {
+				throw new IllegalArgumentException("setters are not supported with this implementation");
+			}
+			OverlayPropertyResolver overrides = (OverlayPropertyResolver) resolver;
+			if (args[0] == null) {
+				overrides.removeOverride(this.propertyName);
+			} else {
+				overrides.setOverride(this.propertyName, format(args[0]));
+			}
+			return null;
+		}
+
+		@SuppressWarnings({ "unchecked", "rawtypes" })
+		private static String format(Object value) {
+			if (value instanceof String) {
+				return (String) value;
+			} else if (value instanceof Enum) {
+				return ((Enum) value).name();
+			}
+			ValueConverter converter = ValueConverters.get(value.getClass());
+			return converter != null ? converter.format(value) : value.toString();
+		}
+	}
+
+	/**
+	 * toString, prints all properties of the interface resolved with one bulk
+	 * lookup
+	 */
+	static final class ToStringAccessor extends MethodAccessor {
+		private final String interfaceName;
+
+		private final PropertyAccessor[] properties;
+
+		ToStringAccessor(String interfaceName, List<PropertyAccessor> properties) {
+			super();
+			this.interfaceName = interfaceName;
+			this.properties = properties.toArray(new PropertyAccessor[properties.size()]);
+		}
+
+		@Override
+		Object invoke(PropertyResolver resolver, Object[] args) {
+			PropertyResolver resolved = ResolvedProperties.resolve(this.properties, resolver);
+			StringBuilder buf = new StringBuilder();
+			buf.append(this.interfaceName).append("(");
+			for (int i = 0; i < this.properties.length; i++) {
+				if (i > 0) {
+					buf.append(",");
+				}
+				buf.append("\n\t");
+				PropertyAccessor property = this.properties[i];
+				buf.append(property.propertyName).append(":")
+						.append(property.getConfigurationPropertyValue(resolved));
+			}
+			buf.append(")");
+			return buf.toString();
+		}
+	}
+
+	/**
+	 * any other method
+	 */
+	static final class UnimplementedAccessor extends MethodAccessor {
+		private final String message;
+
+		UnimplementedAccessor(String message) {
+			super();
+			this.message = message;
+		}
+
+		@Override
+		Object invoke(PropertyResolver resolver, Object[] args) {
+			throw new RuntimeException(this.message);
+		}
+	}
+}
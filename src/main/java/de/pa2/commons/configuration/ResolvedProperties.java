@@ -0,0 +1,77 @@
+/*
+ * copyright (C) 2008-2019 Patrick Stricker
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA
+ *
+ * 	Patrick Stricker - http://pa2.de
+ */
+package de.pa2.commons.configuration;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import de.pa2.commons.configuration.MethodAccessor.PropertyAccessor;
+import de.pa2.commons.configuration.resolvers.PropertyResolver;
+
+/**
+ * values of all properties of an interface, resolved with a single
+ * {@link PropertyResolver#getProperties(java.util.Collection)} call. Other
+ * properties, e.g. referenced by placeholders, are looked up one by one.
+ */
+final class ResolvedProperties implements PropertyResolver {
+	/**
+	 * values by name, null if the property is not set
+	 */
+	private final Map<String, String> values;
+
+	private final PropertyResolver resolver;
+
+	private ResolvedProperties(Map<String, String> values, PropertyResolver resolver) {
+		super();
+		this.values = values;
+		this.resolver = resolver;
+	}
+
+	/**
+	 * @param properties
+	 *            properties of the interface
+	 * @param resolver
+	 *            resolver used to look up property values
+	 * @return resolver answering from the resolved values
+	 */
+	static PropertyResolver resolve(PropertyAccessor[] properties, PropertyResolver resolver) {
+		List<String> propertyNames = new ArrayList<>(properties.length);
+		for (PropertyAccessor property : properties) {
+			propertyNames.add(property.propertyName);
+		}
+		Map<String, String> found = resolver.getProperties(propertyNames);
+		Map<String, String> values = new HashMap<>();
+		for (String propertyName : propertyNames) {
+			values.put(propertyName, found.get(propertyName));
+		}
+		return new ResolvedProperties(values, resolver);
+	}
+
+	@Override
+	public String getProperty(String propertyName, String defaultValue) {
+		if (this.values.containsKey(propertyName)) {
+			String value = this.values.get(propertyName);
+			return value != null ? value : defaultValue;
+		}
+		return this.resolver.getProperty(propertyName, defaultValue);
+	}
+}
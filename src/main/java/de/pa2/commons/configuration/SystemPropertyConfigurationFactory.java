@@ -19,6 +19,8 @@
  */
 package de.pa2.commons.configuration;
 
+import java.util.Set;
+
 import de.pa2.commons.configuration.resolvers.PropertyResolver;
 import de.pa2.commons.configuration.resolvers.SystemPropertyResolver;
 
@@ -28,12 +30,33 @@ import de.pa2.commons.configuration.resolvers.SystemPropertyResolver;
 public class SystemPropertyConfigurationFactory extends AbstractConfigurationFactory
         implements Factory {
 
+    private final SystemPropertyResolver systemProperties;
+
     public SystemPropertyConfigurationFactory() {
+        this(false);
+    }
+
+    /**
+     * @param snapshot
+     *            true to read a copy of the system properties without locking,
+     *            it is updated by {@link #refreshSystemProperties()}
+     */
+    public SystemPropertyConfigurationFactory(boolean snapshot) {
         super();
+        this.systemProperties = new SystemPropertyResolver(snapshot);
+    }
+
+    /**
+     * copies the system properties again if they are read from a snapshot
+     *
+     * @return names of the changed properties
+     */
+    public Set<String> refreshSystemProperties() {
+        return this.systemProperties.refresh();
     }
 
     @Override
     protected PropertyResolver getResolver() {
-    	return new SystemPropertyResolver();
+    	return this.systemProperties;
     }
 }
@@ -0,0 +1,167 @@
+/*
+ * copyright (C) 2008-2019 Patrick Stricker
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA
+ *
+ * 	Patrick Stricker - http://pa2.de
+ */
+package de.pa2.commons.configuration;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import de.pa2.commons.configuration.resolvers.OverlayPropertyResolver;
+import de.pa2.commons.configuration.resolvers.PersistentPropertyMap;
+
+/**
+ * configuration of many tenants sharing one base configuration. Every tenant
+ * is an {@link OverlayPropertyResolver} holding only its own overrides, the
+ * resolver chain of the base factory is shared, so reloads of the base are
+ * visible to all tenants at once. Instances of a tenant are created by the
+ * base factory, a tenant keeps no instances, snapshots or subscriptions of
+ * its own.
+ */
+public class TenantConfigurationFactory {
+	private final AbstractConfigurationFactory base;
+
+	private final Map<String, Tenant> tenants = new ConcurrentHashMap<>();
+
+	/**
+	 * uses a {@link DefaultConfigurationFactory} as base
+	 */
+	public TenantConfigurationFactory() {
+		this(new DefaultConfigurationFactory());
+	}
+
+	/**
+	 * @param base
+	 *            factory whose resolver chain is shared by all tenants, e.g.
+	 *            {@link DefaultConfigurationFactory}
+	 */
+	public TenantConfigurationFactory(Factory base) {
+		super();
+		if (!(base instanceof AbstractConfigurationFactory)) {
+			throw new IllegalArgumentException("unsupported base factory: " + base.getClass().getName());
+		}
+		this.base = (AbstractConfigurationFactory) base;
+	}
+
+	/**
+	 * @param tenantId
+	 *            id of the tenant
+	 * @return factory of the tenant, created on first use
+	 */
+	public Tenant getTenant(String tenantId) {
+		return this.tenants.computeIfAbsent(tenantId, id -> new Tenant(id, this.base));
+	}
+
+	/**
+	 * @return new instance of the interface reading the overrides of the
+	 *         tenant and the base configuration
+	 */
+	public <E extends Configuration> E getInstance(String tenantId, Class<E> clazz) {
+		return this.getTenant(tenantId).getInstance(clazz);
+	}
+
+	/**
+	 * @return ids of the tenants that were used
+	 */
+	public Set<String> getTenantIds() {
+		return Collections.unmodifiableSet(this.tenants.keySet());
+	}
+
+	/**
+	 * forgets a tenant, instances created for it keep their values
+	 *
+	 * @return true if the tenant was known
+	 */
+	public boolean removeTenant(String tenantId) {
+		Tenant tenant = this.tenants.remove(tenantId);
+		if (tenant == null) {
+			return false;
+		}
+		tenant.close();
+		return true;
+	}
+
+	/**
+	 * overrides of a single tenant, they are the only state kept per tenant
+	 */
+	public static final class Tenant implements Factory {
+		private final String tenantId;
+
+		private final AbstractConfigurationFactory factory;
+
+		private final OverlayPropertyResolver overrides;
+
+		Tenant(String tenantId, AbstractConfigurationFactory factory) {
+			super();
+			this.tenantId = tenantId;
+			this.factory = factory;
+			this.overrides = new OverlayPropertyResolver(factory.getSharedResolver());
+		}
+
+		public String getTenantId() {
+			return this.tenantId;
+		}
+
+		/**
+		 * creates a new instance reading the overrides of the tenant, it is
+		 * not cached so callers should keep it
+		 */
+		@Override
+		public <E extends Configuration> E getInstance(Class<E> clazz) {
+			return clazz.cast(this.factory.createInstance(clazz, this.overrides));
+		}
+
+		/**
+		 * overrides a property for all instances of the tenant
+		 *
+		 * @param value
+		 *            new value, null to remove the override
+		 */
+		public void setOverride(String propertyName, String value) {
+			if (value == null) {
+				this.overrides.removeOverride(propertyName);
+			} else {
+				this.overrides.setOverride(propertyName, value);
+			}
+		}
+
+		public void removeOverride(String propertyName) {
+			this.overrides.removeOverride(propertyName);
+		}
+
+		/**
+		 * replaces all overrides of the tenant at once
+		 */
+		public void setOverrides(Map<String, String> overrides) {
+			this.overrides.setOverrides(PersistentPropertyMap.of(overrides));
+		}
+
+		/**
+		 * @return current overrides of the tenant, an immutable version
+		 */
+		public PersistentPropertyMap getOverrides() {
+			return this.overrides.getOverrides();
+		}
+
+		void close() {
+			this.overrides.close();
+		}
+	}
+}
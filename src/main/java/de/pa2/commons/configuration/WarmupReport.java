@@ -0,0 +1,68 @@
+/*
+ * copyright (C) 2008-2019 Patrick Stricker
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA
+ *
+ * 	Patrick Stricker - http://pa2.de
+ */
+package de.pa2.commons.configuration;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * timings of a warmup, see
+ * {@link AbstractConfigurationFactory#warmup(java.util.Collection)}
+ */
+public final class WarmupReport {
+	private final Map<Class<? extends Configuration>, Long> timings;
+
+	private final long totalNanos;
+
+	WarmupReport(Map<Class<? extends Configuration>, Long> timings, long totalNanos) {
+		super();
+		this.timings = Collections.unmodifiableMap(new LinkedHashMap<>(timings));
+		this.totalNanos = totalNanos;
+	}
+
+	/**
+	 * @return time spent warming up each interface in nanoseconds, in the
+	 *         order the interfaces were requested
+	 */
+	public Map<Class<? extends Configuration>, Long> getTimings() {
+		return this.timings;
+	}
+
+	/**
+	 * @return elapsed time of the whole warmup in nanoseconds
+	 */
+	public long getTotalNanos() {
+		return this.totalNanos;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder result = new StringBuilder("warmed up ").append(this.timings.size())
+				.append(" configuration interfaces in ").append(TimeUnit.NANOSECONDS.toMillis(this.totalNanos))
+				.append(" ms");
+		for (Map.Entry<Class<? extends Configuration>, Long> timing : this.timings.entrySet()) {
+			result.append("\n\t").append(timing.getKey().getName()).append(": ")
+					.append(TimeUnit.NANOSECONDS.toMicros(timing.getValue())).append(" us");
+		}
+		return result.toString();
+	}
+}
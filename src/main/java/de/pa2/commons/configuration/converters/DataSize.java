@@ -0,0 +1,139 @@
+/*
+ * copyright (C) 2008-2019 Patrick Stricker
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA
+ *
+ * 	Patrick Stricker - http://pa2.de
+ */
+package de.pa2.commons.configuration.converters;
+
+import java.util.Locale;
+
+/**
+ * amount of bytes, configured as e.g. <code>512</code>, <code>64KB</code>,
+ * <code>10 MB</code> or <code>2GiB</code>. Units are binary multiples, KB and
+ * KiB both mean 1024 bytes.
+ */
+public final class DataSize implements Comparable<DataSize> {
+	private final long bytes;
+
+	private DataSize(long bytes) {
+		super();
+		this.bytes = bytes;
+	}
+
+	public static DataSize ofBytes(long bytes) {
+		return new DataSize(bytes);
+	}
+
+	public static DataSize ofKilobytes(long kilobytes) {
+		return new DataSize(Math.multiplyExact(kilobytes, 1L << 10));
+	}
+
+	public static DataSize ofMegabytes(long megabytes) {
+		return new DataSize(Math.multiplyExact(megabytes, 1L << 20));
+	}
+
+	public static DataSize ofGigabytes(long gigabytes) {
+		return new DataSize(Math.multiplyExact(gigabytes, 1L << 30));
+	}
+
+	/**
+	 * @param value
+	 *            number of bytes with an optional unit B, K, KB, KiB, M, MB,
+	 *            MiB, G, GB, GiB, T, TB or TiB
+	 * @return parsed size
+	 * @throws IllegalArgumentException
+	 *             if the value is not a size
+	 */
+	public static DataSize parse(String value) {
+		String trimmed = value.trim();
+		int end = 0;
+		while (end < trimmed.length() && Character.isDigit(trimmed.charAt(end))) {
+			end++;
+		}
+		if (end == 0) {
+			throw new IllegalArgumentException("not a data size: " + value);
+		}
+		long amount = Long.parseLong(trimmed.substring(0, end));
+		String unit = trimmed.substring(end).trim().toUpperCase(Locale.ROOT);
+		int shift;
+		switch (unit) {
+		case "":
+		case "B":
+			shift = 0;
+			break;
+		case "K":
+		case "KB":
+		case "KIB":
+			shift = 10;
+			break;
+		case "M":
+		case "MB":
+		case "MIB":
+			shift = 20;
+			break;
+		case "G":
+		case "GB":
+		case "GIB":
+			shift = 30;
+			break;
+		case "T":
+		case "TB":
+		case "TIB":
+			shift = 40;
+			break;
+		default:
+			throw new IllegalArgumentException("unknown data size unit in " + value);
+		}
+		return new DataSize(Math.multiplyExact(amount, 1L << shift));
+	}
+
+	public long toBytes() {
+		return this.bytes;
+	}
+
+	public long toKilobytes() {
+		return this.bytes >> 10;
+	}
+
+	public long toMegabytes() {
+		return this.bytes >> 20;
+	}
+
+	public long toGigabytes() {
+		return this.bytes >> 30;
+	}
+
+	@Override
+	public int compareTo(DataSize other) {
+		return Long.compare(this.bytes, other.bytes);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		return obj instanceof DataSize && ((DataSize) obj).bytes == this.bytes;
+	}
+
+	@Override
+	public int hashCode() {
+		return Long.hashCode(this.bytes);
+	}
+
+	@Override
+	public String toString() {
+		return this.bytes + "B";
+	}
+}
@@ -0,0 +1,60 @@
+/*
+ * copyright (C) 2008-2019 Patrick Stricker
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA
+ *
+ * 	Patrick Stricker - http://pa2.de
+ */
+package de.pa2.commons.configuration.converters;
+
+/**
+ * converts configuration values into the return type of a getter. Additional
+ * converters are registered in
+ * <code>META-INF/services/de.pa2.commons.configuration.converters.ValueConverter</code>
+ * and replace the built-in converter of the same type.
+ * <p>
+ * Results are cached until the value changes, so they have to be immutable.
+ *
+ * @param <T>
+ *            converted type
+ */
+public interface ValueConverter<T> {
+
+	/**
+	 * @return type the values are converted into
+	 */
+	Class<T> getType();
+
+	/**
+	 * @param value
+	 *            configuration value, not null
+	 * @return converted value
+	 * @throws IllegalArgumentException
+	 *             if the value can not be converted
+	 */
+	T convert(String value);
+
+	/**
+	 * inverse of {@link #convert(String)}, used by setters
+	 *
+	 * @param value
+	 *            converted value, not null
+	 * @return configuration value
+	 */
+	default String format(T value) {
+		return value.toString();
+	}
+
+}
@@ -0,0 +1,234 @@
+/*
+ * copyright (C) 2008-2019 Patrick Stricker
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA
+ *
+ * 	Patrick Stricker - http://pa2.de
+ */
+package de.pa2.commons.configuration.converters;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+/**
+ * built-in and registered {@link ValueConverter}s
+ */
+public final class ValueConverters {
+
+	private ValueConverters() {
+		super();
+	}
+
+	/**
+	 * @param type
+	 *            return type of a getter
+	 * @return converter for the type, null if there is none
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public static <T> ValueConverter<T> get(Class<T> type) {
+		ValueConverter<?> converter = Registered.CONVERTERS.get(type);
+		if (converter == null && type.isEnum()) {
+			converter = new EnumConverter(type);
+		}
+		return (ValueConverter<T>) converter;
+	}
+
+	/**
+	 * converts durations in ISO-8601 format like <code>PT30S</code> or as
+	 * number with one of the units ns, us, ms, s, m, h or d, e.g.
+	 * <code>500ms</code>. Numbers without unit are milliseconds.
+	 */
+	static Duration parseDuration(String value) {
+		String trimmed = value.trim();
+		String upper = trimmed.toUpperCase(Locale.ROOT);
+		if (upper.startsWith("P") || upper.startsWith("-P")) {
+			return Duration.parse(upper);
+		}
+		int start = trimmed.startsWith("-") ? 1 : 0;
+		int end = start;
+		while (end < trimmed.length() && Character.isDigit(trimmed.charAt(end))) {
+			end++;
+		}
+		if (end == start) {
+			throw new IllegalArgumentException("not a duration: " + value);
+		}
+		long amount = Long.parseLong(trimmed.substring(0, end));
+		switch (trimmed.substring(end).trim().toLowerCase(Locale.ROOT)) {
+		case "ns":
+			return Duration.ofNanos(amount);
+		case "us":
+			return Duration.ofNanos(Math.multiplyExact(amount, 1000L));
+		case "":
+		case "ms":
+			return Duration.ofMillis(amount);
+		case "s":
+			return Duration.ofSeconds(amount);
+		case "m":
+			return Duration.ofMinutes(amount);
+		case "h":
+			return Duration.ofHours(amount);
+		case "d":
+			return Duration.ofDays(amount);
+		default:
+			throw new IllegalArgumentException("unknown duration unit in " + value);
+		}
+	}
+
+	/**
+	 * converts <code>host:port</code> and <code>[ipv6]:port</code>, host names
+	 * are resolved once per value
+	 */
+	static InetSocketAddress parseSocketAddress(String value) {
+		String trimmed = value.trim();
+		int separator = trimmed.lastIndexOf(':');
+		if (separator <= 0 || (trimmed.indexOf(':') != separator && trimmed.charAt(separator - 1) != ']')) {
+			throw new IllegalArgumentException("not a socket address: " + value);
+		}
+		String host = trimmed.substring(0, separator);
+		if (host.startsWith("[") && host.endsWith("]")) {
+			host = host.substring(1, host.length() - 1);
+		}
+		return new InetSocketAddress(host, Integer.parseInt(trimmed.substring(separator + 1)));
+	}
+
+	/**
+	 * formats an address the way {@link #parseSocketAddress(String)} reads it
+	 */
+	static String formatSocketAddress(InetSocketAddress address) {
+		String host = address.getHostString();
+		if (host.indexOf(':') >= 0) {
+			host = "[" + host + "]";
+		}
+		return host + ":" + address.getPort();
+	}
+
+	/**
+	 * converters by type, built once
+	 */
+	private static final class Registered {
+		static final Map<Class<?>, ValueConverter<?>> CONVERTERS = new HashMap<>();
+
+		static {
+			add(Double.class, Double::valueOf);
+			add(double.class, Double::valueOf);
+			add(Float.class, Float::valueOf);
+			add(float.class, Float::valueOf);
+			add(Duration.class, ValueConverters::parseDuration);
+			add(DataSize.class, DataSize::parse);
+			add(URI.class, URI::create);
+			add(Path.class, Paths::get);
+			add(Pattern.class, Pattern::compile);
+			add(InetSocketAddress.class, ValueConverters::parseSocketAddress, ValueConverters::formatSocketAddress);
+
+			for (ValueConverter<?> converter : ServiceLoader.load(ValueConverter.class)) {
+				CONVERTERS.put(converter.getType(), converter);
+			}
+		}
+
+		@SuppressWarnings({ "unchecked", "rawtypes" })
+		private static <T> void add(Class<T> type, Function<String, ? extends T> function) {
+			CONVERTERS.put(type, new FunctionConverter(type, function, Object::toString));
+		}
+
+		@SuppressWarnings({ "unchecked", "rawtypes" })
+		private static <T> void add(Class<T> type, Function<String, ? extends T> function,
+				Function<T, String> formatter) {
+			CONVERTERS.put(type, new FunctionConverter(type, function, formatter));
+		}
+	}
+
+	/**
+	 * built-in converter
+	 */
+	private static final class FunctionConverter<T> implements ValueConverter<T> {
+		private final Class<T> type;
+
+		private final Function<String, T> function;
+
+		private final Function<T, String> formatter;
+
+		FunctionConverter(Class<T> type, Function<String, T> function, Function<T, String> formatter) {
+			super();
+			this.type = type;
+			this.function = function;
+			this.formatter = formatter;
+		}
+
+		@Override
+		public Class<T> getType() {
+			return this.type;
+		}
+
+		@Override
+		public T convert(String value) {
+			return this.function.apply(value);
+		}
+
+		@Override
+		public String format(T value) {
+			return this.formatter.apply(value);
+		}
+	}
+
+	/**
+	 * looks up enum constants case insensitive in a table built once per
+	 * getter
+	 */
+	static final class EnumConverter<E extends Enum<E>> implements ValueConverter<E> {
+		private final Class<E> type;
+
+		private final Map<String, E> constants = new HashMap<>();
+
+		EnumConverter(Class<E> type) {
+			super();
+			this.type = type;
+			for (E constant : type.getEnumConstants()) {
+				this.constants.put(constant.name(), constant);
+				this.constants.putIfAbsent(constant.name().toUpperCase(Locale.ROOT), constant);
+			}
+		}
+
+		@Override
+		public Class<E> getType() {
+			return this.type;
+		}
+
+		@Override
+		public E convert(String value) {
+			E constant = this.constants.get(value);
+			if (constant == null) {
+				constant = this.constants.get(value.trim().toUpperCase(Locale.ROOT));
+			}
+			if (constant == null) {
+				throw new IllegalArgumentException("no constant " + value + " in " + this.type.getName());
+			}
+			return constant;
+		}
+
+		@Override
+		public String format(E value) {
+			return value.name();
+		}
+	}
+}
@@ -0,0 +1,284 @@
+/*
+ * copyright (C) 2008-2019 Patrick Stricker
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA
+ *
+ * 	Patrick Stricker - http://pa2.de
+ */
+package de.pa2.commons.configuration.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.pa2.commons.configuration.resolvers.PropertyResolver;
+
+/**
+ * collects lookup metrics of a configuration factory, counters are striped so
+ * that concurrent readers do not contend
+ */
+public class ConfigurationMetrics implements ConfigurationMetricsMXBean {
+	private static final Logger LOG = LoggerFactory.getLogger(ConfigurationMetrics.class);
+
+	/**
+	 * counters of a single property
+	 */
+	static final class PropertyStatistics {
+		final LongAdder reads = new LongAdder();
+
+		final LongAdder lookups = new LongAdder();
+
+		final LongAdder misses = new LongAdder();
+
+		/**
+		 * name of the layer that supplied the value, null if unknown
+		 */
+		volatile String hitLayer = null;
+	}
+
+	private final Map<String, PropertyStatistics> properties = new ConcurrentHashMap<>();
+
+	private final Map<String, LongAdder> layerHits = new ConcurrentHashMap<>();
+
+	private final LatencyHistogram readLatency = new LatencyHistogram();
+
+	private final LatencyHistogram lookupLatency = new LatencyHistogram();
+
+	private final LatencyHistogram placeholderLatency = new LatencyHistogram();
+
+	private ObjectName objectName = null;
+
+	/**
+	 * wraps a resolver so that its lookups are recorded
+	 *
+	 * @param resolver
+	 *            resolver chain
+	 * @return instrumented resolver
+	 */
+	public InstrumentedPropertyResolver instrument(PropertyResolver resolver) {
+		return new InstrumentedPropertyResolver(resolver, this);
+	}
+
+	/**
+	 * @return statistics of the property, null if it was not looked up
+	 */
+	PropertyStatistics findStatistics(String propertyName) {
+		return this.properties.get(propertyName);
+	}
+
+	PropertyStatistics getStatistics(String propertyName) {
+		PropertyStatistics statistics = this.properties.get(propertyName);
+		if (statistics == null) {
+			statistics = this.properties.computeIfAbsent(propertyName, name -> new PropertyStatistics());
+		}
+		return statistics;
+	}
+
+	/**
+	 * records a getter invocation
+	 *
+	 * @param propertyName
+	 *            name of the property, null for methods that are not getters
+	 * @param nanos
+	 *            latency of the invocation
+	 */
+	public void recordRead(String propertyName, long nanos) {
+		if (propertyName != null) {
+			this.getStatistics(propertyName).reads.increment();
+		}
+		this.readLatency.record(nanos);
+	}
+
+	void recordLookup(PropertyStatistics statistics, long nanos, boolean hit) {
+		statistics.lookups.increment();
+		if (!hit) {
+			statistics.misses.increment();
+		}
+		this.lookupLatency.record(nanos);
+	}
+
+	void recordLayerHit(String layer) {
+		LongAdder hits = this.layerHits.get(layer);
+		if (hits == null) {
+			hits = this.layerHits.computeIfAbsent(layer, name -> new LongAdder());
+		}
+		hits.increment();
+	}
+
+	void recordPlaceholders(long nanos) {
+		this.placeholderLatency.record(nanos);
+	}
+
+	/**
+	 * publishes the metrics on the platform MBean server
+	 *
+	 * @param name
+	 *            object name, e.g.
+	 *            <code>de.pa2.commons.configuration:type=ConfigurationMetrics</code>
+	 */
+	public synchronized void register(ObjectName name) {
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		try {
+			server.registerMBean(this, name);
+			this.objectName = name;
+		} catch (JMException e) {
+			LOG.warn("could not register configuration metrics as {}", name, e);
+		}
+	}
+
+	/**
+	 * removes the metrics from the platform MBean server
+	 */
+	public synchronized void unregister() {
+		if (this.objectName != null) {
+			try {
+				ManagementFactory.getPlatformMBeanServer().unregisterMBean(this.objectName);
+			} catch (JMException e) {
+				LOG.warn("could not unregister configuration metrics {}", this.objectName, e);
+			}
+			this.objectName = null;
+		}
+	}
+
+	/**
+	 * @return object name the metrics are registered with, null if they are
+	 *         not registered
+	 */
+	public synchronized ObjectName getObjectName() {
+		return this.objectName;
+	}
+
+	@Override
+	public long getReadCount() {
+		return this.readLatency.getCount();
+	}
+
+	@Override
+	public long getLookupCount() {
+		return this.lookupLatency.getCount();
+	}
+
+	@Override
+	public long getMissCount() {
+		long misses = 0;
+		for (PropertyStatistics statistics : this.properties.values()) {
+			misses += statistics.misses.sum();
+		}
+		return misses;
+	}
+
+	@Override
+	public Map<String, Long> getReadCounts() {
+		Map<String, Long> result = new TreeMap<>();
+		this.properties.forEach((name, statistics) -> {
+			long reads = statistics.reads.sum();
+			if (reads > 0) {
+				result.put(name, reads);
+			}
+		});
+		return result;
+	}
+
+	@Override
+	public Map<String, Long> getLookupCounts() {
+		Map<String, Long> result = new TreeMap<>();
+		this.properties.forEach((name, statistics) -> {
+			long lookups = statistics.lookups.sum();
+			if (lookups > 0) {
+				result.put(name, lookups);
+			}
+		});
+		return result;
+	}
+
+	@Override
+	public Map<String, Long> getMissCounts() {
+		Map<String, Long> result = new TreeMap<>();
+		this.properties.forEach((name, statistics) -> {
+			long misses = statistics.misses.sum();
+			if (misses > 0) {
+				result.put(name, misses);
+			}
+		});
+		return result;
+	}
+
+	@Override
+	public Map<String, String> getHitLayers() {
+		Map<String, String> result = new TreeMap<>();
+		this.properties.forEach((name, statistics) -> {
+			String layer = statistics.hitLayer;
+			if (layer != null) {
+				result.put(name, layer);
+			}
+		});
+		return result;
+	}
+
+	@Override
+	public Map<String, Long> getLayerHitCounts() {
+		Map<String, Long> result = new TreeMap<>();
+		this.layerHits.forEach((layer, hits) -> result.put(layer, hits.sum()));
+		return result;
+	}
+
+	@Override
+	public long[] getReadLatencyHistogram() {
+		return this.readLatency.getCounts();
+	}
+
+	@Override
+	public long[] getLookupLatencyHistogram() {
+		return this.lookupLatency.getCounts();
+	}
+
+	@Override
+	public long[] getPlaceholderLatencyHistogram() {
+		return this.placeholderLatency.getCounts();
+	}
+
+	@Override
+	public long getReadLatency99thPercentileNanos() {
+		return this.readLatency.getPercentile(99);
+	}
+
+	@Override
+	public long getLookupLatency99thPercentileNanos() {
+		return this.lookupLatency.getPercentile(99);
+	}
+
+	@Override
+	public long getPlaceholderLatency99thPercentileNanos() {
+		return this.placeholderLatency.getPercentile(99);
+	}
+
+	@Override
+	public void reset() {
+		this.properties.clear();
+		this.layerHits.clear();
+		this.readLatency.reset();
+		this.lookupLatency.reset();
+		this.placeholderLatency.reset();
+	}
+}
@@ -0,0 +1,97 @@
+/*
+ * copyright (C) 2008-2019 Patrick Stricker
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA
+ *
+ * 	Patrick Stricker - http://pa2.de
+ */
+package de.pa2.commons.configuration.metrics;
+
+import java.util.Map;
+
+/**
+ * lookup metrics of a configuration factory published as platform MBean
+ */
+public interface ConfigurationMetricsMXBean {
+
+	/**
+	 * @return number of getter invocations on configuration instances
+	 */
+	long getReadCount();
+
+	/**
+	 * @return number of lookups in the resolver chain, including lookups of
+	 *         placeholders
+	 */
+	long getLookupCount();
+
+	/**
+	 * @return number of lookups not found in any layer of the resolver chain
+	 */
+	long getMissCount();
+
+	/**
+	 * @return getter invocations per property
+	 */
+	Map<String, Long> getReadCounts();
+
+	/**
+	 * @return lookups per property
+	 */
+	Map<String, Long> getLookupCounts();
+
+	/**
+	 * @return misses per property
+	 */
+	Map<String, Long> getMissCounts();
+
+	/**
+	 * @return layer of the resolver chain that supplied the value of each
+	 *         property
+	 */
+	Map<String, String> getHitLayers();
+
+	/**
+	 * @return hits per layer of the resolver chain
+	 */
+	Map<String, Long> getLayerHitCounts();
+
+	/**
+	 * @return histogram of getter latencies, see {@link LatencyHistogram}
+	 */
+	long[] getReadLatencyHistogram();
+
+	/**
+	 * @return histogram of lookup latencies, see {@link LatencyHistogram}
+	 */
+	long[] getLookupLatencyHistogram();
+
+	/**
+	 * @return histogram of placeholder expansion latencies, see
+	 *         {@link LatencyHistogram}
+	 */
+	long[] getPlaceholderLatencyHistogram();
+
+	long getReadLatency99thPercentileNanos();
+
+	long getLookupLatency99thPercentileNanos();
+
+	long getPlaceholderLatency99thPercentileNanos();
+
+	/**
+	 * clears all counters and histograms
+	 */
+	void reset();
+}
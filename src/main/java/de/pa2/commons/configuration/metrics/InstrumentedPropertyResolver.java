@@ -0,0 +1,196 @@
+/*
+ * copyright (C) 2008-2019 Patrick Stricker
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA
+ *
+ * 	Patrick Stricker - http://pa2.de
+ */
+package de.pa2.commons.configuration.metrics;
+
+import java.io.Closeable;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import de.pa2.commons.configuration.metrics.ConfigurationMetrics.PropertyStatistics;
+import de.pa2.commons.configuration.resolvers.AggregatedPropertyResolver;
+import de.pa2.commons.configuration.resolvers.LazyPropertyResolver;
+import de.pa2.commons.configuration.resolvers.ObservablePropertyResolver;
+import de.pa2.commons.configuration.resolvers.OverlayPropertyResolver;
+import de.pa2.commons.configuration.resolvers.PropertyReplacementUtil;
+import de.pa2.commons.configuration.resolvers.PropertyResolver;
+import de.pa2.commons.configuration.resolvers.ResolverChangeListener;
+import de.pa2.commons.configuration.resolvers.ResourcePropertyResolver;
+
+/**
+ * resolver recording the lookups of the resolver chain it wraps
+ */
+public final class InstrumentedPropertyResolver implements PropertyResolver, Closeable {
+	/**
+	 * default value passed to the chain to tell misses apart, compared by
+	 * identity
+	 */
+	private static final String MISSING = new String("missing");
+
+	private final PropertyResolver resolver;
+
+	private final ConfigurationMetrics metrics;
+
+	/**
+	 * determines the layer supplying a changed property again
+	 */
+	private final ResolverChangeListener changeListener = new ResolverChangeListener() {
+		@Override
+		public void propertiesChanged(Set<String> propertyNames) {
+			for (String propertyName : propertyNames) {
+				PropertyStatistics statistics = InstrumentedPropertyResolver.this.metrics.findStatistics(propertyName);
+				if (statistics != null) {
+					statistics.hitLayer = null;
+				}
+			}
+		}
+	};
+
+	InstrumentedPropertyResolver(PropertyResolver resolver, ConfigurationMetrics metrics) {
+		super();
+		this.resolver = resolver;
+		this.metrics = metrics;
+		if (resolver instanceof ObservablePropertyResolver) {
+			((ObservablePropertyResolver) resolver).addChangeListener(this.changeListener);
+		}
+	}
+
+	/**
+	 * stops listening to the wrapped chain, so that the metrics are no longer
+	 * referenced by it
+	 */
+	@Override
+	public void close() {
+		if (this.resolver instanceof ObservablePropertyResolver) {
+			((ObservablePropertyResolver) this.resolver).removeChangeListener(this.changeListener);
+		}
+	}
+
+	/**
+	 * @return wrapped resolver chain
+	 */
+	public PropertyResolver getResolver() {
+		return this.resolver;
+	}
+
+	@Override
+	public String getProperty(String propertyName, String defaultValue) {
+		PropertyStatistics statistics = this.metrics.getStatistics(propertyName);
+		long start = System.nanoTime();
+		String value = this.resolver.getProperty(propertyName, MISSING);
+		long nanos = System.nanoTime() - start;
+		boolean hit = value != MISSING;
+		this.metrics.recordLookup(statistics, nanos, hit);
+		if (!hit) {
+			return defaultValue;
+		}
+		this.recordLayerHit(propertyName, statistics);
+		return value;
+	}
+
+	/**
+	 * resolves the properties with one call of the chain, its duration is
+	 * split evenly between them
+	 */
+	@Override
+	public Map<String, String> getProperties(Collection<String> propertyNames) {
+		long start = System.nanoTime();
+		Map<String, String> values = this.resolver.getProperties(propertyNames);
+		long nanos = propertyNames.isEmpty() ? 0 : (System.nanoTime() - start) / propertyNames.size();
+		for (String propertyName : propertyNames) {
+			PropertyStatistics statistics = this.metrics.getStatistics(propertyName);
+			boolean hit = values.containsKey(propertyName);
+			this.metrics.recordLookup(statistics, nanos, hit);
+			if (hit) {
+				this.recordLayerHit(propertyName, statistics);
+			}
+		}
+		return values;
+	}
+
+	private void recordLayerHit(String propertyName, PropertyStatistics statistics) {
+		String layer = statistics.hitLayer;
+		if (layer == null) {
+			layer = this.getLayer(propertyName);
+			statistics.hitLayer = layer;
+		}
+		this.metrics.recordLayerHit(layer);
+	}
+
+	/**
+	 * looks up a property and replaces its placeholders, the expansion is
+	 * recorded separately
+	 *
+	 * @param propertyName
+	 *            name of the property
+	 * @param defaultValue
+	 *            value if the property is not found
+	 * @return value with replaced placeholders
+	 */
+	public String resolve(String propertyName, String defaultValue) {
+		String value = this.getProperty(propertyName, defaultValue);
+		if (value == null || value.indexOf("${") < 0) {
+			return value;
+		}
+		long start = System.nanoTime();
+		String result = PropertyReplacementUtil.replacePlaceholders(value, this);
+		this.metrics.recordPlaceholders(System.nanoTime() - start);
+		return result;
+	}
+
+	/**
+	 * @return name of the layer that supplies the property, e.g.
+	 *         <code>2:ResourcePropertyResolver(/etc/app.properties)</code>
+	 */
+	private String getLayer(String propertyName) {
+		PropertyResolver chain = this.resolver;
+		if (chain instanceof OverlayPropertyResolver) {
+			if (((OverlayPropertyResolver) chain).getOverrides().get(propertyName) != null) {
+				return "override";
+			}
+			chain = ((OverlayPropertyResolver) chain).getBase();
+		}
+		if (chain instanceof AggregatedPropertyResolver) {
+			List<PropertyResolver> layers = ((AggregatedPropertyResolver) chain).getResolvers();
+			for (int i = 0; i < layers.size(); i++) {
+				PropertyResolver layer = layers.get(i);
+				if (layer.getProperty(propertyName, MISSING) != MISSING) {
+					return i + ":" + describe(layer);
+				}
+			}
+		}
+		return "0:" + describe(chain);
+	}
+
+	private static String describe(PropertyResolver layer) {
+		if (layer instanceof LazyPropertyResolver) {
+			PropertyResolver loaded = ((LazyPropertyResolver) layer).getResolver();
+			if (loaded != null) {
+				layer = loaded;
+			}
+		}
+		String name = layer.getClass().getSimpleName();
+		if (layer instanceof ResourcePropertyResolver && ((ResourcePropertyResolver) layer).getFile() != null) {
+			name += "(" + ((ResourcePropertyResolver) layer).getFile().getPath() + ")";
+		}
+		return name;
+	}
+}
@@ -0,0 +1,105 @@
+/*
+ * copyright (C) 2008-2019 Patrick Stricker
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA
+ *
+ * 	Patrick Stricker - http://pa2.de
+ */
+package de.pa2.commons.configuration.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * histogram of latencies in nanoseconds with power of two buckets, bucket
+ * <code>i</code> counts latencies below <code>2^(i+1)</code> nanoseconds.
+ * Recording is a single striped counter increment.
+ */
+public final class LatencyHistogram {
+	private static final int BUCKETS = 64;
+
+	private final LongAdder[] buckets = new LongAdder[BUCKETS];
+
+	public LatencyHistogram() {
+		super();
+		for (int i = 0; i < BUCKETS; i++) {
+			this.buckets[i] = new LongAdder();
+		}
+	}
+
+	/**
+	 * @param nanos
+	 *            latency to record
+	 */
+	public void record(long nanos) {
+		this.buckets[63 - Long.numberOfLeadingZeros(nanos | 1)].increment();
+	}
+
+	/**
+	 * @return counts of the buckets, trailing empty buckets are omitted
+	 */
+	public long[] getCounts() {
+		long[] counts = new long[BUCKETS];
+		int length = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			counts[i] = this.buckets[i].sum();
+			if (counts[i] > 0) {
+				length = i + 1;
+			}
+		}
+		long[] result = new long[length];
+		System.arraycopy(counts, 0, result, 0, length);
+		return result;
+	}
+
+	/**
+	 * @param percentile
+	 *            percentile between 0 and 100
+	 * @return upper bound of the bucket containing the percentile, 0 if
+	 *         nothing was recorded
+	 */
+	public long getPercentile(double percentile) {
+		long[] counts = this.getCounts();
+		long total = 0;
+		for (long count : counts) {
+			total += count;
+		}
+		long rank = (long) Math.ceil(total * percentile / 100.0);
+		long seen = 0;
+		for (int i = 0; i < counts.length; i++) {
+			seen += counts[i];
+			if (seen >= rank && seen > 0) {
+				return i >= 62 ? Long.MAX_VALUE : 1l << (i + 1);
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * @return number of recorded latencies
+	 */
+	public long getCount() {
+		long total = 0;
+		for (LongAdder bucket : this.buckets) {
+			total += bucket.sum();
+		}
+		return total;
+	}
+
+	public void reset() {
+		for (LongAdder bucket : this.buckets) {
+			bucket.reset();
+		}
+	}
+}
@@ -0,0 +1,475 @@
+/*
+ * copyright (C) 2008-2019 Patrick Stricker
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA
+ *
+ * 	Patrick Stricker - http://pa2.de
+ */
+package de.pa2.commons.configuration.processor;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.TypeParameterElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.ExecutableType;
+import javax.lang.model.type.PrimitiveType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+
+import de.pa2.commons.configuration.Configuration;
+import de.pa2.commons.configuration.ConfigurationImplementation;
+import de.pa2.commons.configuration.ConfigurationMethod;
+import de.pa2.commons.configuration.ConfigurationPrefix;
+import de.pa2.commons.configuration.ConfigurationValues;
+import de.pa2.commons.configuration.DefaultBooleanValue;
+import de.pa2.commons.configuration.DefaultIntValue;
+import de.pa2.commons.configuration.DefaultLongValue;
+import de.pa2.commons.configuration.DefaultStringValue;
+import de.pa2.commons.configuration.TimeToLive;
+
+/**
+ * generates an implementation of every interface extending
+ * {@link Configuration} at build time, with property names and defaults
+ * computed by the compiler. The implementations are listed in
+ * <code>META-INF/services/de.pa2.commons.configuration.ConfigurationImplementation</code>,
+ * which is also the index of all configuration interfaces.
+ */
+@SupportedAnnotationTypes("*")
+public class ConfigurationProcessor extends AbstractProcessor {
+	/**
+	 * index of the generated implementations
+	 */
+	static final String INDEX = "META-INF/services/" + ConfigurationImplementation.class.getName();
+
+	/**
+	 * suffix of the generated implementation classes, must match the lookup
+	 * of the factories
+	 */
+	private static final String SUFFIX = "_Implementation";
+
+	private static final String METHOD = ConfigurationMethod.class.getName();
+
+	private static final String VALUES = ConfigurationValues.class.getName();
+
+	/**
+	 * names of the implementations generated in this compilation
+	 */
+	private final Set<String> implementations = new TreeSet<>();
+
+	@Override
+	public SourceVersion getSupportedSourceVersion() {
+		return SourceVersion.latestSupported();
+	}
+
+	@Override
+	public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+		if (roundEnv.processingOver()) {
+			if (!this.implementations.isEmpty()) {
+				this.writeIndex();
+			}
+			return false;
+		}
+		TypeElement configuration = this.processingEnv.getElementUtils()
+				.getTypeElement(Configuration.class.getCanonicalName());
+		if (configuration == null) {
+			return false;
+		}
+		for (Element element : roundEnv.getRootElements()) {
+			this.scan(element, configuration.asType());
+		}
+		// other processors may handle the same annotations
+		return false;
+	}
+
+	private void scan(Element element, TypeMirror configuration) {
+		if (!(element instanceof TypeElement)) {
+			return;
+		}
+		TypeElement type = (TypeElement) element;
+		if (type.getKind() == ElementKind.INTERFACE && !type.getModifiers().contains(Modifier.PRIVATE)
+				&& !type.getQualifiedName().contentEquals(Configuration.class.getCanonicalName())
+				&& this.processingEnv.getTypeUtils().isAssignable(
+						this.processingEnv.getTypeUtils().erasure(type.asType()), configuration)) {
+			if (type.getTypeParameters().isEmpty()) {
+				this.generate(type);
+			} else {
+				this.processingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE,
+						"generic configuration interfaces are implemented by proxies", type);
+			}
+		}
+		for (Element enclosed : type.getEnclosedElements()) {
+			this.scan(enclosed, configuration);
+		}
+	}
+
+	private void generate(TypeElement type) {
+		String packageName = this.getPackageName(type);
+		String binaryName = this.processingEnv.getElementUtils().getBinaryName(type).toString();
+		String simpleName = (packageName.isEmpty() ? binaryName : binaryName.substring(packageName.length() + 1))
+				.replace('$', '_') + SUFFIX;
+		String implementationName = packageName.isEmpty() ? simpleName : packageName + "." + simpleName;
+		String interfaceName = type.getQualifiedName().toString();
+
+		ConfigurationPrefix prefixAnnotation = type.getAnnotation(ConfigurationPrefix.class);
+		String prefix = prefixAnnotation != null ? prefixAnnotation.value() : null;
+
+		List<ExecutableElement> methods = this.getMethods(type);
+		StringBuilder source = new StringBuilder();
+		if (!packageName.isEmpty()) {
+			source.append("package ").append(packageName).append(";\n\n");
+		}
+		source.append("/**\n * implementation of {@link ").append(interfaceName)
+				.append("} generated by ").append(ConfigurationProcessor.class.getSimpleName())
+				.append(", do not edit\n */\n");
+		source.append("public final class ").append(simpleName).append(" implements ")
+				.append(ConfigurationImplementation.class.getName()).append('<').append(interfaceName)
+				.append("> {\n");
+
+		// layout of the methods, computed here instead of at runtime
+		source.append("\tprivate static final java.util.List<").append(METHOD)
+				.append("> METHODS = java.util.Collections.unmodifiableList(java.util.Arrays.asList(\n");
+		int toStringIndex = -1;
+		for (int i = 0; i < methods.size(); i++) {
+			ExecutableElement method = methods.get(i);
+			ExecutableType methodType = this.getMethodType(type, method);
+			String name = method.getSimpleName().toString();
+			if ("toString".equals(name) && method.getParameters().isEmpty()) {
+				toStringIndex = i;
+			}
+			String propertyName = null;
+			String defaultValue = null;
+			long timeToLive = -1;
+			if (!name.startsWith("set") && (name.startsWith("get") || name.startsWith("is"))) {
+				propertyName = ConfigurationMethod.getPropertyName(name, prefix);
+				defaultValue = this.getDefaultValue(method, methodType.getReturnType());
+				TimeToLive timeToLiveAnnotation = method.getAnnotation(TimeToLive.class);
+				if (timeToLiveAnnotation != null) {
+					timeToLive = timeToLiveAnnotation.unit().toNanos(timeToLiveAnnotation.value());
+				}
+			}
+			source.append("\t\t\tnew ").append(METHOD).append('(').append(literal(name)).append(", ")
+					.append(this.processingEnv.getTypeUtils().erasure(methodType.getReturnType())).append(".class, ")
+					.append(this.parameterTypes(methodType)).append(", ").append(literal(propertyName)).append(", ")
+					.append(literal(defaultValue)).append(", ").append(timeToLive).append("L),\n");
+		}
+		if (toStringIndex < 0) {
+			toStringIndex = methods.size();
+			source.append("\t\t\tnew ").append(METHOD)
+					.append("(\"toString\", java.lang.String.class, new java.lang.Class<?>[] {}, null, null, -1L),\n");
+		}
+		source.setLength(source.length() - 2);
+		source.append("));\n\n");
+
+		source.append("\tpublic ").append(simpleName).append("() {\n\t\tsuper();\n\t}\n\n");
+		source.append("\t@Override\n\tpublic java.lang.Class<").append(interfaceName)
+				.append("> getInterface() {\n\t\treturn ").append(interfaceName).append(".class;\n\t}\n\n");
+		source.append("\t@Override\n\tpublic java.lang.String getConfigurationPropertyNamePrefix() {\n\t\treturn ")
+				.append(literal(prefix)).append(";\n\t}\n\n");
+		source.append("\t@Override\n\tpublic java.util.List<").append(METHOD)
+				.append("> getMethods() {\n\t\treturn METHODS;\n\t}\n\n");
+		source.append("\t@Override\n\tpublic ").append(interfaceName).append(" newInstance(").append(VALUES)
+				.append(" values) {\n\t\treturn new Instance(values);\n\t}\n\n");
+
+		source.append("\t@SuppressWarnings(\"unchecked\")\n\tprivate static final class Instance implements ")
+				.append(interfaceName).append(" {\n");
+		source.append("\t\tprivate final ").append(VALUES).append(" values;\n\n");
+		source.append("\t\tInstance(").append(VALUES)
+				.append(" values) {\n\t\t\tsuper();\n\t\t\tthis.values = values;\n\t\t}\n");
+		for (int i = 0; i < methods.size(); i++) {
+			this.appendMethod(source, type, methods.get(i), i);
+		}
+		if (toStringIndex == methods.size()) {
+			source.append("\n\t\t@Override\n\t\tpublic java.lang.String toString() {\n")
+					.append("\t\t\treturn (java.lang.String) this.values.getValue(").append(toStringIndex)
+					.append(");\n\t\t}\n");
+		}
+		source.append("\t}\n}\n");
+
+		try (Writer writer = this.processingEnv.getFiler().createSourceFile(implementationName, type)
+				.openWriter()) {
+			writer.write(source.toString());
+			this.implementations.add(implementationName);
+		} catch (IOException e) {
+			this.processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+					"could not generate " + implementationName + ": " + e.getMessage(), type);
+		}
+	}
+
+	/**
+	 * @return instance methods of the interface and its super interfaces,
+	 *         each signature once
+	 */
+	private List<ExecutableElement> getMethods(TypeElement type) {
+		Map<String, ExecutableElement> methods = new LinkedHashMap<>();
+		for (ExecutableElement method : ElementFilter
+				.methodsIn(this.processingEnv.getElementUtils().getAllMembers(type))) {
+			if (method.getEnclosingElement().getKind() != ElementKind.INTERFACE
+					|| method.getModifiers().contains(Modifier.STATIC)
+					|| method.getModifiers().contains(Modifier.PRIVATE)) {
+				continue;
+			}
+			StringBuilder signature = new StringBuilder(method.getSimpleName());
+			for (TypeMirror parameterType : this.getMethodType(type, method).getParameterTypes()) {
+				signature.append(',').append(this.processingEnv.getTypeUtils().erasure(parameterType));
+			}
+			methods.putIfAbsent(signature.toString(), method);
+		}
+		return new ArrayList<>(methods.values());
+	}
+
+	/**
+	 * @return array expression of the erased parameter types
+	 */
+	private String parameterTypes(ExecutableType methodType) {
+		StringBuilder types = new StringBuilder("new java.lang.Class<?>[] {");
+		for (TypeMirror parameterType : methodType.getParameterTypes()) {
+			types.append(types.charAt(types.length() - 1) == '{' ? " " : ", ")
+					.append(this.processingEnv.getTypeUtils().erasure(parameterType)).append(".class");
+		}
+		return types.append(methodType.getParameterTypes().isEmpty() ? "}" : " }").toString();
+	}
+
+	private ExecutableType getMethodType(TypeElement type, ExecutableElement method) {
+		return (ExecutableType) this.processingEnv.getTypeUtils().asMemberOf((DeclaredType) type.asType(), method);
+	}
+
+	/**
+	 * @return value of the default annotation matching the return type as
+	 *         string, null if there is none
+	 */
+	private String getDefaultValue(ExecutableElement method, TypeMirror returnType) {
+		String typeName = returnType.getKind().isPrimitive() ? returnType.toString()
+				: this.processingEnv.getTypeUtils().erasure(returnType).toString();
+		switch (typeName) {
+		case "int":
+		case "java.lang.Integer":
+			DefaultIntValue defaultInt = method.getAnnotation(DefaultIntValue.class);
+			return defaultInt != null ? Integer.toString(defaultInt.value()) : null;
+		case "long":
+		case "java.lang.Long":
+			DefaultLongValue defaultLong = method.getAnnotation(DefaultLongValue.class);
+			return defaultLong != null ? Long.toString(defaultLong.value()) : null;
+		case "boolean":
+		case "java.lang.Boolean":
+			DefaultBooleanValue defaultBoolean = method.getAnnotation(DefaultBooleanValue.class);
+			return defaultBoolean != null ? Boolean.toString(defaultBoolean.value()) : null;
+		default:
+			DefaultStringValue defaultString = method.getAnnotation(DefaultStringValue.class);
+			return defaultString != null ? defaultString.value() : null;
+		}
+	}
+
+	private void appendMethod(StringBuilder source, TypeElement type, ExecutableElement method, int index) {
+		ExecutableType methodType = this.getMethodType(type, method);
+		TypeMirror returnType = methodType.getReturnType();
+		List<? extends TypeMirror> parameterTypes = methodType.getParameterTypes();
+
+		source.append("\n\t\t@Override\n\t\tpublic ");
+		if (!method.getTypeParameters().isEmpty()) {
+			source.append('<');
+			for (TypeParameterElement typeParameter : method.getTypeParameters()) {
+				if (source.charAt(source.length() - 1) != '<') {
+					source.append(", ");
+				}
+				source.append(typeParameter.getSimpleName());
+				String separator = " extends ";
+				for (TypeMirror bound : typeParameter.getBounds()) {
+					if (!"java.lang.Object".equals(bound.toString())) {
+						source.append(separator).append(bound);
+						separator = " & ";
+					}
+				}
+			}
+			source.append("> ");
+		}
+		source.append(returnType).append(' ').append(method.getSimpleName()).append('(');
+		StringBuilder args = new StringBuilder();
+		for (int i = 0; i < parameterTypes.size(); i++) {
+			TypeMirror parameterType = parameterTypes.get(i);
+			if (i > 0) {
+				source.append(", ");
+				args.append(", ");
+			}
+			if (method.isVarArgs() && i == parameterTypes.size() - 1) {
+				source.append(((ArrayType) parameterType).getComponentType()).append("...");
+			} else {
+				source.append(parameterType);
+			}
+			source.append(" arg").append(i);
+			args.append("arg").append(i);
+		}
+		source.append(')');
+		if (!methodType.getThrownTypes().isEmpty()) {
+			source.append(" throws ");
+			for (int i = 0; i < methodType.getThrownTypes().size(); i++) {
+				source.append(i > 0 ? ", " : "").append(methodType.getThrownTypes().get(i));
+			}
+		}
+		source.append(" {\n\t\t\t");
+
+		String arguments = parameterTypes.isEmpty() ? "null" : "new java.lang.Object[] { " + args + " }";
+		TypeKind kind = returnType.getKind();
+		if (kind == TypeKind.VOID) {
+			source.append("this.values.invoke(").append(index).append(", ").append(arguments).append(");");
+		} else if (parameterTypes.isEmpty() && kind == TypeKind.INT) {
+			source.append("return this.values.getInt(").append(index).append(");");
+		} else if (parameterTypes.isEmpty() && kind == TypeKind.LONG) {
+			source.append("return this.values.getLong(").append(index).append(");");
+		} else if (parameterTypes.isEmpty() && kind == TypeKind.BOOLEAN) {
+			source.append("return this.values.getBoolean(").append(index).append(");");
+		} else if (kind.isPrimitive()) {
+			source.append("return (")
+					.append(this.processingEnv.getTypeUtils().boxedClass((PrimitiveType) returnType).getQualifiedName())
+					.append(") this.values.invoke(").append(index).append(", ").append(arguments).append(");");
+		} else if (parameterTypes.isEmpty()) {
+			source.append("return (").append(returnType).append(") this.values.getValue(").append(index)
+					.append(");");
+		} else {
+			source.append("return (").append(returnType).append(") this.values.invoke(").append(index)
+					.append(", ").append(arguments).append(");");
+		}
+		source.append("\n\t\t}\n");
+	}
+
+	private String getPackageName(TypeElement type) {
+		Element element = type;
+		while (!(element instanceof PackageElement)) {
+			element = element.getEnclosingElement();
+		}
+		return ((PackageElement) element).getQualifiedName().toString();
+	}
+
+	/**
+	 * checks an entry of an existing index, implementations of interfaces
+	 * that were deleted or renamed since are dropped
+	 *
+	 * @param implementationName
+	 *            name of a generated implementation
+	 * @return true if the implementation and its interface still exist
+	 */
+	private boolean isImplementation(String implementationName) {
+		TypeElement implementation = this.processingEnv.getElementUtils().getTypeElement(implementationName);
+		if (implementation == null) {
+			return false;
+		}
+		for (TypeMirror implemented : implementation.getInterfaces()) {
+			if (implemented.getKind() != TypeKind.DECLARED) {
+				continue;
+			}
+			DeclaredType declared = (DeclaredType) implemented;
+			if (((TypeElement) declared.asElement()).getQualifiedName()
+					.contentEquals(ConfigurationImplementation.class.getCanonicalName())) {
+				List<? extends TypeMirror> arguments = declared.getTypeArguments();
+				return arguments.size() == 1 && arguments.get(0).getKind() == TypeKind.DECLARED;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * writes the index, entries of earlier incremental compilations are kept
+	 * if their implementation still exists
+	 */
+	private void writeIndex() {
+		Set<String> entries = new TreeSet<>(this.implementations);
+		try {
+			FileObject existing = this.processingEnv.getFiler().getResource(StandardLocation.CLASS_OUTPUT, "",
+					INDEX);
+			try (BufferedReader reader = new BufferedReader(
+					new InputStreamReader(existing.openInputStream(), StandardCharsets.UTF_8))) {
+				for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+					String entry = line.trim();
+					if (!entry.isEmpty() && !entries.contains(entry) && this.isImplementation(entry)) {
+						entries.add(entry);
+					}
+				}
+			}
+		} catch (IOException | IllegalArgumentException e) {
+			// no index yet
+		}
+		try (Writer writer = this.processingEnv.getFiler()
+				.createResource(StandardLocation.CLASS_OUTPUT, "", INDEX).openWriter()) {
+			for (String entry : entries) {
+				writer.write(entry);
+				writer.write('\n');
+			}
+		} catch (IOException e) {
+			this.processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+					"could not write " + INDEX + ": " + e.getMessage());
+		}
+	}
+
+	/**
+	 * @return java literal of the string, <code>null</code> for null
+	 */
+	static String literal(String value) {
+		if (value == null) {
+			return "null";
+		}
+		StringBuilder literal = new StringBuilder(value.length() + 2).append('"');
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			switch (c) {
+			case '"':
+				literal.append("\\\"");
+				break;
+			case '\\':
+				literal.append("\\\\");
+				break;
+			case '\n':
+				literal.append("\\n");
+				break;
+			case '\r':
+				literal.append("\\r");
+				break;
+			case '\t':
+				literal.append("\\t");
+				break;
+			default:
+				if (c < 0x20 || c > 0x7e) {
+					literal.append(String.format("\\u%04x", (int) c));
+				} else {
+					literal.append(c);
+				}
+			}
+		}
+		return literal.append('"').toString();
+	}
+}
@@ -19,22 +19,76 @@
  */
 package de.pa2.commons.configuration.resolvers;
 
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * property resolver that aggregates other property resolvers
  */
-public class AggregatedPropertyResolver implements PropertyResolver {
-    private List<PropertyResolver> resolvers = new LinkedList<>();
+public class AggregatedPropertyResolver implements ObservablePropertyResolver {
+    private final List<PropertyResolver> resolvers = new ArrayList<>();
+
+    /**
+     * resolvers probed on lookup in order of precedence, in indexed mode
+     * consecutive {@link EnumerablePropertyResolver}s are merged into a single
+     * {@link IndexedResolvers}
+     */
+    private volatile PropertyResolver[] segments = new PropertyResolver[0];
+
+    /**
+     * merge enumerable resolvers into one index
+     */
+    private final boolean indexed;
+
+    private final List<ResolverChangeListener> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * updates the indexes and forwards changes of observable layers to the
+     * own listeners
+     */
+    private final ResolverChangeListener layerListener = new ResolverChangeListener() {
+        @Override
+        public void propertiesChanged(Set<String> propertyNames) {
+            for (PropertyResolver segment : AggregatedPropertyResolver.this.segments) {
+                if (segment instanceof IndexedResolvers) {
+                    ((IndexedResolvers) segment).update(propertyNames);
+                }
+            }
+            for (ResolverChangeListener listener : AggregatedPropertyResolver.this.listeners) {
+                listener.propertiesChanged(propertyNames);
+            }
+        }
+    };
 
     private final String illegalValue = UUID.randomUUID().toString();
 
+    public AggregatedPropertyResolver() {
+        this(false);
+    }
+
+    /**
+     * @param indexed
+     *            true to merge consecutive {@link EnumerablePropertyResolver}s
+     *            into one precedence resolved index, so that a lookup needs a
+     *            single probe for them. Other resolvers, e.g. system
+     *            properties, are probed as before.
+     */
+    public AggregatedPropertyResolver(boolean indexed) {
+        super();
+        this.indexed = indexed;
+    }
+
     @Override
     public String getProperty(String propertyName, String defaultValue) {
 
-        for (PropertyResolver resolver : this.resolvers) {
+        for (PropertyResolver resolver : this.segments) {
             String value = resolver.getProperty(propertyName, this.illegalValue);
             if ( ! this.illegalValue.equals(value)) {
                 return value;
@@ -43,8 +97,144 @@ public class AggregatedPropertyResolver implements PropertyResolver {
         return defaultValue;
     }
 
-    public void add(PropertyResolver resolver) {
+    /**
+     * asks every layer once for the properties not found in the layers of
+     * higher precedence
+     */
+    @Override
+    public Map<String, String> getProperties(Collection<String> propertyNames) {
+        Map<String, String> values = new HashMap<>();
+        Collection<String> remaining = propertyNames;
+        for (PropertyResolver resolver : this.segments) {
+            if (remaining.isEmpty()) {
+                break;
+            }
+            Map<String, String> found = resolver.getProperties(remaining);
+            if (!found.isEmpty()) {
+                values.putAll(found);
+                List<String> missing = new ArrayList<>(remaining.size());
+                for (String propertyName : remaining) {
+                    if (!found.containsKey(propertyName)) {
+                        missing.add(propertyName);
+                    }
+                }
+                remaining = missing;
+            }
+        }
+        return values;
+    }
+
+    public synchronized void add(PropertyResolver resolver) {
         this.resolvers.add(resolver);
+        if (resolver instanceof ObservablePropertyResolver) {
+            ((ObservablePropertyResolver) resolver).addChangeListener(this.layerListener);
+        }
+        this.segments = this.buildSegments();
+        if (resolver instanceof LazyPropertyResolver && !((LazyPropertyResolver) resolver).isLoaded()) {
+            // the loaded resolver replaces the layer, e.g. to join the index
+            ((LazyPropertyResolver) resolver).whenLoaded().thenRun(this::rebuildSegments);
+        }
+    }
+
+    private synchronized void rebuildSegments() {
+        this.segments = this.buildSegments();
+    }
+
+    /**
+     * @return the aggregated resolvers in order of precedence
+     */
+    public synchronized List<PropertyResolver> getResolvers() {
+        return new ArrayList<>(this.resolvers);
+    }
+
+    private PropertyResolver[] buildSegments() {
+        List<PropertyResolver> result = new ArrayList<>();
+        List<EnumerablePropertyResolver> pending = new ArrayList<>();
+        for (PropertyResolver layer : this.resolvers) {
+            PropertyResolver resolver = layer;
+            if (layer instanceof LazyPropertyResolver && ((LazyPropertyResolver) layer).isLoaded()) {
+                resolver = ((LazyPropertyResolver) layer).getResolver();
+                if (resolver == null) {
+                    // the source does not exist
+                    continue;
+                }
+            }
+            if (this.indexed && resolver instanceof EnumerablePropertyResolver) {
+                pending.add((EnumerablePropertyResolver) resolver);
+            } else {
+                addSegment(result, pending);
+                result.add(resolver);
+            }
+        }
+        addSegment(result, pending);
+        return result.toArray(new PropertyResolver[result.size()]);
+    }
+
+    private static void addSegment(List<PropertyResolver> segments, List<EnumerablePropertyResolver> pending) {
+        if (pending.size() == 1) {
+            segments.add(pending.get(0));
+        } else if (pending.size() > 1) {
+            segments.add(new IndexedResolvers(new ArrayList<>(pending)));
+        }
+        pending.clear();
+    }
+
+    @Override
+    public void addChangeListener(ResolverChangeListener listener) {
+        this.listeners.add(listener);
+    }
+
+    @Override
+    public void removeChangeListener(ResolverChangeListener listener) {
+        this.listeners.remove(listener);
+    }
+
+    /**
+     * consecutive enumerable resolvers merged into one index, each property
+     * holds the value of the resolver with the highest precedence
+     */
+    private static final class IndexedResolvers implements PropertyResolver {
+        private final List<EnumerablePropertyResolver> resolvers;
+
+        private final Map<String, String> index = new ConcurrentHashMap<>();
+
+        IndexedResolvers(List<EnumerablePropertyResolver> resolvers) {
+            super();
+            this.resolvers = resolvers;
+            // lowest precedence first, so that higher ones overwrite
+            for (int i = resolvers.size() - 1; i >= 0; i--) {
+                this.index.putAll(resolvers.get(i).getAllProperties());
+            }
+        }
+
+        /**
+         * resolves the changed properties again, other entries are kept
+         *
+         * @param propertyNames
+         *            names of changed properties
+         */
+        synchronized void update(Set<String> propertyNames) {
+            for (String propertyName : propertyNames) {
+                String value = null;
+                for (EnumerablePropertyResolver resolver : this.resolvers) {
+                    value = resolver.getProperty(propertyName, null);
+                    if (value != null) {
+                        break;
+                    }
+                }
+                if (value != null) {
+                    this.index.put(propertyName, value);
+                } else {
+                    this.index.remove(propertyName);
+                }
+            }
+        }
+
+        @Override
+        public String getProperty(String propertyName, String defaultValue) {
+            String value = this.index.get(propertyName);
+            return value != null ? value : defaultValue;
+        }
     }
 
 }
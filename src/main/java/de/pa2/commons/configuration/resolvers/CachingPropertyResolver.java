@@ -0,0 +1,345 @@
+/*
+ * copyright (C) 2008-2019 Patrick Stricker
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA
+ *
+ * 	Patrick Stricker - http://pa2.de
+ */
+package de.pa2.commons.configuration.resolvers;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * caches the values and misses of a slow resolver. Concurrent lookups of a
+ * key that is not cached wait for a single load. Expired values are served
+ * further while they are refreshed in the background. When the cache grows
+ * beyond its maximum size the least recently read entries are evicted.
+ */
+public class CachingPropertyResolver implements ObservablePropertyResolver {
+	private static final Logger LOG = LoggerFactory.getLogger(CachingPropertyResolver.class);
+
+	/**
+	 * granularity of the read times used for eviction, reads within the same
+	 * tick do not write to the entry
+	 */
+	static final long RECENCY_TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+	private final PropertyResolver resolver;
+
+	/**
+	 * time to live of entries without an own one, in nanoseconds
+	 */
+	private final long timeToLive;
+
+	/**
+	 * times to live by property name, in nanoseconds
+	 */
+	private final Map<String, Long> timesToLive = new ConcurrentHashMap<>();
+
+	private final int maximumSize;
+
+	private final Executor refreshExecutor;
+
+	private final LongSupplier ticker;
+
+	private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+	/**
+	 * first loads of keys that are not cached yet
+	 */
+	private final Map<String, Load> loads = new ConcurrentHashMap<>();
+
+	private final ReentrantLock evictionLock = new ReentrantLock();
+
+	private final List<ResolverChangeListener> listeners = new CopyOnWriteArrayList<>();
+
+	/**
+	 * @param resolver
+	 *            resolver to cache
+	 * @param timeToLive
+	 *            time after which a value is refreshed
+	 * @param unit
+	 *            unit of the time to live
+	 * @param maximumSize
+	 *            maximum number of cached keys
+	 */
+	public CachingPropertyResolver(PropertyResolver resolver, long timeToLive, TimeUnit unit, int maximumSize) {
+		this(resolver, timeToLive, unit, maximumSize, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * @param refreshExecutor
+	 *            executor refreshing expired values
+	 */
+	public CachingPropertyResolver(PropertyResolver resolver, long timeToLive, TimeUnit unit, int maximumSize,
+			Executor refreshExecutor) {
+		this(resolver, timeToLive, unit, maximumSize, refreshExecutor, System::nanoTime);
+	}
+
+	CachingPropertyResolver(PropertyResolver resolver, long timeToLive, TimeUnit unit, int maximumSize,
+			Executor refreshExecutor, LongSupplier ticker) {
+		super();
+		if (maximumSize < 1) {
+			throw new IllegalArgumentException("maximum size must be positive: " + maximumSize);
+		}
+		this.resolver = resolver;
+		this.timeToLive = unit.toNanos(timeToLive);
+		this.maximumSize = maximumSize;
+		this.refreshExecutor = refreshExecutor;
+		this.ticker = ticker;
+		if (resolver instanceof ObservablePropertyResolver) {
+			// changed values are loaded again on the next lookup
+			((ObservablePropertyResolver) resolver).addChangeListener(new ResolverChangeListener() {
+				@Override
+				public void propertiesChanged(Set<String> propertyNames) {
+					CachingPropertyResolver.this.invalidate(propertyNames);
+				}
+			});
+		}
+	}
+
+	/**
+	 * overrides the time to live of a single property, e.g. from
+	 * {@link de.pa2.commons.configuration.TimeToLive}
+	 *
+	 * @param propertyName
+	 *            name of the property
+	 * @param timeToLive
+	 *            time after which the value is refreshed
+	 * @param unit
+	 *            unit of the time to live
+	 */
+	public void setTimeToLive(String propertyName, long timeToLive, TimeUnit unit) {
+		this.timesToLive.put(propertyName, unit.toNanos(timeToLive));
+	}
+
+	/**
+	 * @return number of cached keys
+	 */
+	public int size() {
+		return this.entries.size();
+	}
+
+	/**
+	 * removes cached values, they are loaded again on the next lookup.
+	 * Listeners are notified about the removed properties.
+	 *
+	 * @param propertyNames
+	 *            names of the properties
+	 */
+	public void invalidate(Set<String> propertyNames) {
+		for (String propertyName : propertyNames) {
+			// marked before the entry is removed, see load()
+			Load load = this.loads.get(propertyName);
+			if (load != null) {
+				load.invalidated = true;
+			}
+			this.entries.remove(propertyName);
+		}
+		Set<String> unmodifiable = Collections.unmodifiableSet(propertyNames);
+		for (ResolverChangeListener listener : this.listeners) {
+			listener.propertiesChanged(unmodifiable);
+		}
+	}
+
+	@Override
+	public String getProperty(String propertyName, String defaultValue) {
+		Entry entry = this.entries.get(propertyName);
+		long now = this.ticker.getAsLong();
+		if (entry == null) {
+			entry = this.load(propertyName);
+		} else {
+			if (now - entry.lastRead >= RECENCY_TICK_NANOS) {
+				entry.lastRead = now;
+			}
+			if (now - entry.expires >= 0) {
+				this.refresh(propertyName, entry);
+			}
+		}
+		return entry.value != null ? entry.value : defaultValue;
+	}
+
+	/**
+	 * loads a key that is not cached, concurrent callers wait for the same
+	 * load. A load that was invalidated while running returns its value but
+	 * does not leave it in the cache.
+	 */
+	private Entry load(String propertyName) {
+		Load load = new Load();
+		Load running = this.loads.putIfAbsent(propertyName, load);
+		if (running != null) {
+			try {
+				return running.join();
+			} catch (CompletionException e) {
+				if (e.getCause() instanceof Error) {
+					throw (Error) e.getCause();
+				}
+				throw (RuntimeException) e.getCause();
+			}
+		}
+		try {
+			Entry entry = this.entries.get(propertyName);
+			if (entry == null) {
+				entry = this.newEntry(propertyName);
+				this.entries.put(propertyName, entry);
+				if (load.invalidated) {
+					this.entries.remove(propertyName, entry);
+				} else if (this.entries.size() > this.maximumSize) {
+					this.evict();
+				}
+			}
+			load.complete(entry);
+			return entry;
+		} catch (RuntimeException | Error e) {
+			load.completeExceptionally(e);
+			throw e;
+		} finally {
+			this.loads.remove(propertyName, load);
+		}
+	}
+
+	/**
+	 * reloads an expired entry in the background, readers get the old value
+	 * until the new one is loaded. Listeners are notified if the value
+	 * changed.
+	 */
+	private void refresh(String propertyName, Entry entry) {
+		if (!entry.refreshing.compareAndSet(false, true)) {
+			return;
+		}
+		try {
+			this.refreshExecutor.execute(() -> {
+				try {
+					Entry refreshed = this.newEntry(propertyName);
+					refreshed.lastRead = entry.lastRead;
+					// not put back if the entry was evicted or invalidated meanwhile
+					if (this.entries.replace(propertyName, entry, refreshed)
+							&& !Objects.equals(entry.value, refreshed.value)) {
+						Set<String> changed = Collections.singleton(propertyName);
+						for (ResolverChangeListener listener : this.listeners) {
+							listener.propertiesChanged(changed);
+						}
+					}
+				} catch (RuntimeException e) {
+					LOG.warn("could not refresh {}, keeping the cached value", propertyName, e);
+					entry.refreshing.set(false);
+				}
+			});
+		} catch (RuntimeException e) {
+			// rejected, the next lookup tries again
+			entry.refreshing.set(false);
+		}
+	}
+
+	private Entry newEntry(String propertyName) {
+		String value = this.resolver.getProperty(propertyName, null);
+		long now = this.ticker.getAsLong();
+		Long timeToLive = this.timesToLive.get(propertyName);
+		return new Entry(value, now + (timeToLive != null ? timeToLive.longValue() : this.timeToLive), now);
+	}
+
+	/**
+	 * removes the least recently read tenth of the entries at once, so that
+	 * the cost of sorting is shared by many insertions
+	 */
+	private void evict() {
+		if (!this.evictionLock.tryLock()) {
+			return;
+		}
+		try {
+			int excess = this.entries.size() - this.maximumSize;
+			if (excess <= 0) {
+				return;
+			}
+			List<Map.Entry<String, Entry>> candidates = new ArrayList<>(this.entries.entrySet());
+			candidates.sort((a, b) -> Long.compare(a.getValue().lastRead, b.getValue().lastRead));
+			int count = Math.min(candidates.size(), excess + this.maximumSize / 10);
+			for (int i = 0; i < count; i++) {
+				Map.Entry<String, Entry> candidate = candidates.get(i);
+				this.entries.remove(candidate.getKey(), candidate.getValue());
+			}
+		} finally {
+			this.evictionLock.unlock();
+		}
+	}
+
+	@Override
+	public void addChangeListener(ResolverChangeListener listener) {
+		this.listeners.add(listener);
+	}
+
+	@Override
+	public void removeChangeListener(ResolverChangeListener listener) {
+		this.listeners.remove(listener);
+	}
+
+	/**
+	 * running first load of a key
+	 */
+	private static final class Load extends CompletableFuture<Entry> {
+		/**
+		 * set if the key is invalidated while it is loaded
+		 */
+		volatile boolean invalidated;
+	}
+
+	/**
+	 * cached value or miss
+	 */
+	private static final class Entry {
+		/**
+		 * value, null if the property is not set
+		 */
+		final String value;
+
+		/**
+		 * ticker value at which the entry expires
+		 */
+		final long expires;
+
+		/**
+		 * ticker value of the last read, used for eviction. Only updated once
+		 * per {@link CachingPropertyResolver#RECENCY_TICK_NANOS}.
+		 */
+		volatile long lastRead;
+
+		final AtomicBoolean refreshing = new AtomicBoolean();
+
+		Entry(String value, long expires, long lastRead) {
+			super();
+			this.value = value;
+			this.expires = expires;
+			this.lastRead = lastRead;
+		}
+	}
+}
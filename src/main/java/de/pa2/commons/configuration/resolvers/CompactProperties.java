@@ -0,0 +1,88 @@
+/*
+ * copyright (C) 2008-2019 Patrick Stricker
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA
+ *
+ * 	Patrick Stricker - http://pa2.de
+ */
+package de.pa2.commons.configuration.resolvers;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.function.BiConsumer;
+
+/**
+ * immutable properties stored as two parallel arrays of names and values,
+ * instead of an entry object per property. Names are the canonical instances
+ * from {@link PropertyKeys}, equal values are stored once.
+ */
+final class CompactProperties {
+	private final String[] names;
+
+	private final String[] values;
+
+	private final int size;
+
+	private CompactProperties(Properties properties) {
+		super();
+		this.size = properties.size();
+		int capacity = Integer.highestOneBit(Math.max(this.size * 4 / 3, 1)) * 2;
+		this.names = new String[capacity];
+		this.values = new String[capacity];
+		Map<String, String> distinctValues = new HashMap<>();
+		for (String name : properties.stringPropertyNames()) {
+			String value = properties.getProperty(name);
+			String shared = distinctValues.putIfAbsent(value, value);
+			int mask = capacity - 1;
+			int i = PropertyKeys.spread(name.hashCode()) & mask;
+			while (this.names[i] != null) {
+				i = (i + 1) & mask;
+			}
+			this.names[i] = PropertyKeys.canonical(name);
+			this.values[i] = shared != null ? shared : value;
+		}
+	}
+
+	static CompactProperties of(Properties properties) {
+		return new CompactProperties(properties);
+	}
+
+	/**
+	 * @return value of the property, null if it is not set
+	 */
+	String get(String name) {
+		int mask = this.names.length - 1;
+		int i = PropertyKeys.spread(name.hashCode()) & mask;
+		for (String candidate; (candidate = this.names[i]) != null; i = (i + 1) & mask) {
+			if (candidate == name || candidate.equals(name)) {
+				return this.values[i];
+			}
+		}
+		return null;
+	}
+
+	int size() {
+		return this.size;
+	}
+
+	void forEach(BiConsumer<String, String> action) {
+		for (int i = 0; i < this.names.length; i++) {
+			if (this.names[i] != null) {
+				action.accept(this.names[i], this.values[i]);
+			}
+		}
+	}
+}
@@ -0,0 +1,36 @@
+/*
+ * copyright (C) 2008-2019 Patrick Stricker
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA
+ *
+ * 	Patrick Stricker - http://pa2.de
+ */
+package de.pa2.commons.configuration.resolvers;
+
+import java.util.Map;
+
+/**
+ * property resolver that knows all of its properties. Its values only change
+ * when it reports the change as {@link ObservablePropertyResolver}, so they
+ * can be merged into an index.
+ */
+public interface EnumerablePropertyResolver extends PropertyResolver {
+
+	/**
+	 * @return all properties by name
+	 */
+	Map<String, String> getAllProperties();
+
+}
@@ -19,20 +19,54 @@
  */
 package de.pa2.commons.configuration.resolvers;
 
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 /**
  * property resolver that uses env variables
  */
 public class EnvironmentResolver implements PropertyResolver {
+    /**
+     * marks property names without env variable
+     */
+    private static final Object MISSING = new Object();
+
+    /**
+     * env variables, read once since they do not change within the process
+     */
+    private final Map<String, String> environment;
+
+    /**
+     * values by property name or {@link #MISSING}, so that the name is
+     * translated only once
+     */
+    private final Map<String, Object> values = new ConcurrentHashMap<>();
+
+    public EnvironmentResolver() {
+        this(System.getenv());
+    }
+
+    /**
+     * @param environment
+     *            env variables to use instead of the ones of the process
+     */
+    public EnvironmentResolver(Map<String, String> environment) {
+        super();
+        this.environment = new HashMap<>(environment);
+    }
 
     @Override
     public String getProperty(String propertyName, String defaultValue) {
-        // foo.bar looks up FOO_BAR
-        String envName = propertyName.replaceAll("\\.", "_").toUpperCase();
-        if (System.getenv().containsKey(envName)) {
-            return System.getenv(envName);
-        } else {
-            return defaultValue;
+        Object value = this.values.get(propertyName);
+        if (value == null) {
+            // foo.bar looks up FOO_BAR
+            String envName = propertyName.replace('.', '_').toUpperCase();
+            String envValue = this.environment.get(envName);
+            value = envValue != null ? envValue : MISSING;
+            this.values.put(propertyName, value);
         }
+        return value != MISSING ? (String) value : defaultValue;
     }
 
 }
@@ -0,0 +1,215 @@
+/*
+ * copyright (C) 2008-2019 Patrick Stricker
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA
+ *
+ * 	Patrick Stricker - http://pa2.de
+ */
+package de.pa2.commons.configuration.resolvers;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * layer whose resolver is created in the background, e.g. because its source
+ * is read from a slow file system. Loading starts with {@link #load()} or
+ * with the first lookup, lookups block until the layer is loaded. Other
+ * layers of an {@link AggregatedPropertyResolver} are not blocked. A layer
+ * whose loader fails is logged and treated like a missing source.
+ */
+public class LazyPropertyResolver implements ObservablePropertyResolver {
+	private static final Logger LOG = LoggerFactory.getLogger(LazyPropertyResolver.class);
+
+	/**
+	 * marks a layer whose source does not exist
+	 */
+	private static final PropertyResolver ABSENT = (propertyName, defaultValue) -> defaultValue;
+
+	private final String name;
+
+	private final Supplier<? extends PropertyResolver> loader;
+
+	private final Executor executor;
+
+	private final AtomicBoolean started = new AtomicBoolean();
+
+	private final CompletableFuture<PropertyResolver> loaded = new CompletableFuture<>();
+
+	/**
+	 * loaded resolver, null while loading
+	 */
+	private volatile PropertyResolver resolver = null;
+
+	private final List<ResolverChangeListener> listeners = new CopyOnWriteArrayList<>();
+
+	/**
+	 * daemon threads running loaders that block on I/O, created on first use
+	 * and kept out of the common pool
+	 */
+	private static final class Loaders {
+		static final Executor EXECUTOR = Executors.newCachedThreadPool(runnable -> {
+			Thread thread = new Thread(runnable, "configuration-loader");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * @param name
+	 *            name of the layer, e.g. the file name
+	 * @param loader
+	 *            creates the resolver, may return null if the source does not
+	 *            exist
+	 */
+	public LazyPropertyResolver(String name, Supplier<? extends PropertyResolver> loader) {
+		this(name, loader, Loaders.EXECUTOR);
+	}
+
+	/**
+	 * @param executor
+	 *            executor running the loader
+	 */
+	public LazyPropertyResolver(String name, Supplier<? extends PropertyResolver> loader, Executor executor) {
+		super();
+		this.name = name;
+		this.loader = loader;
+		this.executor = executor;
+	}
+
+	public String getName() {
+		return this.name;
+	}
+
+	/**
+	 * starts loading in the background unless it was started before
+	 *
+	 * @return future completed with the loaded resolver, see
+	 *         {@link #getResolver()}
+	 */
+	public CompletableFuture<PropertyResolver> load() {
+		if (this.started.compareAndSet(false, true)) {
+			try {
+				this.executor.execute(this::run);
+			} catch (RejectedExecutionException e) {
+				// e.g. shut down, the caller loads the layer
+				this.run();
+			}
+		}
+		return this.loaded;
+	}
+
+	/**
+	 * @return future completed when the layer is loaded, loading is not
+	 *         started
+	 */
+	public CompletableFuture<PropertyResolver> whenLoaded() {
+		return this.loaded;
+	}
+
+	private void run() {
+		try {
+			PropertyResolver result = this.loader.get();
+			if (result == null) {
+				result = ABSENT;
+			} else if (result instanceof ObservablePropertyResolver) {
+				((ObservablePropertyResolver) result).addChangeListener(new ResolverChangeListener() {
+					@Override
+					public void propertiesChanged(Set<String> propertyNames) {
+						for (ResolverChangeListener listener : LazyPropertyResolver.this.listeners) {
+							listener.propertiesChanged(propertyNames);
+						}
+					}
+				});
+			}
+			this.resolver = result;
+			this.loaded.complete(result == ABSENT ? null : result);
+		} catch (RuntimeException e) {
+			LOG.error("could not load {}, it is skipped", this.name, e);
+			this.resolver = ABSENT;
+			this.loaded.complete(null);
+		} catch (Error e) {
+			this.resolver = ABSENT;
+			this.loaded.complete(null);
+			throw e;
+		}
+	}
+
+	/**
+	 * @return true once the loader has finished
+	 */
+	public boolean isLoaded() {
+		return this.resolver != null;
+	}
+
+	/**
+	 * starts loading if necessary and waits for it
+	 *
+	 * @return loaded resolver, null if the source does not exist or could
+	 *         not be loaded
+	 */
+	public PropertyResolver getResolver() {
+		PropertyResolver result = this.await();
+		return result != ABSENT ? result : null;
+	}
+
+	private PropertyResolver await() {
+		PropertyResolver result = this.resolver;
+		if (result == null) {
+			// never completed exceptionally, failed loads are absent
+			this.load().join();
+			result = this.resolver;
+		}
+		return result;
+	}
+
+	@Override
+	public String getProperty(String propertyName, String defaultValue) {
+		return this.await().getProperty(propertyName, defaultValue);
+	}
+
+	@Override
+	public Map<String, String> getProperties(Collection<String> propertyNames) {
+		PropertyResolver result = this.await();
+		return result != ABSENT ? result.getProperties(propertyNames) : Collections.emptyMap();
+	}
+
+	@Override
+	public void addChangeListener(ResolverChangeListener listener) {
+		this.listeners.add(listener);
+	}
+
+	@Override
+	public void removeChangeListener(ResolverChangeListener listener) {
+		this.listeners.remove(listener);
+	}
+
+	@Override
+	public String toString() {
+		return "LazyPropertyResolver(" + this.name + ")";
+	}
+}
@@ -0,0 +1,223 @@
+/*
+ * copyright (C) 2008-2019 Patrick Stricker
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA
+ *
+ * 	Patrick Stricker - http://pa2.de
+ */
+package de.pa2.commons.configuration.resolvers;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * writes properties in the binary format read by
+ * {@link MappedPropertyResolver}.
+ * <p>
+ * The file starts with a header (magic, version, number of entries, restart
+ * interval, number of restart points), followed by the offsets of the restart
+ * points and the entries sorted by the UTF-8 bytes of their keys. Every entry
+ * stores the length of the prefix it shares with the previous key, the length
+ * of the rest of the key and of the value as varints, followed by the rest of
+ * the key and the value. Every {@link #RESTART_INTERVAL}th entry stores its
+ * whole key, so a lookup only has to scan the entries between two restart
+ * points.
+ */
+public final class MappedPropertyFile {
+	static final int MAGIC = 0x50413243;
+
+	static final int VERSION = 1;
+
+	static final int HEADER_SIZE = 5 * Integer.BYTES;
+
+	static final int RESTART_INTERVAL = 16;
+
+	private MappedPropertyFile() {
+		super();
+	}
+
+	/**
+	 * converts a properties file
+	 *
+	 * @param properties
+	 *            properties file to read
+	 * @param target
+	 *            binary file to write, is replaced atomically
+	 */
+	public static void convert(Path properties, Path target) throws IOException {
+		Properties loaded = new Properties();
+		try (InputStream in = Files.newInputStream(properties)) {
+			loaded.load(in);
+		}
+		String[][] entries = new String[loaded.size()][];
+		int i = 0;
+		for (String name : loaded.stringPropertyNames()) {
+			entries[i++] = new String[] { name, loaded.getProperty(name) };
+		}
+		write(entries, target);
+	}
+
+	/**
+	 * writes properties
+	 *
+	 * @param properties
+	 *            properties by name
+	 * @param target
+	 *            binary file to write, is replaced atomically
+	 */
+	public static void write(Map<String, String> properties, Path target) throws IOException {
+		String[][] entries = new String[properties.size()][];
+		int i = 0;
+		for (Map.Entry<String, String> entry : properties.entrySet()) {
+			entries[i++] = new String[] { entry.getKey(), entry.getValue() };
+		}
+		write(entries, target);
+	}
+
+	private static void write(String[][] entries, Path target) throws IOException {
+		byte[][] keys = new byte[entries.length][];
+		byte[][] values = new byte[entries.length][];
+		Integer[] order = new Integer[entries.length];
+		for (int i = 0; i < entries.length; i++) {
+			keys[i] = entries[i][0].getBytes(StandardCharsets.UTF_8);
+			values[i] = entries[i][1].getBytes(StandardCharsets.UTF_8);
+			order[i] = i;
+		}
+		Arrays.sort(order, (a, b) -> compare(keys[a], keys[b]));
+
+		// the entries are written to a temporary file and moved over the
+		// target, readers that still map the old file are not affected
+		Path absolute = target.toAbsolutePath();
+		Path temp = Files.createTempFile(absolute.getParent(), absolute.getFileName().toString(), ".tmp");
+		try {
+			try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+				int restartCount = (entries.length + RESTART_INTERVAL - 1) / RESTART_INTERVAL;
+				out.writeInt(MAGIC);
+				out.writeInt(VERSION);
+				out.writeInt(entries.length);
+				out.writeInt(RESTART_INTERVAL);
+				out.writeInt(restartCount);
+
+				List<Integer> restarts = new ArrayList<>(restartCount);
+				long offset = 0;
+				byte[] previous = new byte[0];
+				for (int i = 0; i < order.length; i++) {
+					byte[] key = keys[order[i]];
+					int shared = 0;
+					if (i % RESTART_INTERVAL == 0) {
+						restarts.add((int) offset);
+					} else {
+						if (compare(previous, key) == 0) {
+							throw new IllegalArgumentException("duplicate key: " + entries[order[i]][0]);
+						}
+						shared = sharedPrefix(previous, key);
+					}
+					byte[] value = values[order[i]];
+					offset += varintSize(shared) + varintSize(key.length - shared) + varintSize(value.length);
+					offset += key.length - shared + value.length;
+					previous = key;
+				}
+				if (HEADER_SIZE + (long) restartCount * Integer.BYTES + offset > Integer.MAX_VALUE) {
+					// a single mapped buffer is limited to 2 GB
+					throw new IllegalArgumentException("properties exceed 2 GB");
+				}
+				for (int restart : restarts) {
+					out.writeInt(restart);
+				}
+
+				previous = new byte[0];
+				for (int i = 0; i < order.length; i++) {
+					byte[] key = keys[order[i]];
+					byte[] value = values[order[i]];
+					int shared = i % RESTART_INTERVAL == 0 ? 0 : sharedPrefix(previous, key);
+					writeVarint(out, shared);
+					writeVarint(out, key.length - shared);
+					writeVarint(out, value.length);
+					out.write(key, shared, key.length - shared);
+					out.write(value);
+					previous = key;
+				}
+			}
+			Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(temp);
+		}
+	}
+
+	/**
+	 * compares keys by their unsigned bytes, the order of the entries in the
+	 * file
+	 */
+	static int compare(byte[] a, byte[] b) {
+		int length = Math.min(a.length, b.length);
+		for (int i = 0; i < length; i++) {
+			int diff = (a[i] & 0xff) - (b[i] & 0xff);
+			if (diff != 0) {
+				return diff;
+			}
+		}
+		return a.length - b.length;
+	}
+
+	private static int sharedPrefix(byte[] a, byte[] b) {
+		int length = Math.min(a.length, b.length);
+		int i = 0;
+		while (i < length && a[i] == b[i]) {
+			i++;
+		}
+		return i;
+	}
+
+	static int varintSize(int value) {
+		int size = 1;
+		while ((value >>>= 7) != 0) {
+			size++;
+		}
+		return size;
+	}
+
+	private static void writeVarint(OutputStream out, int value) throws IOException {
+		while ((value & ~0x7f) != 0) {
+			out.write((value & 0x7f) | 0x80);
+			value >>>= 7;
+		}
+		out.write(value);
+	}
+
+	/**
+	 * converts a properties file at build time:
+	 * <code>MappedPropertyFile source.properties target.bin</code>
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length != 2) {
+			System.err.println("usage: " + MappedPropertyFile.class.getName() + " <properties file> <target file>");
+			System.exit(1);
+		}
+		convert(Paths.get(args[0]), Paths.get(args[1]));
+	}
+}
@@ -0,0 +1,196 @@
+/*
+ * copyright (C) 2008-2019 Patrick Stricker
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA
+ *
+ * 	Patrick Stricker - http://pa2.de
+ */
+package de.pa2.commons.configuration.resolvers;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * property resolver that maps a file written by {@link MappedPropertyFile}
+ * into memory. Keys are looked up by a binary search over the restart points
+ * and a scan of at most {@link MappedPropertyFile#RESTART_INTERVAL} entries,
+ * only the value that is found is copied onto the heap.
+ */
+public class MappedPropertyResolver implements PropertyResolver {
+	private final Path file;
+
+	/**
+	 * mapped file, only read with absolute methods so it can be shared by all
+	 * threads
+	 */
+	private final ByteBuffer buffer;
+
+	private final int size;
+
+	private final int restartCount;
+
+	private final int dataOffset;
+
+	/**
+	 * maps the file, it must not be modified while it is mapped but can be
+	 * replaced by {@link MappedPropertyFile}
+	 *
+	 * @param file
+	 *            file written by {@link MappedPropertyFile}
+	 */
+	public MappedPropertyResolver(Path file) {
+		super();
+		this.file = file;
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			if (channel.size() > Integer.MAX_VALUE) {
+				throw new IllegalArgumentException("file exceeds 2 GB: " + file);
+			}
+			this.buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		if (this.buffer.limit() < MappedPropertyFile.HEADER_SIZE || this.buffer.getInt(0) != MappedPropertyFile.MAGIC) {
+			throw new IllegalArgumentException("not a mapped property file: " + file);
+		}
+		if (this.buffer.getInt(4) != MappedPropertyFile.VERSION) {
+			throw new IllegalArgumentException("unsupported version " + this.buffer.getInt(4) + ": " + file);
+		}
+		this.size = this.buffer.getInt(8);
+		this.restartCount = this.buffer.getInt(16);
+		this.dataOffset = MappedPropertyFile.HEADER_SIZE + this.restartCount * Integer.BYTES;
+	}
+
+	/**
+	 * @return mapped file
+	 */
+	public Path getFile() {
+		return this.file;
+	}
+
+	/**
+	 * @return number of properties
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	@Override
+	public String getProperty(String propertyName, String defaultValue) {
+		if (this.restartCount == 0) {
+			return defaultValue;
+		}
+		byte[] key = propertyName.getBytes(StandardCharsets.UTF_8);
+
+		// last restart point with a key less than or equal to the searched one
+		int low = 0;
+		int high = this.restartCount - 1;
+		while (low < high) {
+			int middle = (low + high + 1) >>> 1;
+			if (this.compareRestart(middle, key) <= 0) {
+				low = middle;
+			} else {
+				high = middle - 1;
+			}
+		}
+
+		int position = this.dataOffset + this.restart(low);
+		int end = low + 1 < this.restartCount ? this.dataOffset + this.restart(low + 1) : this.buffer.limit();
+		// length of the prefix the previous key shares with the searched key,
+		// the previous key is always less than the searched key
+		int matched = 0;
+		while (position < end) {
+			int shared = this.readVarint(position);
+			position += MappedPropertyFile.varintSize(shared);
+			int unshared = this.readVarint(position);
+			position += MappedPropertyFile.varintSize(unshared);
+			int valueLength = this.readVarint(position);
+			position += MappedPropertyFile.varintSize(valueLength);
+
+			if (shared < matched) {
+				// this key differs from the previous one before the matched
+				// prefix ends, so it is greater than the searched one
+				return defaultValue;
+			}
+			if (shared == matched) {
+				int keyLength = shared + unshared;
+				int i = shared;
+				while (i < keyLength && i < key.length && this.buffer.get(position + i - shared) == key[i]) {
+					i++;
+				}
+				if (i == keyLength && i == key.length) {
+					return this.readString(position + unshared, valueLength);
+				}
+				if (i == key.length || (i < keyLength && (this.buffer.get(position + i - shared) & 0xff) > (key[i] & 0xff))) {
+					return defaultValue;
+				}
+				matched = i;
+			}
+			// a key that shares more with the previous one than the matched
+			// prefix is less than the searched one as well
+			position += unshared + valueLength;
+		}
+		return defaultValue;
+	}
+
+	private int restart(int index) {
+		return this.buffer.getInt(MappedPropertyFile.HEADER_SIZE + index * Integer.BYTES);
+	}
+
+	/**
+	 * compares the whole key stored at a restart point with the searched key
+	 */
+	private int compareRestart(int index, byte[] key) {
+		int position = this.dataOffset + this.restart(index);
+		// shared prefix is always 0 at restart points
+		position += 1;
+		int keyLength = this.readVarint(position);
+		position += MappedPropertyFile.varintSize(keyLength);
+		position += MappedPropertyFile.varintSize(this.readVarint(position));
+
+		int length = Math.min(keyLength, key.length);
+		for (int i = 0; i < length; i++) {
+			int diff = (this.buffer.get(position + i) & 0xff) - (key[i] & 0xff);
+			if (diff != 0) {
+				return diff;
+			}
+		}
+		return keyLength - key.length;
+	}
+
+	private String readString(int position, int length) {
+		byte[] bytes = new byte[length];
+		for (int i = 0; i < length; i++) {
+			bytes[i] = this.buffer.get(position + i);
+		}
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private int readVarint(int position) {
+		int value = 0;
+		int shift = 0;
+		byte b;
+		do {
+			b = this.buffer.get(position++);
+			value |= (b & 0x7f) << shift;
+			shift += 7;
+		} while (b < 0);
+		return value;
+	}
+}
@@ -0,0 +1,220 @@
+/*
+ * copyright (C) 2008-2019 Patrick Stricker
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA
+ *
+ * 	Patrick Stricker - http://pa2.de
+ */
+package de.pa2.commons.configuration.resolvers;
+
+import java.io.Closeable;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
+
+/**
+ * small set of overrides on top of a shared base resolver. The overrides are
+ * kept in a {@link PersistentPropertyMap}, so many overlays of the same base
+ * only cost memory for their own values, and changes of the base are visible
+ * to all of them at once.
+ */
+public class OverlayPropertyResolver implements ObservablePropertyResolver, Closeable {
+	private final PropertyResolver base;
+
+	private final AtomicReference<PersistentPropertyMap> overrides;
+
+	private final List<ResolverChangeListener> listeners = new CopyOnWriteArrayList<>();
+
+	private final CopyOnWriteArrayList<ResolverChangeListener> overrideListeners = new CopyOnWriteArrayList<>();
+
+	/**
+	 * forwards changes of the base that are not overridden, registered with
+	 * the first listener so that overlays nobody observes are not referenced
+	 * by the base
+	 */
+	private final ResolverChangeListener baseListener = new ResolverChangeListener() {
+		@Override
+		public void propertiesChanged(Set<String> propertyNames) {
+			PersistentPropertyMap current = OverlayPropertyResolver.this.overrides.get();
+			Set<String> visible = propertyNames;
+			if (!current.isEmpty()) {
+				visible = new HashSet<>();
+				for (String propertyName : propertyNames) {
+					if (current.get(propertyName) == null) {
+						visible.add(propertyName);
+					}
+				}
+			}
+			if (!visible.isEmpty()) {
+				OverlayPropertyResolver.this.notifyListeners(Collections.unmodifiableSet(visible));
+			}
+		}
+	};
+
+	private boolean observingBase = false;
+
+	public OverlayPropertyResolver(PropertyResolver base) {
+		this(base, PersistentPropertyMap.empty());
+	}
+
+	/**
+	 * @param base
+	 *            shared resolver
+	 * @param overrides
+	 *            initial overrides, e.g. shared with another overlay
+	 */
+	public OverlayPropertyResolver(PropertyResolver base, PersistentPropertyMap overrides) {
+		super();
+		this.base = base;
+		this.overrides = new AtomicReference<>(overrides);
+	}
+
+	public PropertyResolver getBase() {
+		return this.base;
+	}
+
+	/**
+	 * @return current overrides, an immutable view
+	 */
+	public PersistentPropertyMap getOverrides() {
+		return this.overrides.get();
+	}
+
+	/**
+	 * sets the value of a property in this overlay
+	 */
+	public void setOverride(String propertyName, String value) {
+		this.update(current -> current.put(propertyName, value));
+	}
+
+	/**
+	 * removes the value of a property from this overlay, the value of the
+	 * base is visible again
+	 */
+	public void removeOverride(String propertyName) {
+		this.update(current -> current.remove(propertyName));
+	}
+
+	/**
+	 * replaces all overrides at once
+	 */
+	public void setOverrides(PersistentPropertyMap overrides) {
+		this.update(current -> overrides);
+	}
+
+	private void update(UnaryOperator<PersistentPropertyMap> function) {
+		PersistentPropertyMap previous;
+		PersistentPropertyMap current;
+		do {
+			previous = this.overrides.get();
+			current = function.apply(previous);
+		} while (!this.overrides.compareAndSet(previous, current));
+		if (previous == current) {
+			return;
+		}
+		PersistentPropertyMap before = previous;
+		PersistentPropertyMap after = current;
+		Set<String> changed = new HashSet<>();
+		before.forEach((name, value) -> {
+			if (!value.equals(after.get(name))) {
+				changed.add(name);
+			}
+		});
+		after.forEach((name, value) -> {
+			if (before.get(name) == null) {
+				changed.add(name);
+			}
+		});
+		if (!changed.isEmpty()) {
+			Set<String> unmodifiable = Collections.unmodifiableSet(changed);
+			for (ResolverChangeListener listener : this.overrideListeners) {
+				listener.propertiesChanged(unmodifiable);
+			}
+			this.notifyListeners(unmodifiable);
+		}
+	}
+
+	private void notifyListeners(Set<String> propertyNames) {
+		for (ResolverChangeListener listener : this.listeners) {
+			listener.propertiesChanged(propertyNames);
+		}
+	}
+
+	@Override
+	public String getProperty(String propertyName, String defaultValue) {
+		String value = this.overrides.get().get(propertyName);
+		return value != null ? value : this.base.getProperty(propertyName, defaultValue);
+	}
+
+	@Override
+	public Map<String, String> getProperties(Collection<String> propertyNames) {
+		PersistentPropertyMap current = this.overrides.get();
+		Map<String, String> values = this.base.getProperties(propertyNames);
+		if (!current.isEmpty()) {
+			values = new HashMap<>(values);
+			for (String propertyName : propertyNames) {
+				String value = current.get(propertyName);
+				if (value != null) {
+					values.put(propertyName, value);
+				}
+			}
+		}
+		return values;
+	}
+
+	@Override
+	public synchronized void addChangeListener(ResolverChangeListener listener) {
+		this.listeners.add(listener);
+		if (!this.observingBase && this.base instanceof ObservablePropertyResolver) {
+			((ObservablePropertyResolver) this.base).addChangeListener(this.baseListener);
+			this.observingBase = true;
+		}
+	}
+
+	@Override
+	public void removeChangeListener(ResolverChangeListener listener) {
+		this.listeners.remove(listener);
+	}
+
+	/**
+	 * registers a listener once, it is only notified about changes of the
+	 * overrides, the base is not observed
+	 */
+	public void addOverrideListener(ResolverChangeListener listener) {
+		this.overrideListeners.addIfAbsent(listener);
+	}
+
+	public void removeOverrideListener(ResolverChangeListener listener) {
+		this.overrideListeners.remove(listener);
+	}
+
+	/**
+	 * stops listening to the base, the overlay can be collected afterwards
+	 */
+	@Override
+	public synchronized void close() {
+		if (this.observingBase) {
+			((ObservablePropertyResolver) this.base).removeChangeListener(this.baseListener);
+			this.observingBase = false;
+		}
+	}
+}
@@ -0,0 +1,410 @@
+/*
+ * copyright (C) 2008-2019 Patrick Stricker
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA
+ *
+ * 	Patrick Stricker - http://pa2.de
+ */
+package de.pa2.commons.configuration.resolvers;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * immutable map of property values. Updates return a new map that shares all
+ * unchanged nodes with the old one, so a change costs a few small arrays
+ * instead of a copy of all entries. Implemented as hash array mapped trie
+ * with 32 branches per node.
+ */
+public final class PersistentPropertyMap {
+	private static final PersistentPropertyMap EMPTY = new PersistentPropertyMap(null, 0);
+
+	/**
+	 * root node, null if the map is empty
+	 */
+	private final Node root;
+
+	private final int size;
+
+	private PersistentPropertyMap(Node root, int size) {
+		super();
+		this.root = root;
+		this.size = size;
+	}
+
+	public static PersistentPropertyMap empty() {
+		return EMPTY;
+	}
+
+	/**
+	 * @param values
+	 *            values by property name
+	 * @return map with the values
+	 */
+	public static PersistentPropertyMap of(Map<String, String> values) {
+		return EMPTY.putAll(values);
+	}
+
+	/**
+	 * @return value of the property, null if it is not set
+	 */
+	public String get(String propertyName) {
+		return this.root != null ? this.root.get(propertyName, propertyName.hashCode(), 0) : null;
+	}
+
+	/**
+	 * @return map with the value set, this map if it already has the value
+	 */
+	public PersistentPropertyMap put(String propertyName, String value) {
+		if (value == null) {
+			throw new NullPointerException("value of " + propertyName);
+		}
+		int hash = propertyName.hashCode();
+		if (this.root == null) {
+			return new PersistentPropertyMap(BitmapNode.leaf(propertyName, value, hash, 0), 1);
+		}
+		boolean[] added = new boolean[1];
+		Node newRoot = this.root.put(propertyName, value, hash, 0, added);
+		if (newRoot == this.root) {
+			return this;
+		}
+		return new PersistentPropertyMap(newRoot, added[0] ? this.size + 1 : this.size);
+	}
+
+	/**
+	 * @return map with all values set
+	 */
+	public PersistentPropertyMap putAll(Map<String, String> values) {
+		PersistentPropertyMap result = this;
+		for (Map.Entry<String, String> entry : values.entrySet()) {
+			result = result.put(entry.getKey(), entry.getValue());
+		}
+		return result;
+	}
+
+	/**
+	 * @return map without the property, this map if it is not set
+	 */
+	public PersistentPropertyMap remove(String propertyName) {
+		if (this.root == null) {
+			return this;
+		}
+		Node newRoot = this.root.remove(propertyName, propertyName.hashCode(), 0);
+		if (newRoot == this.root) {
+			return this;
+		}
+		return newRoot != null ? new PersistentPropertyMap(newRoot, this.size - 1) : EMPTY;
+	}
+
+	public int size() {
+		return this.size;
+	}
+
+	public boolean isEmpty() {
+		return this.size == 0;
+	}
+
+	/**
+	 * calls the action for all entries in no particular order
+	 */
+	public void forEach(BiConsumer<String, String> action) {
+		if (this.root != null) {
+			this.root.forEach(action);
+		}
+	}
+
+	/**
+	 * @return copy of the entries
+	 */
+	public Map<String, String> toMap() {
+		Map<String, String> map = new HashMap<>();
+		this.forEach(map::put);
+		return map;
+	}
+
+	@Override
+	public String toString() {
+		return this.toMap().toString();
+	}
+
+	private abstract static class Node {
+		abstract String get(String key, int hash, int shift);
+
+		/**
+		 * @param added
+		 *            set to true if the key was not contained
+		 * @return node with the value, this node if nothing changed
+		 */
+		abstract Node put(String key, String value, int hash, int shift, boolean[] added);
+
+		/**
+		 * @return node without the key, this node if it was not contained,
+		 *         null if the node is empty afterwards
+		 */
+		abstract Node remove(String key, int hash, int shift);
+
+		abstract void forEach(BiConsumer<String, String> action);
+
+		/**
+		 * @return key of the only entry of the node, null if the node has
+		 *         more entries, so that it can be inlined into its parent
+		 */
+		abstract String singleKey();
+
+		abstract String singleValue();
+	}
+
+	/**
+	 * node with up to 32 slots addressed by 5 bits of the hash. A slot holds
+	 * either a key and its value or, with null as key, a child node.
+	 */
+	private static final class BitmapNode extends Node {
+		private final int bitmap;
+
+		private final Object[] slots;
+
+		BitmapNode(int bitmap, Object[] slots) {
+			super();
+			this.bitmap = bitmap;
+			this.slots = slots;
+		}
+
+		static BitmapNode leaf(String key, String value, int hash, int shift) {
+			return new BitmapNode(bit(hash, shift), new Object[] { key, value });
+		}
+
+		private static int bit(int hash, int shift) {
+			return 1 << ((hash >>> shift) & 31);
+		}
+
+		private int index(int bit) {
+			return Integer.bitCount(this.bitmap & (bit - 1)) * 2;
+		}
+
+		@Override
+		String get(String key, int hash, int shift) {
+			int bit = bit(hash, shift);
+			if ((this.bitmap & bit) == 0) {
+				return null;
+			}
+			int index = this.index(bit);
+			Object slotKey = this.slots[index];
+			if (slotKey == null) {
+				return ((Node) this.slots[index + 1]).get(key, hash, shift + 5);
+			}
+			return key.equals(slotKey) ? (String) this.slots[index + 1] : null;
+		}
+
+		@Override
+		Node put(String key, String value, int hash, int shift, boolean[] added) {
+			int bit = bit(hash, shift);
+			int index = this.index(bit);
+			if ((this.bitmap & bit) == 0) {
+				Object[] slots = new Object[this.slots.length + 2];
+				System.arraycopy(this.slots, 0, slots, 0, index);
+				slots[index] = key;
+				slots[index + 1] = value;
+				System.arraycopy(this.slots, index, slots, index + 2, this.slots.length - index);
+				added[0] = true;
+				return new BitmapNode(this.bitmap | bit, slots);
+			}
+			Object slotKey = this.slots[index];
+			Object slotValue = this.slots[index + 1];
+			if (slotKey == null) {
+				Node child = (Node) slotValue;
+				Node newChild = child.put(key, value, hash, shift + 5, added);
+				return newChild == child ? this : this.with(index, null, newChild);
+			}
+			if (key.equals(slotKey)) {
+				return value.equals(slotValue) ? this : this.with(index, key, value);
+			}
+			// both entries move into a new child
+			added[0] = true;
+			String existingKey = (String) slotKey;
+			int existingHash = existingKey.hashCode();
+			Node child;
+			if (existingHash == hash) {
+				child = new CollisionNode(hash, new String[] { existingKey, key },
+						new String[] { (String) slotValue, value });
+			} else {
+				child = leaf(existingKey, (String) slotValue, existingHash, shift + 5).put(key, value, hash,
+						shift + 5, new boolean[1]);
+			}
+			return this.with(index, null, child);
+		}
+
+		private BitmapNode with(int index, Object key, Object value) {
+			Object[] slots = this.slots.clone();
+			slots[index] = key;
+			slots[index + 1] = value;
+			return new BitmapNode(this.bitmap, slots);
+		}
+
+		@Override
+		Node remove(String key, int hash, int shift) {
+			int bit = bit(hash, shift);
+			if ((this.bitmap & bit) == 0) {
+				return this;
+			}
+			int index = this.index(bit);
+			Object slotKey = this.slots[index];
+			if (slotKey == null) {
+				Node child = (Node) this.slots[index + 1];
+				Node newChild = child.remove(key, hash, shift + 5);
+				if (newChild == child) {
+					return this;
+				}
+				if (newChild == null) {
+					return this.without(bit, index);
+				}
+				String singleKey = newChild.singleKey();
+				if (singleKey != null) {
+					return this.with(index, singleKey, newChild.singleValue());
+				}
+				return this.with(index, null, newChild);
+			}
+			return key.equals(slotKey) ? this.without(bit, index) : this;
+		}
+
+		private BitmapNode without(int bit, int index) {
+			if (this.bitmap == bit) {
+				return null;
+			}
+			Object[] slots = new Object[this.slots.length - 2];
+			System.arraycopy(this.slots, 0, slots, 0, index);
+			System.arraycopy(this.slots, index + 2, slots, index, this.slots.length - index - 2);
+			return new BitmapNode(this.bitmap & ~bit, slots);
+		}
+
+		@Override
+		void forEach(BiConsumer<String, String> action) {
+			for (int i = 0; i < this.slots.length; i += 2) {
+				if (this.slots[i] == null) {
+					((Node) this.slots[i + 1]).forEach(action);
+				} else {
+					action.accept((String) this.slots[i], (String) this.slots[i + 1]);
+				}
+			}
+		}
+
+		@Override
+		String singleKey() {
+			return this.slots.length == 2 ? (String) this.slots[0] : null;
+		}
+
+		@Override
+		String singleValue() {
+			return (String) this.slots[1];
+		}
+	}
+
+	/**
+	 * keys with the same hash code
+	 */
+	private static final class CollisionNode extends Node {
+		private final int hash;
+
+		private final String[] keys;
+
+		private final String[] values;
+
+		CollisionNode(int hash, String[] keys, String[] values) {
+			super();
+			this.hash = hash;
+			this.keys = keys;
+			this.values = values;
+		}
+
+		private int indexOf(String key) {
+			for (int i = 0; i < this.keys.length; i++) {
+				if (this.keys[i].equals(key)) {
+					return i;
+				}
+			}
+			return -1;
+		}
+
+		@Override
+		String get(String key, int hash, int shift) {
+			int index = this.indexOf(key);
+			return index >= 0 ? this.values[index] : null;
+		}
+
+		@Override
+		Node put(String key, String value, int hash, int shift, boolean[] added) {
+			if (hash != this.hash) {
+				// the hashes differ in bits below this node, it moves into a
+				// new node of this level
+				return new BitmapNode(BitmapNode.bit(this.hash, shift), new Object[] { null, this }).put(key, value,
+						hash, shift, added);
+			}
+			int index = this.indexOf(key);
+			if (index >= 0) {
+				if (this.values[index].equals(value)) {
+					return this;
+				}
+				String[] values = this.values.clone();
+				values[index] = value;
+				return new CollisionNode(hash, this.keys, values);
+			}
+			String[] keys = new String[this.keys.length + 1];
+			String[] values = new String[this.values.length + 1];
+			System.arraycopy(this.keys, 0, keys, 0, this.keys.length);
+			System.arraycopy(this.values, 0, values, 0, this.values.length);
+			keys[this.keys.length] = key;
+			values[this.values.length] = value;
+			added[0] = true;
+			return new CollisionNode(hash, keys, values);
+		}
+
+		@Override
+		Node remove(String key, int hash, int shift) {
+			int index = this.indexOf(key);
+			if (index < 0) {
+				return this;
+			}
+			if (this.keys.length == 1) {
+				return null;
+			}
+			String[] keys = new String[this.keys.length - 1];
+			String[] values = new String[this.values.length - 1];
+			for (int i = 0, j = 0; i < this.keys.length; i++) {
+				if (i != index) {
+					keys[j] = this.keys[i];
+					values[j++] = this.values[i];
+				}
+			}
+			return new CollisionNode(hash, keys, values);
+		}
+
+		@Override
+		void forEach(BiConsumer<String, String> action) {
+			for (int i = 0; i < this.keys.length; i++) {
+				action.accept(this.keys[i], this.values[i]);
+			}
+		}
+
+		@Override
+		String singleKey() {
+			return this.keys.length == 1 ? this.keys[0] : null;
+		}
+
+		@Override
+		String singleValue() {
+			return this.values[0];
+		}
+	}
+}
@@ -0,0 +1,290 @@
+/*
+ * copyright (C) 2008-2019 Patrick Stricker
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA
+ *
+ * 	Patrick Stricker - http://pa2.de
+ */
+package de.pa2.commons.configuration.resolvers;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * value parsed once into literal and placeholder segments. Supports
+ * <code>${key}</code>, <code>${key:default}</code> and placeholders within
+ * keys and defaults, e.g. <code>${db.${stage}.url}</code>. Resolved values
+ * are expanded recursively, circular references are detected.
+ */
+final class PlaceholderTemplate {
+	/**
+	 * templates per cache generation, at most two generations are kept
+	 */
+	private static final int GENERATION_SIZE = 2048;
+
+	/**
+	 * templates compiled or used since the last generation started
+	 */
+	private static volatile Map<String, PlaceholderTemplate> current = new ConcurrentHashMap<>();
+
+	/**
+	 * templates of the last generation, moved to the current one when they
+	 * are used again and dropped with the next generation otherwise
+	 */
+	private static volatile Map<String, PlaceholderTemplate> previous = new ConcurrentHashMap<>();
+
+	/**
+	 * literal strings and {@link Placeholder}s
+	 */
+	private final Object[] segments;
+
+	private PlaceholderTemplate(Object[] segments) {
+		super();
+		this.segments = segments;
+	}
+
+	/**
+	 * @param source
+	 *            value containing placeholders
+	 * @return cached template of the value
+	 */
+	static PlaceholderTemplate compile(String source) {
+		Map<String, PlaceholderTemplate> generation = current;
+		PlaceholderTemplate template = generation.get(source);
+		if (template == null) {
+			template = previous.get(source);
+			if (template == null) {
+				template = parse(source, 0, source.length());
+			}
+			if (generation.size() >= GENERATION_SIZE) {
+				generation = nextGeneration(generation);
+			}
+			generation.put(source, template);
+		}
+		return template;
+	}
+
+	/**
+	 * starts a new generation unless another thread did, templates that were
+	 * not used during the last two generations are dropped
+	 *
+	 * @return current generation
+	 */
+	private static synchronized Map<String, PlaceholderTemplate> nextGeneration(
+			Map<String, PlaceholderTemplate> full) {
+		if (current == full) {
+			previous = full;
+			current = new ConcurrentHashMap<>();
+		}
+		return current;
+	}
+
+	private static PlaceholderTemplate parse(String source, int from, int to) {
+		List<Object> segments = new ArrayList<>();
+		int literalStart = from;
+		int i = from;
+		while (i < to - 1) {
+			if (source.charAt(i) == '$' && source.charAt(i + 1) == '{') {
+				int end = findEnd(source, i + 2, to);
+				if (end < 0) {
+					// unterminated placeholder is kept as literal
+					break;
+				}
+				if (literalStart < i) {
+					segments.add(source.substring(literalStart, i));
+				}
+				int separator = findSeparator(source, i + 2, end);
+				PlaceholderTemplate key = parse(source, i + 2, separator < 0 ? end : separator);
+				PlaceholderTemplate defaultValue = separator < 0 ? null : parse(source, separator + 1, end);
+				segments.add(new Placeholder(key, defaultValue, source.substring(i, end + 1)));
+				i = end + 1;
+				literalStart = i;
+			} else {
+				i++;
+			}
+		}
+		if (literalStart < to) {
+			segments.add(source.substring(literalStart, to));
+		}
+		return new PlaceholderTemplate(segments.toArray());
+	}
+
+	/**
+	 * @return index of the closing brace of a placeholder starting before
+	 *         <code>from</code>, -1 if there is none
+	 */
+	private static int findEnd(String source, int from, int to) {
+		int depth = 1;
+		for (int i = from; i < to; i++) {
+			char c = source.charAt(i);
+			if (c == '$' && i + 1 < to && source.charAt(i + 1) == '{') {
+				depth++;
+				i++;
+			} else if (c == '}' && --depth == 0) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * @return index of the ':' separating key and default value outside of
+	 *         nested placeholders, -1 if there is none
+	 */
+	private static int findSeparator(String source, int from, int to) {
+		int depth = 0;
+		for (int i = from; i < to; i++) {
+			char c = source.charAt(i);
+			if (c == '$' && i + 1 < to && source.charAt(i + 1) == '{') {
+				depth++;
+				i++;
+			} else if (c == '}') {
+				depth--;
+			} else if (c == ':' && depth == 0) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * @return the literal if the template has no placeholders, null otherwise
+	 */
+	private String getLiteral() {
+		if (this.segments.length == 0) {
+			return "";
+		} else if (this.segments.length == 1 && this.segments[0] instanceof String) {
+			return (String) this.segments[0];
+		}
+		return null;
+	}
+
+	/**
+	 * appends the value with replaced placeholders
+	 *
+	 * @param resolver
+	 *            resolves the placeholders
+	 * @param out
+	 *            buffer the value is written to
+	 * @param resolving
+	 *            keys that are currently expanded, to detect cycles
+	 */
+	void render(PropertyResolver resolver, StringBuilder out, Deque<String> resolving) {
+		for (Object segment : this.segments) {
+			if (segment instanceof String) {
+				out.append((String) segment);
+			} else {
+				((Placeholder) segment).render(resolver, out, resolving);
+			}
+		}
+	}
+
+	private String renderToString(PropertyResolver resolver, Deque<String> resolving) {
+		String literal = this.getLiteral();
+		if (literal != null) {
+			return literal;
+		}
+		StringBuilder out = new StringBuilder();
+		this.render(resolver, out, resolving);
+		return out.toString();
+	}
+
+	/**
+	 * adds the names of all keys, including those of defaults. Keys with
+	 * nested placeholders like <code>${db.${stage}.url}</code> add the names
+	 * they contain and, if a resolver is given, the key they currently
+	 * resolve to.
+	 *
+	 * @param names
+	 *            collected names
+	 * @param resolver
+	 *            resolves nested keys, may be null
+	 */
+	void collectNames(Set<String> names, PropertyResolver resolver) {
+		for (Object segment : this.segments) {
+			if (segment instanceof Placeholder) {
+				Placeholder placeholder = (Placeholder) segment;
+				String key = placeholder.key.getLiteral();
+				if (key != null) {
+					names.add(key);
+				} else {
+					placeholder.key.collectNames(names, resolver);
+					if (resolver != null) {
+						try {
+							names.add(placeholder.key.renderToString(resolver, new ArrayDeque<String>()));
+						} catch (IllegalArgumentException e) {
+							// circular reference, reported when the value is read
+						}
+					}
+				}
+				if (placeholder.defaultValue != null) {
+					placeholder.defaultValue.collectNames(names, resolver);
+				}
+			}
+		}
+	}
+
+	/**
+	 * <code>${key}</code> or <code>${key:default}</code>
+	 */
+	private static final class Placeholder {
+		private final PlaceholderTemplate key;
+
+		private final PlaceholderTemplate defaultValue;
+
+		/**
+		 * original text, kept if the placeholder can not be resolved
+		 */
+		private final String source;
+
+		Placeholder(PlaceholderTemplate key, PlaceholderTemplate defaultValue, String source) {
+			super();
+			this.key = key;
+			this.defaultValue = defaultValue;
+			this.source = source;
+		}
+
+		void render(PropertyResolver resolver, StringBuilder out, Deque<String> resolving) {
+			String name = this.key.renderToString(resolver, resolving);
+			if (resolving.contains(name)) {
+				StringBuilder cycle = new StringBuilder();
+				for (Iterator<String> i = resolving.descendingIterator(); i.hasNext();) {
+					cycle.append(i.next()).append(" -> ");
+				}
+				throw new IllegalArgumentException("circular placeholder reference: " + cycle.append(name));
+			}
+			String value = resolver.getProperty(name, null);
+			if (value != null) {
+				resolving.push(name);
+				if (value.indexOf("${") < 0) {
+					out.append(value);
+				} else {
+					compile(value).render(resolver, out, resolving);
+				}
+				resolving.pop();
+			} else if (this.defaultValue != null) {
+				this.defaultValue.render(resolver, out, resolving);
+			} else {
+				out.append(this.source);
+			}
+		}
+	}
+}
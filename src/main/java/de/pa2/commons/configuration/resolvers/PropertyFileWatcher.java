@@ -0,0 +1,187 @@
+/*
+ * copyright (C) 2008-2019 Patrick Stricker
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA
+ *
+ * 	Patrick Stricker - http://pa2.de
+ */
+package de.pa2.commons.configuration.resolvers;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * watches the files of {@link ResourcePropertyResolver}s and reloads a
+ * resolver when its file changes. Bursts of events are debounced, only the
+ * changed file is parsed again.
+ */
+public class PropertyFileWatcher implements Closeable {
+	private static final Logger LOG = LoggerFactory.getLogger(PropertyFileWatcher.class);
+
+	private final WatchService watchService;
+
+	private final long debounceMillis;
+
+	/**
+	 * resolvers by absolute file path
+	 */
+	private final Map<Path, List<ResourcePropertyResolver>> resolvers = new ConcurrentHashMap<>();
+
+	/**
+	 * watched directories
+	 */
+	private final Map<Path, WatchKey> directories = new ConcurrentHashMap<>();
+
+	/**
+	 * pending reloads by absolute file path
+	 */
+	private final Map<Path, ScheduledFuture<?>> pendingReloads = new ConcurrentHashMap<>();
+
+	private final ScheduledExecutorService scheduler;
+
+	private final Thread watchThread;
+
+	/**
+	 * @param debounceMillis
+	 *            time to wait after the last change of a file before it is
+	 *            reloaded
+	 * @throws IOException
+	 *             if the watch service could not be created
+	 */
+	public PropertyFileWatcher(long debounceMillis) throws IOException {
+		super();
+		this.debounceMillis = debounceMillis;
+		this.watchService = FileSystems.getDefault().newWatchService();
+
+		ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, runnable -> {
+			Thread thread = new Thread(runnable, "configuration-file-reload");
+			thread.setDaemon(true);
+			return thread;
+		});
+		executor.setRemoveOnCancelPolicy(true);
+		this.scheduler = executor;
+
+		this.watchThread = new Thread(this::watch, "configuration-file-watcher");
+		this.watchThread.setDaemon(true);
+		this.watchThread.start();
+	}
+
+	/**
+	 * watches the file of the resolver, resolvers without file are ignored
+	 *
+	 * @param resolver
+	 *            resolver to reload on changes
+	 * @throws IOException
+	 *             if the directory of the file could not be watched
+	 */
+	public void register(ResourcePropertyResolver resolver) throws IOException {
+		File file = resolver.getFile();
+		if (file == null) {
+			return;
+		}
+		Path path = file.toPath().toAbsolutePath().normalize();
+		Path directory = path.getParent();
+		if (!this.directories.containsKey(directory)) {
+			synchronized (this.directories) {
+				if (!this.directories.containsKey(directory)) {
+					this.directories.put(directory,
+							directory.register(this.watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE));
+				}
+			}
+		}
+		this.resolvers.computeIfAbsent(path, p -> new CopyOnWriteArrayList<>()).add(resolver);
+	}
+
+	private void watch() {
+		try {
+			while (true) {
+				WatchKey key = this.watchService.take();
+				Path directory = (Path) key.watchable();
+				for (WatchEvent<?> event : key.pollEvents()) {
+					if (event.kind() == OVERFLOW) {
+						// events were lost, reload all files of the directory
+						for (Path path : this.resolvers.keySet()) {
+							if (directory.equals(path.getParent())) {
+								this.scheduleReload(path);
+							}
+						}
+					} else {
+						Path path = directory.resolve((Path) event.context()).normalize();
+						if (this.resolvers.containsKey(path)) {
+							this.scheduleReload(path);
+						}
+					}
+				}
+				key.reset();
+			}
+		} catch (InterruptedException | ClosedWatchServiceException e) {
+			LOG.debug("stopped watching configuration files");
+		}
+	}
+
+	private void scheduleReload(Path path) {
+		ScheduledFuture<?> reload = this.scheduler.schedule(() -> this.reload(path), this.debounceMillis,
+				TimeUnit.MILLISECONDS);
+		ScheduledFuture<?> previous = this.pendingReloads.put(path, reload);
+		if (previous != null) {
+			previous.cancel(false);
+		}
+	}
+
+	private void reload(Path path) {
+		this.pendingReloads.remove(path);
+		for (ResourcePropertyResolver resolver : this.resolvers.getOrDefault(path,
+				Collections.<ResourcePropertyResolver> emptyList())) {
+			try {
+				Set<String> changed = resolver.reload();
+				LOG.info("reloaded {}, changed properties: {}", path, changed);
+			} catch (RuntimeException e) {
+				LOG.error("could not reload {}", path, e);
+			}
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		this.watchService.close();
+		this.scheduler.shutdownNow();
+		this.watchThread.interrupt();
+	}
+}
@@ -0,0 +1,44 @@
+/*
+ * copyright (C) 2008-2019 Patrick Stricker
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA
+ *
+ * 	Patrick Stricker - http://pa2.de
+ */
+package de.pa2.commons.configuration.resolvers;
+
+/**
+ * canonical instances of property names, shared by all layers and
+ * interfaces using the name so that lookups mostly compare by identity.
+ * Names are kept in the string table of the JVM, which holds them weakly
+ * and outside of the heap, they are dropped when no layer or interface
+ * uses them anymore.
+ */
+public final class PropertyKeys {
+	private PropertyKeys() {
+		super();
+	}
+
+	/**
+	 * @return canonical instance of the name
+	 */
+	public static String canonical(String name) {
+		return name.intern();
+	}
+
+	static int spread(int hash) {
+		return hash ^ (hash >>> 16);
+	}
+}
@@ -19,43 +19,70 @@
  */
 package de.pa2.commons.configuration.resolvers;
 
-import java.util.ArrayList;
-import java.util.regex.Matcher;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
 import java.util.regex.Pattern;
 
 public class PropertyReplacementUtil {
+	/**
+	 * @deprecated placeholders are parsed by {@link PlaceholderTemplate}, this
+	 *             pattern does not cover defaults and nesting
+	 */
+	@Deprecated
 	public final static Pattern systemPropertyPattern = Pattern.compile("(\\$\\{([^\\}]*)\\})");
 
-	private static class SourceAndReplacement {
-		private String source = null;
-		private String replacement = null;
-
-		public SourceAndReplacement(String source, String replacement) {
-			super();
-			this.source = source;
-			this.replacement = replacement;
+	/**
+	 * replaces <code>${key}</code> placeholders by the values of the resolver,
+	 * <code>${key:default}</code> uses the default if the key can not be
+	 * resolved. Values are expanded recursively, placeholders without value and
+	 * default are kept.
+	 *
+	 * @param source
+	 *            value that may contain placeholders, may be null
+	 * @param resolver
+	 *            resolves the placeholders
+	 * @return value with replaced placeholders
+	 * @throws IllegalArgumentException
+	 *             on circular references
+	 */
+	public static String replacePlaceholders(String source, PropertyResolver resolver) {
+		if (source == null || source.indexOf("${") < 0) {
+			return source;
 		}
+		StringBuilder result = new StringBuilder(source.length() + 16);
+		PlaceholderTemplate.compile(source).render(resolver, result, new ArrayDeque<String>());
+		return result.toString();
 	}
 
-	public static String replacePlaceholders(String source, PropertyResolver resolver) {
-		String result = null;
-		if (source != null) {
-			ArrayList replacements = new ArrayList();
-			Matcher m = systemPropertyPattern.matcher(source);
-			while (m.find()) {
-				String replacementSource = m.group(1);
-				String systemPropertyValue = resolver.getProperty(m.group(2), null);
-				if (systemPropertyValue != null) {
-					replacements.add(new SourceAndReplacement(replacementSource, systemPropertyValue));
-				}
-			}
-			result = source;
-			for (int i = 0; i < replacements.size(); i++) {
-				SourceAndReplacement sr = (SourceAndReplacement) replacements.get(i);
-				result = result.replace(sr.source, sr.replacement);
-			}
+	/**
+	 * @param source
+	 *            value that may contain placeholders
+	 * @return names of the properties referenced by placeholders, empty if
+	 *         there are none
+	 */
+	public static Set<String> getPlaceholderNames(String source) {
+		return getPlaceholderNames(source, null);
+	}
+
+	/**
+	 * @param source
+	 *            value that may contain placeholders
+	 * @param resolver
+	 *            resolves keys with nested placeholders, e.g.
+	 *            <code>${db.${stage}.url}</code>, into the key they currently
+	 *            reference, may be null
+	 * @return names of the properties referenced by placeholders, empty if
+	 *         there are none
+	 */
+	public static Set<String> getPlaceholderNames(String source, PropertyResolver resolver) {
+		if (source == null || source.indexOf("${") < 0) {
+			return Collections.emptySet();
 		}
-		return result;
+		Set<String> names = new LinkedHashSet<>();
+		PlaceholderTemplate.compile(source).collectNames(names, resolver);
+		return names;
 	}
 
 }
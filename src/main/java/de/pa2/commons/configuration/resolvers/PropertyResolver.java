@@ -19,6 +19,10 @@
  */
 package de.pa2.commons.configuration.resolvers;
 
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
 /**
  * resolves properties, is used internally
  */
@@ -26,4 +30,23 @@ public interface PropertyResolver {
 
 	String getProperty(String propertyName, String defaultValue);
 
+	/**
+	 * resolves several properties at once, resolvers with expensive lookups
+	 * fetch them in a single call
+	 *
+	 * @param propertyNames
+	 *            names of the properties
+	 * @return values by name, properties that are not set are missing
+	 */
+	default Map<String, String> getProperties(Collection<String> propertyNames) {
+		Map<String, String> values = new HashMap<>();
+		for (String propertyName : propertyNames) {
+			String value = this.getProperty(propertyName, null);
+			if (value != null) {
+				values.put(propertyName, value);
+			}
+		}
+		return values;
+	}
+
 }
@@ -19,49 +19,225 @@
  */
 package de.pa2.commons.configuration.resolvers;
 
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
- * property resolver that uses resources
+ * property resolver that uses resources, the properties are kept as
+ * {@link CompactProperties}
  */
-public class ResourcePropertyResolver implements PropertyResolver {
-    private Properties properties = null;
+public class ResourcePropertyResolver implements ObservablePropertyResolver, EnumerablePropertyResolver {
+    private static final Logger LOG = LoggerFactory.getLogger(ResourcePropertyResolver.class);
+
+    private volatile CompactProperties properties = null;
+
+    /**
+     * file the properties were read from, null for resources and streams
+     */
+    private File file = null;
+
+    private final List<ResolverChangeListener> listeners = new CopyOnWriteArrayList<>();
 
     public ResourcePropertyResolver(String resourceName) {
         super();
         InputStream in = this.getClass().getClassLoader().getResourceAsStream(resourceName);
-        if (in != null) {
-            Properties tmp = new Properties();
+        this.properties = load(in);
+    }
+
+    public ResourcePropertyResolver(InputStream in) {
+        super();
+        this.properties = load(in);
+    }
+
+    /**
+     * reads the properties from a file that can be reloaded with
+     * {@link #reload()}
+     *
+     * @param file
+     *            properties file
+     */
+    public ResourcePropertyResolver(File file) {
+        super();
+        this.file = file;
+        this.properties = load(file);
+    }
+
+    private static CompactProperties load(File file) {
+        if (file != null && file.exists()) {
             try {
-                tmp.load(in);
-                in.close();
-                this.properties = tmp;
+                return read(new FileInputStream(file));
             } catch (IOException e) {
+                LOG.warn("could not read {}", file, e);
             }
-
         }
+        return null;
     }
 
-    public ResourcePropertyResolver(InputStream in) {
-        super();
+    private static CompactProperties load(InputStream in) {
         if (in != null) {
-            Properties tmp = new Properties();
             try {
-                tmp.load(in);
-                in.close();
-                this.properties = tmp;
+                return read(in);
             } catch (IOException e) {
+                LOG.warn("could not read properties", e);
             }
+        }
+        return null;
+    }
 
+    /**
+     * @param in
+     *            stream to read, is closed afterwards
+     */
+    private static CompactProperties read(InputStream in) throws IOException {
+        Properties tmp = new Properties();
+        try (InputStream closeable = in) {
+            tmp.load(closeable);
+        }
+        return CompactProperties.of(tmp);
+    }
+
+    /**
+     * @return file the properties were read from, null if they were not read
+     *         from a file
+     */
+    public File getFile() {
+        return this.file;
+    }
+
+    /**
+     * reads the file again and replaces all values at once, readers are not
+     * blocked. Listeners are notified about the changed properties.
+     * <p>
+     * If the file is missing, e.g. while an editor replaces it, or can not be
+     * read, the current values are kept.
+     *
+     * @return names of the properties that were added, removed or changed
+     */
+    public Set<String> reload() {
+        if (this.file == null) {
+            return Collections.emptySet();
+        }
+        if (!this.file.exists()) {
+            LOG.warn("{} does not exist, keeping the current values", this.file);
+            return Collections.emptySet();
+        }
+        CompactProperties newProperties;
+        try {
+            newProperties = read(new FileInputStream(this.file));
+        } catch (IOException e) {
+            LOG.warn("could not reload {}, keeping the current values", this.file, e);
+            return Collections.emptySet();
+        }
+        return this.replace(newProperties);
+    }
+
+    /**
+     * replaces all values at once, readers are not blocked. Listeners are
+     * notified about the changed properties. If the stream can not be read,
+     * the current values are kept.
+     *
+     * @param in
+     *            stream to read the new values from, is closed afterwards
+     * @return names of the properties that were added, removed or changed
+     */
+    public Set<String> reload(InputStream in) {
+        CompactProperties newProperties;
+        try {
+            newProperties = read(in);
+        } catch (IOException e) {
+            LOG.warn("could not reload properties, keeping the current values", e);
+            return Collections.emptySet();
+        }
+        return this.replace(newProperties);
+    }
+
+    private synchronized Set<String> replace(CompactProperties newProperties) {
+        CompactProperties oldProperties = this.properties;
+        Set<String> changed = new HashSet<>();
+        if (oldProperties != null) {
+            oldProperties.forEach((name, value) -> {
+                String newValue = newProperties != null ? newProperties.get(name) : null;
+                if (!value.equals(newValue)) {
+                    changed.add(name);
+                }
+            });
+        }
+        if (newProperties != null) {
+            newProperties.forEach((name, value) -> {
+                if (oldProperties == null || oldProperties.get(name) == null) {
+                    changed.add(name);
+                }
+            });
+        }
+        this.properties = newProperties;
+
+        if (!changed.isEmpty()) {
+            Set<String> unmodifiable = Collections.unmodifiableSet(changed);
+            for (ResolverChangeListener listener : this.listeners) {
+                listener.propertiesChanged(unmodifiable);
+            }
+        }
+        return changed;
+    }
+
+    @Override
+    public void addChangeListener(ResolverChangeListener listener) {
+        this.listeners.add(listener);
+    }
+
+    @Override
+    public void removeChangeListener(ResolverChangeListener listener) {
+        this.listeners.remove(listener);
+    }
+
+    @Override
+    public Map<String, String> getAllProperties() {
+        CompactProperties current = this.properties;
+        Map<String, String> all = new HashMap<>();
+        if (current != null) {
+            current.forEach(all::put);
+        }
+        return all;
+    }
+
+    /**
+     * all values are read from the same version of the file
+     */
+    @Override
+    public Map<String, String> getProperties(Collection<String> propertyNames) {
+        CompactProperties current = this.properties;
+        Map<String, String> values = new HashMap<>();
+        if (current != null) {
+            for (String propertyName : propertyNames) {
+                String value = current.get(propertyName);
+                if (value != null) {
+                    values.put(propertyName, value);
+                }
+            }
         }
+        return values;
     }
 
     @Override
     public String getProperty(String propertyName, String defaultValue) {
-        if (this.properties != null) {
-            return this.properties.getProperty(propertyName, defaultValue);
+        CompactProperties current = this.properties;
+        if (current != null) {
+            String value = current.get(propertyName);
+            return value != null ? value : defaultValue;
         }
         return defaultValue;
     }
@@ -19,12 +19,140 @@
  */
 package de.pa2.commons.configuration.resolvers;
 
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
 /**
- * property resolver that uses system properties
+ * property resolver that uses system properties. By default every lookup
+ * reads the current system properties; up to Java 8 they are a synchronized
+ * {@link java.util.Hashtable}, so many threads reading configuration contend
+ * on its monitor. In snapshot mode lookups read an immutable copy without
+ * locking, changes are only visible after {@link #refresh()}.
  */
-public class SystemPropertyResolver implements PropertyResolver {
+public class SystemPropertyResolver implements ObservablePropertyResolver {
+    /**
+     * copy of the system properties, null if they are read live
+     */
+    private volatile Map<String, String> snapshot;
+
+    private final List<ResolverChangeListener> listeners = new CopyOnWriteArrayList<>();
+
+    public SystemPropertyResolver() {
+        this(false);
+    }
+
+    /**
+     * @param snapshot
+     *            true to read an immutable copy of the system properties,
+     *            false to read them live
+     */
+    public SystemPropertyResolver(boolean snapshot) {
+        super();
+        this.snapshot = snapshot ? copySystemProperties() : null;
+    }
+
+    private static Map<String, String> copySystemProperties() {
+        Properties properties = System.getProperties();
+        Map<String, String> copy = new HashMap<>();
+        for (String propertyName : properties.stringPropertyNames()) {
+            String value = properties.getProperty(propertyName);
+            if (value != null) {
+                copy.put(propertyName, value);
+            }
+        }
+        return copy;
+    }
+
+    /**
+     * @return true if lookups read a copy of the system properties
+     */
+    public boolean isSnapshot() {
+        return this.snapshot != null;
+    }
+
+    /**
+     * copies the system properties again in snapshot mode and notifies the
+     * listeners about the changed properties, readers are not blocked
+     *
+     * @return names of the properties that were added, removed or changed,
+     *         empty if the properties are read live
+     */
+    public synchronized Set<String> refresh() {
+        Map<String, String> oldSnapshot = this.snapshot;
+        if (oldSnapshot == null) {
+            return Collections.emptySet();
+        }
+        Map<String, String> newSnapshot = copySystemProperties();
+        Set<String> changed = new HashSet<>();
+        for (Map.Entry<String, String> entry : oldSnapshot.entrySet()) {
+            if (!entry.getValue().equals(newSnapshot.get(entry.getKey()))) {
+                changed.add(entry.getKey());
+            }
+        }
+        for (String propertyName : newSnapshot.keySet()) {
+            if (!oldSnapshot.containsKey(propertyName)) {
+                changed.add(propertyName);
+            }
+        }
+        this.snapshot = newSnapshot;
+
+        if (!changed.isEmpty()) {
+            Set<String> unmodifiable = Collections.unmodifiableSet(changed);
+            for (ResolverChangeListener listener : this.listeners) {
+                listener.propertiesChanged(unmodifiable);
+            }
+        }
+        return changed;
+    }
+
+    @Override
+    public void addChangeListener(ResolverChangeListener listener) {
+        this.listeners.add(listener);
+    }
+
+    @Override
+    public void removeChangeListener(ResolverChangeListener listener) {
+        this.listeners.remove(listener);
+    }
+
     @Override
     public String getProperty(String propertyName, String defaultValue) {
+        Map<String, String> current = this.snapshot;
+        if (current != null) {
+            String value = current.get(propertyName);
+            return value != null ? value : defaultValue;
+        }
         return System.getProperty(propertyName, defaultValue);
     }
+
+    @Override
+    public Map<String, String> getProperties(Collection<String> propertyNames) {
+        Map<String, String> current = this.snapshot;
+        Map<String, String> values = new HashMap<>();
+        if (current != null) {
+            for (String propertyName : propertyNames) {
+                String value = current.get(propertyName);
+                if (value != null) {
+                    values.put(propertyName, value);
+                }
+            }
+            return values;
+        }
+        // one permission check for all properties
+        Properties properties = System.getProperties();
+        for (String propertyName : propertyNames) {
+            String value = properties.getProperty(propertyName);
+            if (value != null) {
+                values.put(propertyName, value);
+            }
+        }
+        return values;
+    }
 }
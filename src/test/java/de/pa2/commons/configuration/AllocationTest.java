@@ -0,0 +1,122 @@
+/*
+ * copyright (C) 2008-2019 Patrick Stricker
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA 02111-1307, USA
+ *
+ * Patrick Stricker - http://pa2.de
+ */
+package de.pa2.commons.configuration;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+
+import org.testng.annotations.Test;
+
+/**
+ * getters of cached values must not allocate once they are warmed up, the
+ * tests rely on debug logging being disabled
+ */
+public class AllocationTest {
+    private static final int CALLS = 10000;
+
+    @Test
+    public void proxyGettersDoNotAllocate() {
+        assertNoAllocation(createFactory(false, false));
+    }
+
+    @Test
+    public void generatedGettersDoNotAllocate() {
+        assertNoAllocation(createFactory(true, false));
+    }
+
+    @Test
+    public void snapshotGettersDoNotAllocate() {
+        assertNoAllocation(createFactory(true, true));
+    }
+
+    private static SystemPropertyConfigurationFactory createFactory(boolean generated, boolean snapshots) {
+        System.setProperty("allocation.name", "name");
+        System.setProperty("allocation.size", "100000");
+        System.setProperty("allocation.boxed.size", "100000");
+        System.setProperty("allocation.timeout", "100000000000");
+        System.setProperty("allocation.boxed.timeout", "100000000000");
+        System.setProperty("allocation.enabled", "true");
+        System.setProperty("allocation.mode", "slow");
+        SystemPropertyConfigurationFactory factory = new SystemPropertyConfigurationFactory();
+        factory.setGenerateImplementations(generated);
+        factory.setSnapshots(snapshots);
+        return factory;
+    }
+
+    private static void assertNoAllocation(SystemPropertyConfigurationFactory factory) {
+        AllocationConfiguration configuration = factory.getInstance(AllocationConfiguration.class);
+        assertEquals(read(configuration), 2 * 100000 + 2 * 100000000000l + 4 + 2 + 1 + 1);
+
+        java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (!(threads instanceof com.sun.management.ThreadMXBean)
+                || !((com.sun.management.ThreadMXBean) threads).isThreadAllocatedMemorySupported()) {
+            return;
+        }
+        com.sun.management.ThreadMXBean allocations = (com.sun.management.ThreadMXBean) threads;
+        long thread = Thread.currentThread().getId();
+        for (int i = 0; i < CALLS; i++) {
+            read(configuration);
+        }
+
+        long before = allocations.getThreadAllocatedBytes(thread);
+        long sum = 0;
+        for (int i = 0; i < CALLS; i++) {
+            sum += read(configuration);
+        }
+        long allocated = allocations.getThreadAllocatedBytes(thread) - before;
+
+        assertTrue(sum > 0);
+        // less than a byte per call leaves room for the measurement itself
+        assertTrue(allocated < CALLS, "allocated " + allocated + " bytes in " + CALLS + " calls");
+    }
+
+    private static long read(AllocationConfiguration configuration) {
+        return configuration.getSize() + configuration.getBoxedSize() + configuration.getTimeout()
+                + configuration.getBoxedTimeout() + configuration.getName().length()
+                + (configuration.isEnabled() ? 2 : 0) + (configuration.isBoxedEnabled() ? 0 : 1)
+                + configuration.getMode().ordinal();
+    }
+
+    public enum Mode {
+        FAST, SLOW
+    }
+
+    @ConfigurationPrefix("allocation")
+    public interface AllocationConfiguration extends Configuration {
+        String getName();
+
+        int getSize();
+
+        Integer getBoxedSize();
+
+        long getTimeout();
+
+        Long getBoxedTimeout();
+
+        boolean isEnabled();
+
+        @DefaultBooleanValue(false)
+        Boolean isBoxedEnabled();
+
+        Mode getMode();
+    }
+}
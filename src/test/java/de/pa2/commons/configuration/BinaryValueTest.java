@@ -0,0 +1,132 @@
+/*
+ * copyright (C) 2008-2019 Patrick Stricker
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA 02111-1307, USA
+ *
+ * Patrick Stricker - http://pa2.de
+ */
+package de.pa2.commons.configuration;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.concurrent.TimeUnit;
+
+import org.testng.annotations.Test;
+
+public class BinaryValueTest {
+
+    @Test
+    public void readsResources() throws IOException {
+        System.setProperty("binary.data", "resource://binary.bin");
+        System.setProperty("binary.buffer", "resource://binary.bin");
+        System.setProperty("binary.stream", "resource://binary.bin");
+        System.setProperty("binary.channel", "resource://binary.bin");
+        BinaryConfiguration configuration = new SystemPropertyConfigurationFactory()
+                .getInstance(BinaryConfiguration.class);
+
+        assertEquals(new String(configuration.getData(), StandardCharsets.UTF_8), "binary content");
+        assertNotSame(configuration.getData(), configuration.getData());
+        assertEquals(StandardCharsets.UTF_8.decode(configuration.getBuffer()).toString(), "binary content");
+        try (InputStream in = configuration.getStream()) {
+            assertEquals(in.read(), 'b');
+        }
+        try (ReadableByteChannel channel = configuration.getChannel()) {
+            ByteBuffer buffer = ByteBuffer.allocate(32);
+            assertEquals(channel.read(buffer), 14);
+        }
+    }
+
+    @Test
+    public void mapsFilesAndReadsThemAgainWhenChanged() throws Exception {
+        File file = File.createTempFile("binary", ".bin");
+        try {
+            Files.write(file.toPath(), "first".getBytes(StandardCharsets.UTF_8));
+            System.setProperty("binary.data", file.toURI().toString());
+            System.setProperty("binary.buffer", file.toURI().toString());
+            BinaryConfiguration configuration = new SystemPropertyConfigurationFactory()
+                    .getInstance(BinaryConfiguration.class);
+
+            ByteBuffer buffer = configuration.getBuffer();
+            assertTrue(buffer.isDirect());
+            assertTrue(buffer.isReadOnly());
+            assertEquals(new String(configuration.getData(), StandardCharsets.UTF_8), "first");
+
+            // mapped files are replaced, not written in place
+            File replacement = File.createTempFile("binary", ".bin", file.getParentFile());
+            Files.write(replacement.toPath(), "second".getBytes(StandardCharsets.UTF_8));
+            Files.setLastModifiedTime(replacement.toPath(), FileTime.fromMillis(file.lastModified() + 2000));
+            Files.move(replacement.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE,
+                    StandardCopyOption.REPLACE_EXISTING);
+            assertEquals(new String(configuration.getData(), StandardCharsets.UTF_8), "first");
+            assertEquals(StandardCharsets.UTF_8.decode(buffer).toString(), "first");
+
+            Thread.sleep(TimeUnit.NANOSECONDS.toMillis(BinaryValue.CHECK_INTERVAL_NANOS) + 50);
+            assertEquals(new String(configuration.getData(), StandardCharsets.UTF_8), "second");
+            assertEquals(configuration.getBuffer().remaining(), 6);
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void instancesKeepTheirOwnContent() throws Exception {
+        File first = File.createTempFile("binary", ".bin");
+        File second = File.createTempFile("binary", ".bin");
+        try {
+            Files.write(first.toPath(), "first".getBytes(StandardCharsets.UTF_8));
+            Files.write(second.toPath(), "second".getBytes(StandardCharsets.UTF_8));
+            TenantConfigurationFactory factory = new TenantConfigurationFactory(new SystemPropertyConfigurationFactory());
+            factory.getTenant("first").setOverride("binary.data", first.toURI().toString());
+            factory.getTenant("second").setOverride("binary.data", second.toURI().toString());
+            BinaryConfiguration firstConfiguration = factory.getInstance("first", BinaryConfiguration.class);
+            BinaryConfiguration secondConfiguration = factory.getInstance("second", BinaryConfiguration.class);
+            assertEquals(new String(firstConfiguration.getData(), StandardCharsets.UTF_8), "first");
+            assertEquals(new String(secondConfiguration.getData(), StandardCharsets.UTF_8), "second");
+
+            // reading the other tenant does not make the first read its file again
+            File replacement = File.createTempFile("binary", ".bin", first.getParentFile());
+            Files.write(replacement.toPath(), "changed".getBytes(StandardCharsets.UTF_8));
+            Files.move(replacement.toPath(), first.toPath(), StandardCopyOption.ATOMIC_MOVE,
+                    StandardCopyOption.REPLACE_EXISTING);
+            assertEquals(new String(secondConfiguration.getData(), StandardCharsets.UTF_8), "second");
+            assertEquals(new String(firstConfiguration.getData(), StandardCharsets.UTF_8), "first");
+        } finally {
+            first.delete();
+            second.delete();
+        }
+    }
+
+    @ConfigurationPrefix("binary")
+    public interface BinaryConfiguration extends Configuration {
+        byte[] getData();
+
+        ByteBuffer getBuffer();
+
+        InputStream getStream();
+
+        ReadableByteChannel getChannel();
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * copyright (C) 2008-2019 Patrick Stricker
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA 02111-1307, USA
+ *
+ * Patrick Stricker - http://pa2.de
+ */
+package de.pa2.commons.configuration;
+
+import static org.testng.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.testng.annotations.Test;
+
+import de.pa2.commons.configuration.resolvers.PropertyResolver;
+import de.pa2.commons.configuration.resolvers.ResourcePropertyResolver;
+
+public class ConfigurationChangeNotifierTest {
+
+    @Test
+    public void notifiesDependentSubscribersOnly() {
+        ResourcePropertyResolver resolver = new ResourcePropertyResolver(
+                stream("service.url=http://${service.host}:${service.port}\nservice.host=a\nservice.port=1\nother=x\n"));
+        AbstractConfigurationFactory factory = new AbstractConfigurationFactory() {
+            @Override
+            protected PropertyResolver getResolver() {
+                return resolver;
+            }
+        };
+        factory.setNotificationExecutor(Runnable::run);
+
+        List<ConfigurationChangeEvent> events = new ArrayList<>();
+        ConfigurationSubscription subscription =
+                factory.subscribe(ServiceConfiguration.class, "getUrl", events::add);
+
+        resolver.reload(stream("service.url=http://${service.host}:${service.port}\nservice.host=b\nservice.port=1\nother=x\n"));
+        assertEquals(events.size(), 1);
+        assertEquals(events.get(0).getPropertyName(), "service.url");
+        assertEquals(events.get(0).getOldValue(), "http://a:1");
+        assertEquals(events.get(0).getNewValue(), "http://b:1");
+
+        resolver.reload(stream("service.url=http://${service.host}:${service.port}\nservice.host=b\nservice.port=1\nother=y\n"));
+        assertEquals(events.size(), 1);
+
+        subscription.cancel();
+        resolver.reload(stream("service.url=http://${service.host}:${service.port}\nservice.host=c\nservice.port=1\n"));
+        assertEquals(events.size(), 1);
+    }
+
+    @Test
+    public void methodSubscriptionsReportTheDefault() {
+        ResourcePropertyResolver resolver = new ResourcePropertyResolver(stream("service.port=8080\n"));
+        AbstractConfigurationFactory factory = new AbstractConfigurationFactory() {
+            @Override
+            protected PropertyResolver getResolver() {
+                return resolver;
+            }
+        };
+        factory.setNotificationExecutor(Runnable::run);
+
+        List<ConfigurationChangeEvent> events = new ArrayList<>();
+        factory.subscribe(ServiceConfiguration.class, "getPort", events::add);
+        resolver.reload(stream(""));
+        assertEquals(events.size(), 1);
+        assertEquals(events.get(0).getOldValue(), "8080");
+        assertEquals(events.get(0).getNewValue(), "80");
+        assertEquals(factory.getInstance(ServiceConfiguration.class).getPort(), 80);
+    }
+
+    @Test
+    public void nestedKeysAreTracked() {
+        String base = "service.endpoint=${db.${stage}.url}\n";
+        ResourcePropertyResolver resolver = new ResourcePropertyResolver(
+                stream(base + "stage=prod\ndb.prod.url=p1\ndb.test.url=t1\n"));
+        AbstractConfigurationFactory factory = new AbstractConfigurationFactory() {
+            @Override
+            protected PropertyResolver getResolver() {
+                return resolver;
+            }
+        };
+        factory.setNotificationExecutor(Runnable::run);
+
+        List<String> values = new ArrayList<>();
+        factory.subscribe("service.endpoint", event -> values.add(event.getNewValue()));
+
+        resolver.reload(stream(base + "stage=prod\ndb.prod.url=p2\ndb.test.url=t1\n"));
+        resolver.reload(stream(base + "stage=test\ndb.prod.url=p2\ndb.test.url=t1\n"));
+        // no longer referenced
+        resolver.reload(stream(base + "stage=test\ndb.prod.url=p3\ndb.test.url=t1\n"));
+        resolver.reload(stream(base + "stage=test\ndb.prod.url=p3\ndb.test.url=t2\n"));
+        assertEquals(values, Arrays.asList("p2", "t1", "t2"));
+    }
+
+    @Test
+    public void placeholdersOfDefaultsAreTracked() {
+        ResourcePropertyResolver resolver = new ResourcePropertyResolver(stream("service.host=a\n"));
+        AbstractConfigurationFactory factory = new AbstractConfigurationFactory() {
+            @Override
+            protected PropertyResolver getResolver() {
+                return resolver;
+            }
+        };
+        factory.setNotificationExecutor(Runnable::run);
+
+        List<ConfigurationChangeEvent> events = new ArrayList<>();
+        factory.subscribe(ServiceConfiguration.class, "getHome", events::add);
+        resolver.reload(stream("service.host=b\n"));
+        assertEquals(events.size(), 1);
+        assertEquals(events.get(0).getOldValue(), "http://a");
+        assertEquals(events.get(0).getNewValue(), "http://b");
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void unknownMethod() {
+        new SystemPropertyConfigurationFactory().subscribe(ServiceConfiguration.class, "getUnknown", event -> {
+        });
+    }
+
+    private static ByteArrayInputStream stream(String properties) {
+        return new ByteArrayInputStream(properties.getBytes(StandardCharsets.ISO_8859_1));
+    }
+
+    @ConfigurationPrefix("service")
+    public interface ServiceConfiguration extends Configuration {
+        String getUrl();
+
+        @DefaultIntValue(80)
+        int getPort();
+
+        @DefaultStringValue("http://${service.host}")
+        String getHome();
+    }
+}
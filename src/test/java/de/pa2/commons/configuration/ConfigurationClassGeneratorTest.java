@@ -0,0 +1,109 @@
+/*
+ * copyright (C) 2008-2019 Patrick Stricker
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA 02111-1307, USA
+ *
+ * Patrick Stricker - http://pa2.de
+ */
+package de.pa2.commons.configuration;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.lang.reflect.Proxy;
+
+import org.testng.annotations.Test;
+
+public class ConfigurationClassGeneratorTest {
+
+    @Test
+    public void generatedImplementation() {
+        SystemPropertyConfigurationFactory factory = new SystemPropertyConfigurationFactory();
+        factory.setGenerateImplementations(true);
+
+        GeneratedConfiguration configuration = factory.getInstance(GeneratedConfiguration.class);
+        assertFalse(Proxy.isProxyClass(configuration.getClass()));
+
+        assertEquals(configuration.getGeneratedInt(), 7);
+        System.setProperty("generated.int", "-3");
+        assertEquals(configuration.getGeneratedInt(), -3);
+
+        assertEquals(configuration.getGeneratedLong(), 0L);
+        System.setProperty("generated.long", "55555");
+        assertEquals(configuration.getGeneratedLong(), 55555L);
+
+        assertTrue(configuration.isGeneratedEnabled());
+        System.setProperty("generated.enabled", "false");
+        assertFalse(configuration.isGeneratedEnabled());
+
+        assertNull(configuration.getGeneratedInteger());
+        System.setProperty("generated.integer", "12");
+        assertEquals(configuration.getGeneratedInteger(), Integer.valueOf(12));
+
+        assertEquals(configuration.getGeneratedName(), "generated");
+        assertNull(configuration.getGeneratedChoice());
+        System.setProperty("generated.choice", "b");
+        assertEquals(configuration.getGeneratedChoice(), TestConfiguration.TestEnum.B);
+
+        assertTrue(configuration.toString().contains("generated.name:generated"));
+    }
+
+    @Test
+    public void generatedSetter() {
+        SystemPropertyConfigurationFactory factory = new SystemPropertyConfigurationFactory();
+        factory.setGenerateImplementations(true);
+
+        GeneratedConfiguration configuration = factory.getInstance(GeneratedConfiguration.class);
+        configuration.setGeneratedInt(5);
+        assertEquals(configuration.getGeneratedInt(), 5);
+        assertEquals(factory.getOverrides().get("generated.int"), "5");
+    }
+
+    @Test
+    public void nonPublicInterfaceUsesProxy() {
+        SystemPropertyConfigurationFactory factory = new SystemPropertyConfigurationFactory();
+        factory.setGenerateImplementations(true);
+
+        HiddenConfiguration configuration = factory.getInstance(HiddenConfiguration.class);
+        assertTrue(Proxy.isProxyClass(configuration.getClass()));
+        assertEquals(configuration.getHiddenName(), "hidden");
+    }
+
+    public interface GeneratedConfiguration extends Configuration {
+        @DefaultIntValue(7)
+        int getGeneratedInt();
+
+        void setGeneratedInt(int value);
+
+        long getGeneratedLong();
+
+        @DefaultBooleanValue(true)
+        boolean isGeneratedEnabled();
+
+        Integer getGeneratedInteger();
+
+        @DefaultStringValue("generated")
+        String getGeneratedName();
+
+        TestConfiguration.TestEnum getGeneratedChoice();
+    }
+
+    interface HiddenConfiguration extends Configuration {
+        @DefaultStringValue("hidden")
+        String getHiddenName();
+    }
+}
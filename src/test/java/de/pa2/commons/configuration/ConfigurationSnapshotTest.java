@@ -0,0 +1,159 @@
+/*
+ * copyright (C) 2008-2019 Patrick Stricker
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA 02111-1307, USA
+ *
+ * Patrick Stricker - http://pa2.de
+ */
+package de.pa2.commons.configuration;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.annotations.Test;
+
+import de.pa2.commons.configuration.resolvers.PropertyResolver;
+import de.pa2.commons.configuration.resolvers.SystemPropertyResolver;
+
+public class ConfigurationSnapshotTest {
+
+    @Test
+    public void snapshotValuesChangeOnReload() throws Exception {
+        SystemPropertyConfigurationFactory factory = new SystemPropertyConfigurationFactory();
+        factory.setSnapshots(true);
+
+        System.setProperty("snapshot.size", "1");
+        System.setProperty("snapshot.name", "${snapshot.size}-first");
+        SnapshotConfiguration configuration = factory.getInstance(SnapshotConfiguration.class);
+        assertEquals(configuration.getSnapshotSize(), 1);
+        assertEquals(configuration.getSnapshotName(), "1-first");
+        assertTrue(configuration.isSnapshotEnabled());
+
+        System.setProperty("snapshot.size", "2");
+        System.setProperty("snapshot.enabled", "false");
+        assertEquals(configuration.getSnapshotSize(), 1);
+        assertTrue(configuration.isSnapshotEnabled());
+
+        factory.reload().get();
+        assertEquals(configuration.getSnapshotSize(), 2);
+        assertEquals(configuration.getSnapshotName(), "2-first");
+        assertFalse(configuration.isSnapshotEnabled());
+    }
+
+    @Test
+    public void generatedImplementationReadsSnapshot() throws Exception {
+        SystemPropertyConfigurationFactory factory = new SystemPropertyConfigurationFactory();
+        factory.setSnapshots(true);
+        factory.setGenerateImplementations(true);
+
+        System.setProperty("snapshot.generated.size", "3");
+        SnapshotConfiguration configuration = factory.getInstance(SnapshotConfiguration.class);
+        assertEquals(configuration.getSnapshotGeneratedSize(), 3L);
+
+        System.setProperty("snapshot.generated.size", "4");
+        assertEquals(configuration.getSnapshotGeneratedSize(), 3L);
+        factory.reload().get();
+        assertEquals(configuration.getSnapshotGeneratedSize(), 4L);
+    }
+
+    @Test
+    public void runtimeOverridesUpdateSnapshots() throws Exception {
+        SystemPropertyConfigurationFactory factory = new SystemPropertyConfigurationFactory();
+        factory.setSnapshots(true);
+
+        SnapshotConfiguration configuration = factory.getInstance(SnapshotConfiguration.class);
+        SnapshotConfiguration own = factory.getInstance(SnapshotConfiguration.class,
+                Collections.singletonMap("snapshot.override.size", "5"));
+        assertEquals(configuration.getSnapshotOverrideSize(), 0);
+        assertEquals(own.getSnapshotOverrideSize(), 5);
+
+        factory.setOverride("snapshot.override.size", "7");
+        factory.reload().get();
+        assertEquals(configuration.getSnapshotOverrideSize(), 7);
+        assertEquals(own.getSnapshotOverrideSize(), 5);
+
+        own.setSnapshotOverrideSize(6);
+        factory.removeOverride("snapshot.override.size");
+        factory.reload().get();
+        assertEquals(configuration.getSnapshotOverrideSize(), 0);
+        assertEquals(own.getSnapshotOverrideSize(), 6);
+    }
+
+    @Test(expectedExceptions = NumberFormatException.class)
+    public void conversionErrorsAreThrownOnRead() {
+        SystemPropertyConfigurationFactory factory = new SystemPropertyConfigurationFactory();
+        factory.setSnapshots(true);
+
+        System.setProperty("snapshot.broken", "not a number");
+        factory.getInstance(SnapshotConfiguration.class).getSnapshotBroken();
+    }
+
+    @Test
+    public void snapshotsAndToStringUseBulkLookups() {
+        AtomicInteger lookups = new AtomicInteger();
+        AtomicInteger bulkLookups = new AtomicInteger();
+        PropertyResolver resolver = new SystemPropertyResolver() {
+            @Override
+            public String getProperty(String propertyName, String defaultValue) {
+                lookups.incrementAndGet();
+                return super.getProperty(propertyName, defaultValue);
+            }
+
+            @Override
+            public Map<String, String> getProperties(Collection<String> propertyNames) {
+                bulkLookups.incrementAndGet();
+                return super.getProperties(propertyNames);
+            }
+        };
+        AbstractConfigurationFactory factory = new AbstractConfigurationFactory() {
+            @Override
+            protected PropertyResolver getResolver() {
+                return resolver;
+            }
+        };
+        factory.setSnapshots(true);
+
+        System.setProperty("snapshot.size", "5");
+        System.setProperty("snapshot.name", "plain");
+        SnapshotConfiguration configuration = factory.getInstance(SnapshotConfiguration.class);
+        assertEquals(configuration.getSnapshotSize(), 5);
+        assertTrue(configuration.toString().contains("snapshot.name:plain"));
+        assertEquals(bulkLookups.get(), 2);
+        assertEquals(lookups.get(), 0);
+    }
+
+    public interface SnapshotConfiguration extends Configuration {
+        int getSnapshotSize();
+
+        String getSnapshotName();
+
+        @DefaultBooleanValue(true)
+        boolean isSnapshotEnabled();
+
+        long getSnapshotGeneratedSize();
+
+        int getSnapshotBroken();
+
+        int getSnapshotOverrideSize();
+
+        void setSnapshotOverrideSize(int size);
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * copyright (C) 2008-2019 Patrick Stricker
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA 02111-1307, USA
+ *
+ * Patrick Stricker - http://pa2.de
+ */
+package de.pa2.commons.configuration;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.ref.WeakReference;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Map;
+
+import org.testng.annotations.Test;
+
+import de.pa2.commons.configuration.resolvers.PropertyResolver;
+import de.pa2.commons.configuration.resolvers.ResourcePropertyResolver;
+
+public class InstanceCacheTest {
+
+    @Test
+    public void repeatedCallsReturnTheSameInstance() {
+        SystemPropertyConfigurationFactory factory = new SystemPropertyConfigurationFactory();
+        TestConfiguration instance = factory.getInstance(TestConfiguration.class);
+        assertSame(factory.getInstance(TestConfiguration.class), instance);
+
+        factory.setSnapshots(true);
+        assertNotSame(factory.getInstance(TestConfiguration.class), instance);
+    }
+
+    @Test
+    public void instancesWithOwnValuesAreNotCached() {
+        Map<String, String> values = Collections.singletonMap("name", "own");
+        TestConfiguration instance = ConfigurationFactory.getInstance(TestConfiguration.class, values);
+        assertEquals(instance.getName(), "own");
+        assertNotSame(ConfigurationFactory.getInstance(TestConfiguration.class, values), instance);
+        assertNotSame(ConfigurationFactory.getInstance(TestConfiguration.class), instance);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void instancesDoNotPinClassLoaders() throws Exception {
+        ResourcePropertyResolver resolver = new ResourcePropertyResolver(
+                new ByteArrayInputStream("unloadable.name=value".getBytes(StandardCharsets.ISO_8859_1)));
+        AbstractConfigurationFactory factory = new AbstractConfigurationFactory() {
+            @Override
+            protected PropertyResolver getResolver() {
+                return resolver;
+            }
+        };
+        factory.setSnapshots(true);
+
+        WeakReference<ClassLoader> loader = load(factory);
+        for (int i = 0; i < 20 && loader.get() != null; i++) {
+            System.gc();
+            Thread.sleep(50);
+        }
+        assertNull(loader.get());
+        // the factory is still usable
+        factory.reload().get();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static WeakReference<ClassLoader> load(AbstractConfigurationFactory factory) throws Exception {
+        ClassLoader loader = new IsolatingClassLoader(UnloadableConfiguration.class.getName());
+        Class<? extends Configuration> clazz = (Class<? extends Configuration>) loader
+                .loadClass(UnloadableConfiguration.class.getName());
+        Configuration instance = factory.getInstance(clazz);
+        assertEquals(instance.getClass().getClassLoader(), loader);
+        assertEquals(clazz.getMethod("getName").invoke(instance), "value");
+        return new WeakReference<>(loader);
+    }
+
+    @ConfigurationPrefix("unloadable")
+    public interface UnloadableConfiguration extends Configuration {
+        String getName();
+    }
+
+    /**
+     * defines a single class itself, like the class loader of a webapp
+     */
+    private static final class IsolatingClassLoader extends ClassLoader {
+        private final String isolated;
+
+        IsolatingClassLoader(String isolated) {
+            super(InstanceCacheTest.class.getClassLoader());
+            this.isolated = isolated;
+        }
+
+        @Override
+        protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+            if (!this.isolated.equals(name)) {
+                return super.loadClass(name, resolve);
+            }
+            synchronized (getClassLoadingLock(name)) {
+                Class<?> loaded = findLoadedClass(name);
+                if (loaded == null) {
+                    try (InputStream in = getParent().getResourceAsStream(name.replace('.', '/') + ".class")) {
+                        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                        byte[] buffer = new byte[4096];
+                        for (int read = in.read(buffer); read >= 0; read = in.read(buffer)) {
+                            bytes.write(buffer, 0, read);
+                        }
+                        loaded = defineClass(name, bytes.toByteArray(), 0, bytes.size());
+                    } catch (IOException e) {
+                        throw new ClassNotFoundException(name, e);
+                    }
+                }
+                return loaded;
+            }
+        }
+    }
+}
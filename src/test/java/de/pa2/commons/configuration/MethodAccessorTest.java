@@ -0,0 +1,202 @@
+/*
+ * copyright (C) 2008-2019 Patrick Stricker
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA 02111-1307, USA
+ *
+ * Patrick Stricker - http://pa2.de
+ */
+package de.pa2.commons.configuration;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import org.testng.annotations.Test;
+
+import de.pa2.commons.configuration.converters.DataSize;
+
+public class MethodAccessorTest {
+
+    @Test
+    public void getConfigurationPropertyName() {
+        assertEquals(MethodAccessor.getConfigurationPropertyName("getName", null), "name");
+        assertEquals(MethodAccessor.getConfigurationPropertyName("isActiveDefault", null), "active.default");
+        assertEquals(MethodAccessor.getConfigurationPropertyName("setLongValue", null), "long.value");
+        assertEquals(MethodAccessor.getConfigurationPropertyName("getNullLong", "prefixed"), "prefixed.null.long");
+        assertEquals(MethodAccessor.getConfigurationPropertyName("getNullLong", "prefixed."), "prefixed.null.long");
+    }
+
+    @Test
+    public void compiledAccessorsAreReused() throws Exception {
+        Method getter = TestConfiguration.class.getMethod("isActiveDefault");
+        MethodAccessor accessor = ConfigurationInterface.of(TestConfiguration.class).getAccessor(getter);
+        assertNotNull(accessor);
+        assertSame(ConfigurationInterface.of(TestConfiguration.class), ConfigurationInterface.of(TestConfiguration.class));
+
+        TestConfiguration configuration =
+                new SystemPropertyConfigurationFactory().getInstance(TestConfiguration.class);
+        TestConfiguration other =
+                new SystemPropertyConfigurationFactory().getInstance(TestConfiguration.class);
+        for (int i = 0; i < 3; i++) {
+            assertTrue(configuration.isActiveDefault());
+            assertTrue(other.isActiveDefault());
+        }
+        assertSame(ConfigurationInterface.of(TestConfiguration.class).getAccessor(getter), accessor);
+        String description = configuration.toString();
+        assertTrue(description.startsWith(TestConfiguration.class.getName() + "("));
+        assertTrue(description.contains("active.default:true"));
+    }
+
+    @Test
+    public void settersWriteRuntimeOverrides() {
+        SystemPropertyConfigurationFactory factory = new SystemPropertyConfigurationFactory();
+        SettableConfiguration configuration = factory.getInstance(SettableConfiguration.class);
+        System.setProperty("settable.name", "system");
+        try {
+            configuration.setName("override");
+            configuration.setAddress(new InetSocketAddress("127.0.0.1", 8080));
+            configuration.setChoice(TestConfiguration.TestEnum.B);
+            assertEquals(configuration.getName(), "override");
+            assertEquals(configuration.getAddress(), new InetSocketAddress("127.0.0.1", 8080));
+            assertEquals(configuration.getChoice(), TestConfiguration.TestEnum.B);
+            assertEquals(factory.getOverrides().get("settable.address"), "127.0.0.1:8080");
+
+            configuration.setName(null);
+            assertEquals(configuration.getName(), "system");
+        } finally {
+            System.clearProperty("settable.name");
+        }
+    }
+
+    @Test
+    public void convertedValuesAreCached() {
+        System.setProperty("converted.buffer.size", "64KB");
+        System.setProperty("converted.ratio", "0.75");
+        System.setProperty("converted.pattern", "a+b");
+        System.setProperty("converted.address", "127.0.0.1:8080");
+        System.setProperty("converted.choice", "b");
+        try {
+            ConvertedConfiguration configuration =
+                    new SystemPropertyConfigurationFactory().getInstance(ConvertedConfiguration.class);
+
+            assertEquals(configuration.getTimeout(), Duration.ofSeconds(30));
+            assertEquals(configuration.getBufferSize(), DataSize.ofKilobytes(64));
+            assertEquals(configuration.getRatio(), 0.75d);
+            assertEquals(configuration.getMissingRatio(), 0d);
+            assertTrue(configuration.getPattern().matcher("aab").matches());
+            assertSame(configuration.getPattern(), configuration.getPattern());
+            assertEquals(configuration.getAddress(), new InetSocketAddress("127.0.0.1", 8080));
+            assertEquals(configuration.getChoice(), TestConfiguration.TestEnum.B);
+
+            System.setProperty("converted.pattern", "c+");
+            assertTrue(configuration.getPattern().matcher("cc").matches());
+        } finally {
+            System.clearProperty("converted.buffer.size");
+            System.clearProperty("converted.ratio");
+            System.clearProperty("converted.pattern");
+            System.clearProperty("converted.address");
+            System.clearProperty("converted.choice");
+        }
+    }
+
+    @Test
+    public void generatedImplementationsProvideAccessorsAndTimesToLive() throws Exception {
+        ConfigurationInterface metadata = new ConfigurationInterface(new GeneratedSettableConfiguration());
+
+        MethodAccessor getter = metadata.getAccessor(SettableConfiguration.class.getMethod("getName"));
+        assertTrue(getter instanceof MethodAccessor.PropertyAccessor);
+        assertEquals(((MethodAccessor.PropertyAccessor) getter).defaultValue, "unnamed");
+        assertNotNull(metadata.getAccessor(SettableConfiguration.class.getMethod("setName", String.class)));
+        assertNull(metadata.getAccessor(Object.class.getMethod("hashCode")));
+        assertEquals(metadata.getTimesToLive(),
+                Collections.singletonMap("settable.name", TimeUnit.SECONDS.toNanos(5)));
+    }
+
+    /**
+     * metadata as written by the annotation processor
+     */
+    private static final class GeneratedSettableConfiguration
+            implements ConfigurationImplementation<SettableConfiguration> {
+        private static final List<ConfigurationMethod> METHODS = Arrays.asList(
+                new ConfigurationMethod("getName", String.class, new Class<?>[] {}, "settable.name", "unnamed",
+                        TimeUnit.SECONDS.toNanos(5)),
+                new ConfigurationMethod("setName", void.class, new Class<?>[] { String.class }, null, null, -1L),
+                new ConfigurationMethod("toString", String.class, new Class<?>[] {}, null, null, -1L));
+
+        @Override
+        public Class<SettableConfiguration> getInterface() {
+            return SettableConfiguration.class;
+        }
+
+        @Override
+        public String getConfigurationPropertyNamePrefix() {
+            return "settable";
+        }
+
+        @Override
+        public List<ConfigurationMethod> getMethods() {
+            return METHODS;
+        }
+
+        @Override
+        public SettableConfiguration newInstance(ConfigurationValues values) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    @ConfigurationPrefix("settable")
+    public interface SettableConfiguration extends Configuration {
+        String getName();
+
+        void setName(String name);
+
+        InetSocketAddress getAddress();
+
+        void setAddress(InetSocketAddress address);
+
+        TestConfiguration.TestEnum getChoice();
+
+        void setChoice(TestConfiguration.TestEnum choice);
+    }
+
+    @ConfigurationPrefix("converted")
+    public interface ConvertedConfiguration extends Configuration {
+        @DefaultStringValue("30s")
+        Duration getTimeout();
+
+        DataSize getBufferSize();
+
+        double getRatio();
+
+        double getMissingRatio();
+
+        Pattern getPattern();
+
+        InetSocketAddress getAddress();
+
+        TestConfiguration.TestEnum getChoice();
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * copyright (C) 2008-2019 Patrick Stricker
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA 02111-1307, USA
+ *
+ * Patrick Stricker - http://pa2.de
+ */
+package de.pa2.commons.configuration;
+
+import static org.testng.Assert.assertEquals;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.annotations.Test;
+
+import de.pa2.commons.configuration.resolvers.AggregatedPropertyResolver;
+import de.pa2.commons.configuration.resolvers.CachingPropertyResolver;
+import de.pa2.commons.configuration.resolvers.PropertyResolver;
+import de.pa2.commons.configuration.resolvers.SystemPropertyResolver;
+
+public class ResolverSharingTest {
+
+    @Test
+    public void resolverChainIsBuiltOnce() {
+        AtomicInteger builds = new AtomicInteger();
+        AbstractConfigurationFactory factory = new AbstractConfigurationFactory() {
+            @Override
+            protected PropertyResolver getResolver() {
+                builds.incrementAndGet();
+                return new SystemPropertyResolver();
+            }
+        };
+
+        factory.getInstance(TestConfiguration.class);
+        factory.getInstance(PrefixedConfiguration.class);
+        factory.getInstance(TestConfiguration.class);
+        factory.subscribe("some.property", event -> {
+        });
+
+        assertEquals(builds.get(), 1);
+    }
+
+    @Test
+    public void timesToLiveArePassedToCaches() {
+        AbstractConfigurationFactory factory = new AbstractConfigurationFactory() {
+            @Override
+            protected PropertyResolver getResolver() {
+                AggregatedPropertyResolver resolver = new AggregatedPropertyResolver();
+                resolver.add(new CachingPropertyResolver(new SystemPropertyResolver(), 1, TimeUnit.HOURS, 100,
+                        Runnable::run));
+                return resolver;
+            }
+        };
+        System.setProperty("cached.short", "1");
+        System.setProperty("cached.long", "1");
+        try {
+            CachedConfiguration configuration = factory.getInstance(CachedConfiguration.class);
+            assertEquals(configuration.getShort(), "1");
+            assertEquals(configuration.getLong(), "1");
+
+            System.setProperty("cached.short", "2");
+            System.setProperty("cached.long", "2");
+            // the expired value is served while it is refreshed
+            assertEquals(configuration.getShort(), "1");
+            assertEquals(configuration.getShort(), "2");
+            assertEquals(configuration.getLong(), "1");
+        } finally {
+            System.clearProperty("cached.short");
+            System.clearProperty("cached.long");
+        }
+    }
+
+    @ConfigurationPrefix("cached")
+    public interface CachedConfiguration extends Configuration {
+        @TimeToLive(0)
+        String getShort();
+
+        String getLong();
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * copyright (C) 2008-2019 Patrick Stricker
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA 02111-1307, USA
+ *
+ * Patrick Stricker - http://pa2.de
+ */
+package de.pa2.commons.configuration;
+
+import static org.testng.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.testng.annotations.Test;
+
+import de.pa2.commons.configuration.resolvers.OverlayPropertyResolver;
+import de.pa2.commons.configuration.resolvers.PersistentPropertyMap;
+import de.pa2.commons.configuration.resolvers.ResourcePropertyResolver;
+
+public class TenantConfigurationFactoryTest {
+
+    @Test
+    public void tenantsOverrideTheSharedBase() {
+        TenantConfigurationFactory factory = new TenantConfigurationFactory(new SystemPropertyConfigurationFactory());
+        factory.getTenant("acme").setOverride("tenant.name", "acme");
+
+        System.setProperty("tenant.name", "base");
+        System.setProperty("tenant.size", "1");
+        try {
+            TenantConfiguration acme = factory.getInstance("acme", TenantConfiguration.class);
+            TenantConfiguration other = factory.getInstance("other", TenantConfiguration.class);
+            assertEquals(acme.getTenantName(), "acme");
+            assertEquals(other.getTenantName(), "base");
+            assertEquals(acme.getTenantSize(), 1);
+
+            System.setProperty("tenant.size", "2");
+            assertEquals(acme.getTenantSize(), 2);
+            assertEquals(other.getTenantSize(), 2);
+
+            factory.getTenant("acme").removeOverride("tenant.name");
+            assertEquals(acme.getTenantName(), "base");
+            assertEquals(factory.getTenantIds().size(), 2);
+            assertTrue(factory.removeTenant("other"));
+        } finally {
+            System.clearProperty("tenant.name");
+            System.clearProperty("tenant.size");
+        }
+    }
+
+    @Test
+    public void tenantsKeepTheirOwnConversions() {
+        TenantConfigurationFactory factory = new TenantConfigurationFactory(new SystemPropertyConfigurationFactory());
+        factory.getTenant("acme").setOverride("tenant.timeout", "PT1S");
+        factory.getTenant("other").setOverride("tenant.timeout", "PT2S");
+
+        TenantConfiguration acme = factory.getInstance("acme", TenantConfiguration.class);
+        TenantConfiguration other = factory.getInstance("other", TenantConfiguration.class);
+        Duration acmeTimeout = acme.getTenantTimeout();
+        Duration otherTimeout = other.getTenantTimeout();
+        assertEquals(acmeTimeout, Duration.ofSeconds(1));
+        assertEquals(otherTimeout, Duration.ofSeconds(2));
+        // reading the other tenant does not replace the conversion
+        assertSame(acme.getTenantTimeout(), acmeTimeout);
+        assertSame(other.getTenantTimeout(), otherTimeout);
+    }
+
+    @Test
+    public void overlaysReportChanges() {
+        ResourcePropertyResolver base = new ResourcePropertyResolver(
+                new ByteArrayInputStream("a=1\nb=1\n".getBytes()));
+        OverlayPropertyResolver overlay = new OverlayPropertyResolver(base, PersistentPropertyMap.empty().put("a", "2"));
+        List<String> changes = new ArrayList<>();
+        overlay.addChangeListener(changes::addAll);
+
+        base.reload(new ByteArrayInputStream("a=3\nb=3\n".getBytes()));
+        assertEquals(changes, Collections.singletonList("b"));
+        assertEquals(overlay.getProperty("a", null), "2");
+        assertEquals(overlay.getProperty("b", null), "3");
+
+        changes.clear();
+        overlay.removeOverride("a");
+        assertEquals(changes, Collections.singletonList("a"));
+        assertEquals(overlay.getProperty("a", null), "3");
+
+        overlay.close();
+        changes.clear();
+        base.reload(new ByteArrayInputStream("a=4\n".getBytes()));
+        assertTrue(changes.isEmpty());
+    }
+
+    public interface TenantConfiguration extends Configuration {
+        String getTenantName();
+
+        int getTenantSize();
+
+        Duration getTenantTimeout();
+    }
+}
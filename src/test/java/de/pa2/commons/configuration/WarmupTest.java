@@ -0,0 +1,135 @@
+/*
+ * copyright (C) 2008-2019 Patrick Stricker
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA 02111-1307, USA
+ *
+ * Patrick Stricker - http://pa2.de
+ */
+package de.pa2.commons.configuration;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.io.File;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.testng.annotations.Test;
+
+public class WarmupTest {
+
+    @Test
+    public void staleIndexEntriesAreSkipped() throws Exception {
+        Path directory = Files.createTempDirectory("index");
+        Path index = directory.resolve("META-INF/services/" + ConfigurationImplementation.class.getName());
+        Files.createDirectories(index.getParent());
+        Files.write(index, "sample.Deleted_Implementation\n".getBytes(StandardCharsets.UTF_8));
+        try (URLClassLoader loader = new URLClassLoader(new URL[] { directory.toUri().toURL() },
+                getClass().getClassLoader())) {
+            for (Class<? extends Configuration> clazz : ConfigurationImplementations.discover(loader)) {
+                assertFalse(clazz.getName().startsWith("sample."));
+            }
+        } finally {
+            Files.delete(index);
+        }
+    }
+
+    @Test
+    public void reportsTimingsPerInterface() {
+        System.setProperty("warmup.valid.size", "12");
+        SystemPropertyConfigurationFactory factory = new SystemPropertyConfigurationFactory();
+
+        WarmupReport report = factory.warmup(Arrays.asList(ValidConfiguration.class, TestConfiguration.class));
+
+        assertEquals(new ArrayList<>(report.getTimings().keySet()),
+                Arrays.asList(ValidConfiguration.class, TestConfiguration.class));
+        for (Long nanos : report.getTimings().values()) {
+            assertTrue(nanos > 0);
+        }
+        assertTrue(report.getTotalNanos() > 0);
+        assertEquals(factory.getInstance(ValidConfiguration.class).getSize(), 12);
+    }
+
+    @Test
+    public void failsOnValuesThatCanNotBeConverted() {
+        System.setProperty("warmup.invalid.size", "twelve");
+        SystemPropertyConfigurationFactory factory = new SystemPropertyConfigurationFactory();
+        try {
+            factory.warmup(Collections.singletonList(InvalidConfiguration.class));
+            fail("invalid value not detected");
+        } catch (ConfigurationWarmupException e) {
+            assertEquals(e.getInterfaceClazz(), InvalidConfiguration.class);
+            assertEquals(e.getPropertyName(), "warmup.invalid.size");
+            assertTrue(e.getCause() instanceof NumberFormatException);
+        }
+    }
+
+    @Test
+    public void warmsTheCachedInstance() throws Exception {
+        File file = File.createTempFile("warmup", ".bin");
+        try {
+            Files.write(file.toPath(), "warm".getBytes(StandardCharsets.UTF_8));
+            SystemPropertyConfigurationFactory factory = new SystemPropertyConfigurationFactory();
+            factory.setOverride("warmup.binary.data", file.toURI().toString());
+            factory.warmup(Collections.singletonList(BinaryConfiguration.class));
+
+            // the content read by the warmup is kept by the instance
+            File replacement = File.createTempFile("warmup", ".bin", file.getParentFile());
+            Files.write(replacement.toPath(), "cold".getBytes(StandardCharsets.UTF_8));
+            Files.move(replacement.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE,
+                    StandardCopyOption.REPLACE_EXISTING);
+            assertEquals(new String(factory.getInstance(BinaryConfiguration.class).getData(), StandardCharsets.UTF_8),
+                    "warm");
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void validatesOverrides() {
+        SystemPropertyConfigurationFactory factory = new SystemPropertyConfigurationFactory();
+        factory.setOverride("warmup.valid.size", "twelve");
+        try {
+            factory.warmup(Collections.singletonList(ValidConfiguration.class));
+            fail("invalid override not detected");
+        } catch (ConfigurationWarmupException e) {
+            assertEquals(e.getPropertyName(), "warmup.valid.size");
+        }
+    }
+
+    @ConfigurationPrefix("warmup.binary")
+    public interface BinaryConfiguration extends Configuration {
+        byte[] getData();
+    }
+
+    @ConfigurationPrefix("warmup.valid")
+    public interface ValidConfiguration extends Configuration {
+        int getSize();
+    }
+
+    @ConfigurationPrefix("warmup.invalid")
+    public interface InvalidConfiguration extends Configuration {
+        int getSize();
+    }
+}
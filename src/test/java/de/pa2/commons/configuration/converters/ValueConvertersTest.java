@@ -0,0 +1,94 @@
+/*
+ * copyright (C) 2008-2019 Patrick Stricker
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA 02111-1307, USA
+ *
+ * Patrick Stricker - http://pa2.de
+ */
+package de.pa2.commons.configuration.converters;
+
+import static org.testng.Assert.*;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import org.testng.annotations.Test;
+
+public class ValueConvertersTest {
+
+    enum Level {
+        DEBUG, Info
+    }
+
+    @Test
+    public void durations() {
+        ValueConverter<Duration> converter = ValueConverters.get(Duration.class);
+        assertEquals(converter.convert("PT1M"), Duration.ofMinutes(1));
+        assertEquals(converter.convert("pt2s"), Duration.ofSeconds(2));
+        assertEquals(converter.convert("500"), Duration.ofMillis(500));
+        assertEquals(converter.convert("500ms"), Duration.ofMillis(500));
+        assertEquals(converter.convert("10 s"), Duration.ofSeconds(10));
+        assertEquals(converter.convert("3us"), Duration.ofNanos(TimeUnit.MICROSECONDS.toNanos(3)));
+        assertEquals(converter.convert("2h"), Duration.ofHours(2));
+        assertEquals(converter.convert("1d"), Duration.ofDays(1));
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void invalidDuration() {
+        ValueConverters.get(Duration.class).convert("10 parsecs");
+    }
+
+    @Test
+    public void dataSizes() {
+        assertEquals(DataSize.parse("512").toBytes(), 512);
+        assertEquals(DataSize.parse("512B").toBytes(), 512);
+        assertEquals(DataSize.parse("64kb").toBytes(), 64 * 1024);
+        assertEquals(DataSize.parse("10 MiB").toMegabytes(), 10);
+        assertEquals(DataSize.parse("2G").toBytes(), 2L << 30);
+        assertEquals(ValueConverters.get(DataSize.class).convert("1TB"), DataSize.ofGigabytes(1024));
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void invalidDataSize() {
+        DataSize.parse("MB");
+    }
+
+    @Test
+    public void enums() {
+        ValueConverter<Level> converter = ValueConverters.get(Level.class);
+        assertEquals(converter.convert("DEBUG"), Level.DEBUG);
+        assertEquals(converter.convert("debug"), Level.DEBUG);
+        assertEquals(converter.convert("Info"), Level.Info);
+        assertEquals(converter.convert("INFO"), Level.Info);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void unknownEnumConstant() {
+        ValueConverters.get(Level.class).convert("trace");
+    }
+
+    @Test
+    public void others() {
+        assertEquals(ValueConverters.get(double.class).convert("1.5"), 1.5d);
+        assertEquals(ValueConverters.get(URI.class).convert("http://pa2.de/"), URI.create("http://pa2.de/"));
+        assertEquals(ValueConverters.get(Path.class).convert("/tmp"), Paths.get("/tmp"));
+        assertEquals(ValueConverters.get(InetSocketAddress.class).convert("[::1]:80").getPort(), 80);
+        assertNull(ValueConverters.get(StringBuilder.class));
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * copyright (C) 2008-2019 Patrick Stricker
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA 02111-1307, USA
+ *
+ * Patrick Stricker - http://pa2.de
+ */
+package de.pa2.commons.configuration.metrics;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.management.ObjectName;
+
+import org.testng.annotations.Test;
+
+import de.pa2.commons.configuration.Configuration;
+import de.pa2.commons.configuration.ConfigurationPrefix;
+import de.pa2.commons.configuration.SystemPropertyConfigurationFactory;
+import de.pa2.commons.configuration.resolvers.AggregatedPropertyResolver;
+import de.pa2.commons.configuration.resolvers.PropertyResolver;
+import de.pa2.commons.configuration.resolvers.ResolverChangeListener;
+import de.pa2.commons.configuration.resolvers.ResourcePropertyResolver;
+
+public class ConfigurationMetricsTest {
+
+    @Test
+    public void lookupsMissesAndHitLayers() {
+        AggregatedPropertyResolver aggregated = new AggregatedPropertyResolver(true);
+        aggregated.add(resource("a=1\n"));
+        aggregated.add(resource("a=2\nb=${a}\n"));
+
+        ConfigurationMetrics metrics = new ConfigurationMetrics();
+        InstrumentedPropertyResolver resolver = metrics.instrument(aggregated);
+
+        assertEquals(resolver.getProperty("a", null), "1");
+        assertEquals(resolver.resolve("b", null), "1");
+        assertEquals(resolver.getProperty("c", "default"), "default");
+
+        assertEquals(metrics.getLookupCount(), 4);
+        assertEquals(metrics.getMissCount(), 1);
+        assertEquals(metrics.getLookupCounts().get("a"), Long.valueOf(2));
+        assertEquals(metrics.getMissCounts().get("c"), Long.valueOf(1));
+        assertEquals(metrics.getHitLayers().get("a"), "0:ResourcePropertyResolver");
+        assertEquals(metrics.getHitLayers().get("b"), "1:ResourcePropertyResolver");
+        assertEquals(metrics.getLayerHitCounts().get("0:ResourcePropertyResolver"), Long.valueOf(2));
+        assertEquals(metrics.getPlaceholderLatencyHistogram().length > 0, true);
+
+        metrics.reset();
+        assertEquals(metrics.getLookupCount(), 0);
+        assertTrue(metrics.getHitLayers().isEmpty());
+    }
+
+    @Test
+    public void closedResolversStopListening() {
+        AtomicInteger listeners = new AtomicInteger();
+        ResourcePropertyResolver layer = new ResourcePropertyResolver(stream("a=1\n")) {
+            @Override
+            public void addChangeListener(ResolverChangeListener listener) {
+                listeners.incrementAndGet();
+                super.addChangeListener(listener);
+            }
+
+            @Override
+            public void removeChangeListener(ResolverChangeListener listener) {
+                listeners.decrementAndGet();
+                super.removeChangeListener(listener);
+            }
+        };
+        ConfigurationMetrics metrics = new ConfigurationMetrics();
+        InstrumentedPropertyResolver resolver = metrics.instrument(layer);
+        assertEquals(listeners.get(), 1);
+
+        layer.reload(stream("a=2\nb=2\n"));
+        assertTrue(metrics.getLookupCounts().isEmpty());
+        assertNull(metrics.getHitLayers().get("b"));
+
+        resolver.close();
+        assertEquals(listeners.get(), 0);
+    }
+
+    @Test
+    public void histogramBuckets() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(0);
+        histogram.record(1);
+        histogram.record(3);
+        histogram.record(1000);
+
+        long[] counts = histogram.getCounts();
+        assertEquals(counts.length, 10);
+        assertEquals(counts[0], 2);
+        assertEquals(counts[1], 1);
+        assertEquals(counts[9], 1);
+        assertEquals(histogram.getPercentile(50), 2);
+        assertEquals(histogram.getPercentile(100), 1024);
+    }
+
+    @Test
+    public void factoryPublishesMetrics() throws Exception {
+        System.setProperty("metrics.name", "value");
+        SystemPropertyConfigurationFactory factory = new SystemPropertyConfigurationFactory();
+        factory.setMetrics(true);
+        ConfigurationMetrics metrics = factory.getMetrics();
+        ObjectName name = metrics.getObjectName();
+        assertTrue(ManagementFactory.getPlatformMBeanServer().isRegistered(name));
+
+        MetricsConfiguration configuration = factory.getInstance(MetricsConfiguration.class);
+        assertEquals(configuration.getName(), "value");
+        assertEquals(configuration.getName(), "value");
+        assertEquals(metrics.getReadCounts().get("metrics.name"), Long.valueOf(2));
+        assertEquals(ManagementFactory.getPlatformMBeanServer().getAttribute(name, "ReadCount"), Long.valueOf(2));
+
+        factory.setMetrics(false);
+        assertNull(factory.getMetrics());
+        assertTrue(!ManagementFactory.getPlatformMBeanServer().isRegistered(name));
+    }
+
+    private static ByteArrayInputStream stream(String properties) {
+        return new ByteArrayInputStream(properties.getBytes(StandardCharsets.ISO_8859_1));
+    }
+
+    private static PropertyResolver resource(String properties) {
+        return new ResourcePropertyResolver(new ByteArrayInputStream(properties.getBytes(StandardCharsets.ISO_8859_1)));
+    }
+
+    @ConfigurationPrefix("metrics")
+    public interface MetricsConfiguration extends Configuration {
+        String getName();
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * copyright (C) 2008-2019 Patrick Stricker
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA 02111-1307, USA
+ *
+ * Patrick Stricker - http://pa2.de
+ */
+package de.pa2.commons.configuration.processor;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+import org.testng.annotations.Test;
+
+import de.pa2.commons.configuration.Configuration;
+import de.pa2.commons.configuration.ConfigurationImplementation;
+import de.pa2.commons.configuration.ConfigurationMethod;
+import de.pa2.commons.configuration.SystemPropertyConfigurationFactory;
+
+public class ConfigurationProcessorTest {
+    private static final String SOURCE = "package sample;\n"
+            + "import de.pa2.commons.configuration.*;\n"
+            + "@ConfigurationPrefix(\"sample\")\n"
+            + "public interface SampleConfiguration extends Configuration {\n"
+            + "    @DefaultStringValue(\"default \\\"quoted\\\"\") String getName();\n"
+            + "    @DefaultIntValue(42) int getPoolSize();\n"
+            + "    @DefaultLongValue(7) @TimeToLive(5) Long getTimeout();\n"
+            + "    boolean isEnabled();\n"
+            + "    Mode getMode();\n"
+            + "    void setName(String name);\n"
+            + "    enum Mode { FAST, SLOW }\n"
+            + "    interface Nested extends Configuration { java.util.List<String> getValues(); }\n"
+            + "}\n";
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void generatesImplementationsAndIndex() throws Exception {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) {
+            // running on a JRE
+            return;
+        }
+        Path directory = Files.createTempDirectory("processor");
+        Path source = directory.resolve("sample/SampleConfiguration.java");
+        Files.createDirectories(source.getParent());
+        Files.write(source, SOURCE.getBytes(StandardCharsets.UTF_8));
+
+        // entry of an interface that was deleted since the last build
+        Path staleIndex = directory.resolve(ConfigurationProcessor.INDEX);
+        Files.createDirectories(staleIndex.getParent());
+        Files.write(staleIndex, "sample.Deleted_Implementation\n".getBytes(StandardCharsets.UTF_8));
+
+        List<String> arguments = Arrays.asList("-classpath", System.getProperty("java.class.path"), "-processor",
+                ConfigurationProcessor.class.getName(), "-d", directory.toString(), source.toString());
+        assertEquals(compiler.run(null, null, null, arguments.toArray(new String[arguments.size()])), 0);
+
+        List<String> index = Files.readAllLines(directory.resolve(ConfigurationProcessor.INDEX));
+        assertEquals(index, Arrays.asList("sample.SampleConfiguration_Implementation",
+                "sample.SampleConfiguration_Nested_Implementation"));
+
+        System.setProperty("sample.pool.size", "16");
+        System.setProperty("sample.mode", "slow");
+        try (URLClassLoader loader = new URLClassLoader(new URL[] { directory.toUri().toURL() },
+                getClass().getClassLoader())) {
+            Class<? extends Configuration> clazz = (Class<? extends Configuration>) loader
+                    .loadClass("sample.SampleConfiguration");
+            Configuration instance = new SystemPropertyConfigurationFactory().getInstance(clazz);
+
+            assertEquals(instance.getClass().getName(), "sample.SampleConfiguration_Implementation$Instance");
+            assertFalse(Proxy.isProxyClass(instance.getClass()));
+            assertEquals(clazz.getMethod("getName").invoke(instance), "default \"quoted\"");
+            assertEquals(clazz.getMethod("getPoolSize").invoke(instance), 16);
+            assertEquals(clazz.getMethod("getTimeout").invoke(instance), 7l);
+            assertEquals(clazz.getMethod("isEnabled").invoke(instance), false);
+            assertEquals(clazz.getMethod("getMode").invoke(instance).toString(), "SLOW");
+            assertTrue(instance.toString().startsWith("sample.SampleConfiguration("));
+
+            ConfigurationImplementation<?> implementation = (ConfigurationImplementation<?>) loader
+                    .loadClass("sample.SampleConfiguration_Implementation").newInstance();
+            for (ConfigurationMethod method : implementation.getMethods()) {
+                assertNotNull(method.getParameterTypes());
+                if ("getTimeout".equals(method.getName())) {
+                    assertEquals(method.getTimeToLive(), TimeUnit.MILLISECONDS.toNanos(5));
+                } else if ("setName".equals(method.getName())) {
+                    assertEquals(method.getParameterTypes().length, 1);
+                    assertEquals(method.getParameterTypes()[0], String.class);
+                } else {
+                    assertEquals(method.getTimeToLive(), -1L);
+                }
+            }
+        } finally {
+            delete(directory.toFile());
+        }
+    }
+
+    private static void delete(File file) throws IOException {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        Files.delete(file.toPath());
+    }
+}
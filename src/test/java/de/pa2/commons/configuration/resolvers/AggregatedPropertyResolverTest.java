@@ -0,0 +1,92 @@
+/*
+ * copyright (C) 2008-2019 Patrick Stricker
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA 02111-1307, USA
+ *
+ * Patrick Stricker - http://pa2.de
+ */
+package de.pa2.commons.configuration.resolvers;
+
+import static org.testng.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.testng.annotations.Test;
+
+public class AggregatedPropertyResolverTest {
+
+    @Test
+    public void precedence() {
+        for (boolean indexed : new boolean[] { false, true }) {
+            AggregatedPropertyResolver resolver = new AggregatedPropertyResolver(indexed);
+            resolver.add(new SystemPropertyResolver());
+            resolver.add(new ResourcePropertyResolver(stream("a=high\n")));
+            resolver.add(new ResourcePropertyResolver(stream("a=low\nb=low\n")));
+
+            assertEquals(resolver.getProperty("a", null), "high");
+            assertEquals(resolver.getProperty("b", null), "low");
+            assertEquals(resolver.getProperty("c", "default"), "default");
+
+            System.setProperty("aggregated.b", "system");
+            resolver.add(new ResourcePropertyResolver(stream("aggregated.b=low\n")));
+            assertEquals(resolver.getProperty("aggregated.b", null), "system");
+            System.clearProperty("aggregated.b");
+            assertEquals(resolver.getProperty("aggregated.b", null), "low");
+        }
+    }
+
+    @Test
+    public void getProperties() {
+        for (boolean indexed : new boolean[] { false, true }) {
+            AggregatedPropertyResolver resolver = new AggregatedPropertyResolver(indexed);
+            resolver.add(new SystemPropertyResolver());
+            resolver.add(new ResourcePropertyResolver(stream("a=high\n")));
+            resolver.add(new ResourcePropertyResolver(stream("a=low\nb=low\n")));
+            System.setProperty("aggregated.c", "system");
+            try {
+                Map<String, String> expected = new HashMap<>();
+                expected.put("a", "high");
+                expected.put("b", "low");
+                expected.put("aggregated.c", "system");
+                assertEquals(resolver.getProperties(Arrays.asList("a", "b", "aggregated.c", "missing")), expected);
+            } finally {
+                System.clearProperty("aggregated.c");
+            }
+        }
+    }
+
+    @Test
+    public void indexIsUpdatedOnReload() {
+        AggregatedPropertyResolver resolver = new AggregatedPropertyResolver(true);
+        ResourcePropertyResolver high = new ResourcePropertyResolver(stream("a=high\n"));
+        resolver.add(high);
+        resolver.add(new ResourcePropertyResolver(stream("a=low\nb=low\n")));
+
+        high.reload(stream("b=high\n"));
+        assertEquals(resolver.getProperty("a", null), "low");
+        assertEquals(resolver.getProperty("b", null), "high");
+
+        high.reload(stream(""));
+        assertEquals(resolver.getProperty("b", null), "low");
+    }
+
+    private static ByteArrayInputStream stream(String properties) {
+        return new ByteArrayInputStream(properties.getBytes(StandardCharsets.ISO_8859_1));
+    }
+}
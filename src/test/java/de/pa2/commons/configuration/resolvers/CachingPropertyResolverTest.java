@@ -0,0 +1,209 @@
+/*
+ * copyright (C) 2008-2019 Patrick Stricker
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA 02111-1307, USA
+ *
+ * Patrick Stricker - http://pa2.de
+ */
+package de.pa2.commons.configuration.resolvers;
+
+import static org.testng.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.testng.annotations.Test;
+
+public class CachingPropertyResolverTest {
+
+    /**
+     * resolver counting its lookups
+     */
+    private static final class CountingResolver implements PropertyResolver {
+        final Map<String, String> values = new ConcurrentHashMap<>();
+
+        final AtomicInteger lookups = new AtomicInteger();
+
+        @Override
+        public String getProperty(String propertyName, String defaultValue) {
+            this.lookups.incrementAndGet();
+            return this.values.getOrDefault(propertyName, defaultValue);
+        }
+    }
+
+    @Test
+    public void hitsAndMissesAreCached() {
+        CountingResolver source = new CountingResolver();
+        source.values.put("a", "1");
+        CachingPropertyResolver resolver = new CachingPropertyResolver(source, 1, TimeUnit.MINUTES, 100);
+
+        assertEquals(resolver.getProperty("a", null), "1");
+        assertEquals(resolver.getProperty("a", null), "1");
+        assertEquals(resolver.getProperty("b", "default"), "default");
+        assertNull(resolver.getProperty("b", null));
+        assertEquals(source.lookups.get(), 2);
+
+        source.values.put("a", "2");
+        resolver.invalidate(Collections.singleton("a"));
+        assertEquals(resolver.getProperty("a", null), "2");
+    }
+
+    @Test
+    public void expiredValuesAreServedWhileRefreshing() {
+        CountingResolver source = new CountingResolver();
+        source.values.put("a", "1");
+        AtomicLong ticker = new AtomicLong();
+        List<Runnable> refreshes = new ArrayList<>();
+        CachingPropertyResolver resolver = new CachingPropertyResolver(source, 10, TimeUnit.NANOSECONDS, 100,
+                refreshes::add, ticker::get);
+        resolver.setTimeToLive("b", 100, TimeUnit.NANOSECONDS);
+        List<String> changes = new ArrayList<>();
+        resolver.addChangeListener(changes::addAll);
+
+        assertEquals(resolver.getProperty("a", null), "1");
+        assertNull(resolver.getProperty("b", null));
+        source.values.put("a", "2");
+        source.values.put("b", "2");
+        ticker.set(10);
+        assertEquals(resolver.getProperty("a", null), "1");
+        assertEquals(resolver.getProperty("a", null), "1");
+        assertNull(resolver.getProperty("b", null));
+        assertEquals(refreshes.size(), 1);
+
+        refreshes.remove(0).run();
+        assertEquals(resolver.getProperty("a", null), "2");
+        assertEquals(changes, Collections.singletonList("a"));
+
+        ticker.set(100);
+        resolver.getProperty("b", null);
+        refreshes.remove(0).run();
+        assertEquals(resolver.getProperty("b", null), "2");
+    }
+
+    @Test
+    public void concurrentMissesLoadOnce() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger loads = new AtomicInteger();
+        PropertyResolver slow = (propertyName, defaultValue) -> {
+            loads.incrementAndGet();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "value";
+        };
+        CachingPropertyResolver resolver = new CachingPropertyResolver(slow, 1, TimeUnit.MINUTES, 100);
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                results.add(executor.submit(() -> resolver.getProperty("key", null)));
+            }
+            Thread.sleep(100);
+            release.countDown();
+            for (Future<String> result : results) {
+                assertEquals(result.get(), "value");
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(loads.get(), 1);
+    }
+
+    @Test
+    public void leastRecentlyReadEntriesAreEvicted() {
+        CountingResolver source = new CountingResolver();
+        AtomicLong ticker = new AtomicLong();
+        CachingPropertyResolver resolver = new CachingPropertyResolver(source, 1, TimeUnit.MINUTES, 10,
+                Runnable::run, ticker::get);
+
+        resolver.getProperty("kept", null);
+        for (int i = 0; i < 30; i++) {
+            ticker.addAndGet(CachingPropertyResolver.RECENCY_TICK_NANOS);
+            resolver.getProperty("kept", null);
+            resolver.getProperty("key" + i, null);
+        }
+        assertTrue(resolver.size() <= 10);
+
+        int lookups = source.lookups.get();
+        resolver.getProperty("kept", null);
+        assertEquals(source.lookups.get(), lookups);
+    }
+
+    @Test
+    public void readsWithinATickDoNotUpdateTheReadTime() {
+        CountingResolver source = new CountingResolver();
+        AtomicLong ticker = new AtomicLong();
+        CachingPropertyResolver resolver = new CachingPropertyResolver(source, 1, TimeUnit.MINUTES, 2,
+                Runnable::run, ticker::get);
+
+        resolver.getProperty("first", null);
+        ticker.set(1);
+        resolver.getProperty("second", null);
+        // too close to the last read to count, the first is still the oldest
+        ticker.set(2);
+        resolver.getProperty("first", null);
+        ticker.set(3);
+        resolver.getProperty("third", null);
+
+        int lookups = source.lookups.get();
+        resolver.getProperty("first", null);
+        assertEquals(source.lookups.get(), lookups + 1);
+    }
+
+    @Test
+    public void loadsInvalidatedWhileRunningAreNotCached() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger version = new AtomicInteger();
+        PropertyResolver slow = (propertyName, defaultValue) -> {
+            String value = "v" + version.get();
+            loading.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return value;
+        };
+        CachingPropertyResolver resolver = new CachingPropertyResolver(slow, 1, TimeUnit.MINUTES, 100);
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<String> stale = executor.submit(() -> resolver.getProperty("key", null));
+            loading.await();
+            version.set(1);
+            resolver.invalidate(Collections.singleton("key"));
+            release.countDown();
+            assertEquals(stale.get(), "v0");
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(resolver.size(), 0);
+        assertEquals(resolver.getProperty("key", null), "v1");
+    }
+}
@@ -0,0 +1,41 @@
+/*
+ * copyright (C) 2008-2019 Patrick Stricker
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA 02111-1307, USA
+ *
+ * Patrick Stricker - http://pa2.de
+ */
+package de.pa2.commons.configuration.resolvers;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+
+import java.util.Collections;
+
+import org.testng.annotations.Test;
+
+public class EnvironmentResolverTest {
+
+    @Test
+    public void getProperty() {
+        EnvironmentResolver resolver = new EnvironmentResolver(Collections.singletonMap("POOL_MAX_SIZE", "16"));
+
+        assertEquals(resolver.getProperty("pool.max.size", null), "16");
+        assertEquals(resolver.getProperty("pool.max.size", "1"), "16");
+        assertNull(resolver.getProperty("pool.min.size", null));
+        assertEquals(resolver.getProperty("pool.min.size", "1"), "1");
+        assertEquals(resolver.getProperty("pool.min.size", "2"), "2");
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * copyright (C) 2008-2019 Patrick Stricker
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA 02111-1307, USA
+ *
+ * Patrick Stricker - http://pa2.de
+ */
+package de.pa2.commons.configuration.resolvers;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.annotations.Test;
+
+public class LazyPropertyResolverTest {
+
+    @Test
+    public void loadsOnFirstLookup() {
+        AtomicInteger loads = new AtomicInteger();
+        LazyPropertyResolver resolver = new LazyPropertyResolver("test", () -> {
+            loads.incrementAndGet();
+            return resource("a=1\n");
+        });
+        assertFalse(resolver.isLoaded());
+        assertEquals(loads.get(), 0);
+
+        assertEquals(resolver.getProperty("a", null), "1");
+        assertEquals(resolver.getProperty("b", "default"), "default");
+        assertTrue(resolver.isLoaded());
+        assertEquals(loads.get(), 1);
+    }
+
+    @Test
+    public void lookupsOnlyWaitForTheLayerTheyReach() throws Exception {
+        ExecutorService executor = Executors.newCachedThreadPool();
+        try {
+            CountDownLatch slow = new CountDownLatch(1);
+            LazyPropertyResolver high = new LazyPropertyResolver("high", () -> resource("a=high\n"), executor);
+            LazyPropertyResolver low = new LazyPropertyResolver("low", () -> {
+                try {
+                    slow.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return resource("a=low\nb=low\n");
+            }, executor);
+            AggregatedPropertyResolver resolver = new AggregatedPropertyResolver(true);
+            resolver.add(high);
+            resolver.add(low);
+            high.load();
+            low.load();
+
+            assertEquals(resolver.getProperty("a", null), "high");
+            CompletableFuture<String> fallThrough = CompletableFuture.supplyAsync(() -> resolver.getProperty("b", null),
+                    executor);
+            Thread.sleep(50);
+            assertFalse(fallThrough.isDone());
+
+            slow.countDown();
+            assertEquals(fallThrough.get(5, TimeUnit.SECONDS), "low");
+            low.whenLoaded().get(5, TimeUnit.SECONDS);
+            assertEquals(resolver.getProperty("a", null), "high");
+            assertEquals(resolver.getProperty("b", null), "low");
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void loadedLayersJoinTheIndexAndForwardChanges() throws Exception {
+        ResourcePropertyResolver file = resource("a=1\n");
+        LazyPropertyResolver lazy = new LazyPropertyResolver("file", () -> file);
+        LazyPropertyResolver absent = new LazyPropertyResolver("absent", () -> null);
+        AggregatedPropertyResolver resolver = new AggregatedPropertyResolver(true);
+        resolver.add(absent);
+        resolver.add(lazy);
+        resolver.add(resource("a=2\nb=2\n"));
+        lazy.load().get(5, TimeUnit.SECONDS);
+        assertNull(absent.load().get(5, TimeUnit.SECONDS));
+
+        assertEquals(resolver.getProperty("a", null), "1");
+        assertEquals(resolver.getProperty("b", null), "2");
+        assertNull(absent.getResolver());
+
+        AtomicInteger changes = new AtomicInteger();
+        resolver.addChangeListener(propertyNames -> changes.incrementAndGet());
+        file.reload(new ByteArrayInputStream("b=1\n".getBytes(StandardCharsets.ISO_8859_1)));
+        assertEquals(changes.get(), 1);
+        assertEquals(resolver.getProperty("a", null), "2");
+        assertEquals(resolver.getProperty("b", null), "1");
+    }
+
+    @Test
+    public void failedLayersAreSkipped() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        LazyPropertyResolver failing = new LazyPropertyResolver("failing", () -> {
+            loads.incrementAndGet();
+            throw new IllegalStateException("unreadable");
+        });
+        AggregatedPropertyResolver resolver = new AggregatedPropertyResolver(true);
+        resolver.add(failing);
+        resolver.add(resource("a=1\n"));
+
+        assertNull(failing.load().get(5, TimeUnit.SECONDS));
+        assertTrue(failing.isLoaded());
+        assertNull(failing.getResolver());
+        assertEquals(resolver.getProperty("a", null), "1");
+        assertEquals(resolver.getProperty("b", "default"), "default");
+        assertEquals(failing.getProperty("a", "default"), "default");
+        assertEquals(loads.get(), 1);
+    }
+
+    private static ResourcePropertyResolver resource(String properties) {
+        return new ResourcePropertyResolver(new ByteArrayInputStream(properties.getBytes(StandardCharsets.ISO_8859_1)));
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * copyright (C) 2008-2019 Patrick Stricker
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA 02111-1307, USA
+ *
+ * Patrick Stricker - http://pa2.de
+ */
+package de.pa2.commons.configuration.resolvers;
+
+import static org.testng.Assert.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.testng.annotations.Test;
+
+public class MappedPropertyResolverTest {
+
+    @Test
+    public void getProperty() throws IOException {
+        Map<String, String> properties = new HashMap<>();
+        for (int i = 0; i < 1000; i++) {
+            properties.put("customer." + i + ".limit", Integer.toString(i * 10));
+        }
+        properties.put("customer", "prefix of all keys");
+        properties.put("\u00fcmlaut.key", "v\u00e4lue");
+        properties.put("empty", "");
+
+        Path file = Files.createTempFile("mapped", ".bin");
+        file.toFile().deleteOnExit();
+        MappedPropertyFile.write(properties, file);
+
+        MappedPropertyResolver resolver = new MappedPropertyResolver(file);
+        assertEquals(resolver.size(), properties.size());
+        for (Map.Entry<String, String> entry : properties.entrySet()) {
+            assertEquals(resolver.getProperty(entry.getKey(), null), entry.getValue(), entry.getKey());
+        }
+        assertNull(resolver.getProperty("a", null));
+        assertNull(resolver.getProperty("customer.", null));
+        assertNull(resolver.getProperty("customer.1000.limit", null));
+        assertNull(resolver.getProperty("customer.1.limit.x", null));
+        assertNull(resolver.getProperty("zzz", null));
+        assertEquals(resolver.getProperty("customer.5", "default"), "default");
+    }
+
+    @Test
+    public void convert() throws IOException {
+        Path properties = Files.createTempFile("mapped", ".properties");
+        properties.toFile().deleteOnExit();
+        Files.write(properties, "a=1\nb.c=2\n".getBytes(StandardCharsets.ISO_8859_1));
+        Path file = Files.createTempFile("mapped", ".bin");
+        file.toFile().deleteOnExit();
+
+        MappedPropertyFile.convert(properties, file);
+
+        MappedPropertyResolver resolver = new MappedPropertyResolver(file);
+        assertEquals(resolver.getProperty("a", null), "1");
+        assertEquals(resolver.getProperty("b.c", null), "2");
+        assertNull(resolver.getProperty("b", null));
+    }
+
+    @Test
+    public void empty() throws IOException {
+        Path file = Files.createTempFile("mapped", ".bin");
+        file.toFile().deleteOnExit();
+        MappedPropertyFile.write(new HashMap<>(), file);
+
+        assertEquals(new MappedPropertyResolver(file).getProperty("a", "default"), "default");
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void invalidFile() throws IOException {
+        Path file = Files.createTempFile("mapped", ".bin");
+        file.toFile().deleteOnExit();
+        Files.write(file, "a=1\n".getBytes(StandardCharsets.ISO_8859_1));
+
+        new MappedPropertyResolver(file);
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * copyright (C) 2008-2019 Patrick Stricker
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA 02111-1307, USA
+ *
+ * Patrick Stricker - http://pa2.de
+ */
+package de.pa2.commons.configuration.resolvers;
+
+import static org.testng.Assert.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.testng.annotations.Test;
+
+public class PersistentPropertyMapTest {
+
+    @Test
+    public void behavesLikeHashMap() {
+        Random random = new Random(42);
+        Map<String, String> expected = new HashMap<>();
+        PersistentPropertyMap map = PersistentPropertyMap.empty();
+        for (int i = 0; i < 20000; i++) {
+            String key = "key." + random.nextInt(2000);
+            if (random.nextInt(3) == 0) {
+                expected.remove(key);
+                map = map.remove(key);
+            } else {
+                String value = Integer.toString(random.nextInt(5));
+                expected.put(key, value);
+                map = map.put(key, value);
+            }
+            assertEquals(map.size(), expected.size());
+        }
+        assertEquals(map.toMap(), expected);
+        for (int i = 0; i < 2000; i++) {
+            assertEquals(map.get("key." + i), expected.get("key." + i));
+        }
+    }
+
+    @Test
+    public void updatesDoNotChangeOldVersions() {
+        PersistentPropertyMap first = PersistentPropertyMap.empty().put("a", "1").put("b", "2");
+        PersistentPropertyMap second = first.put("a", "3").remove("b");
+
+        assertEquals(first.get("a"), "1");
+        assertEquals(first.get("b"), "2");
+        assertEquals(second.get("a"), "3");
+        assertNull(second.get("b"));
+        assertSame(second.put("a", "3"), second);
+        assertSame(second.remove("missing"), second);
+    }
+
+    @Test
+    public void collidingHashCodes() {
+        // "Aa" and "BB" have the same hash code
+        PersistentPropertyMap map = PersistentPropertyMap.empty().put("Aa", "1").put("BB", "2").put("C#", "3");
+        assertEquals(map.get("Aa"), "1");
+        assertEquals(map.get("BB"), "2");
+        assertEquals(map.size(), 3);
+
+        map = map.remove("Aa");
+        assertNull(map.get("Aa"));
+        assertEquals(map.get("BB"), "2");
+        assertEquals(map.remove("BB").remove("C#").size(), 0);
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * copyright (C) 2008-2019 Patrick Stricker
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA 02111-1307, USA
+ *
+ * Patrick Stricker - http://pa2.de
+ */
+package de.pa2.commons.configuration.resolvers;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.testng.annotations.Test;
+
+public class PropertyFileWatcherTest {
+
+    @Test
+    public void reloadsChangedFile() throws Exception {
+        File directory = Files.createTempDirectory("watch").toFile();
+        File file = new File(directory, "watched.properties");
+        Files.write(file.toPath(), "a=1\nb=2\n".getBytes(StandardCharsets.ISO_8859_1));
+
+        ResourcePropertyResolver resolver = new ResourcePropertyResolver(file);
+        BlockingQueue<Set<String>> changes = new ArrayBlockingQueue<>(10);
+        resolver.addChangeListener(changes::add);
+
+        try (PropertyFileWatcher watcher = new PropertyFileWatcher(50)) {
+            watcher.register(resolver);
+            Files.write(file.toPath(), "a=1\nb=3\n".getBytes(StandardCharsets.ISO_8859_1));
+
+            Set<String> changed = changes.poll(30, TimeUnit.SECONDS);
+            assertEquals(changed, Collections.singleton("b"));
+            assertEquals(resolver.getProperty("b", null), "3");
+        } finally {
+            assertTrue(file.delete());
+            assertTrue(directory.delete());
+        }
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * copyright (C) 2008-2019 Patrick Stricker
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA 02111-1307, USA
+ *
+ * Patrick Stricker - http://pa2.de
+ */
+package de.pa2.commons.configuration.resolvers;
+
+import static org.testng.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.lang.ref.WeakReference;
+import java.nio.charset.StandardCharsets;
+
+import org.testng.annotations.Test;
+
+public class PropertyKeysTest {
+
+    @Test
+    public void unusedNamesAreDropped() throws InterruptedException {
+        // built at runtime, a literal would stay reachable from the constant pool
+        String unique = "keys.dropped." + System.nanoTime();
+        String name = PropertyKeys.canonical(new String(unique));
+        assertSame(PropertyKeys.canonical(new String(unique)), name);
+        unique = null;
+
+        WeakReference<String> reference = new WeakReference<>(name);
+        name = null;
+        for (int i = 0; i < 50 && reference.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertNull(reference.get());
+    }
+
+    @Test
+    public void layersShareKeys() {
+        ResourcePropertyResolver first = new ResourcePropertyResolver(
+                new ByteArrayInputStream("keys.shared=1\n".getBytes(StandardCharsets.ISO_8859_1)));
+        ResourcePropertyResolver second = new ResourcePropertyResolver(
+                new ByteArrayInputStream("keys.shared=2\n".getBytes(StandardCharsets.ISO_8859_1)));
+
+        String firstKey = first.getAllProperties().keySet().iterator().next();
+        String secondKey = second.getAllProperties().keySet().iterator().next();
+        assertSame(firstKey, secondKey);
+        assertSame(firstKey, PropertyKeys.canonical("keys.shared"));
+        assertEquals(second.getProperty("keys.shared", null), "2");
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * copyright (C) 2008-2019 Patrick Stricker
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA 02111-1307, USA
+ *
+ * Patrick Stricker - http://pa2.de
+ */
+package de.pa2.commons.configuration.resolvers;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+
+import org.testng.annotations.Test;
+
+public class PropertyReplacementUtilTest {
+    private final Map<String, String> values = new HashMap<>();
+
+    private final PropertyResolver resolver = (name, defaultValue) -> {
+        String value = this.values.get(name);
+        return value != null ? value : defaultValue;
+    };
+
+    @Test
+    public void replacePlaceholders() {
+        this.values.put("host", "localhost");
+        this.values.put("port", "8080");
+        this.values.put("url", "http://${host}:${port}");
+        this.values.put("stage", "test");
+        this.values.put("db.test.url", "jdbc:${host}");
+
+        String plain = new String("no placeholders");
+        assertSame(PropertyReplacementUtil.replacePlaceholders(plain, this.resolver), plain);
+        assertNull(PropertyReplacementUtil.replacePlaceholders(null, this.resolver));
+
+        assertEquals(PropertyReplacementUtil.replacePlaceholders("${host}:${port}", this.resolver), "localhost:8080");
+        assertEquals(PropertyReplacementUtil.replacePlaceholders("${missing}/${host}", this.resolver), "${missing}/localhost");
+        assertEquals(PropertyReplacementUtil.replacePlaceholders("${missing:fallback}", this.resolver), "fallback");
+        assertEquals(PropertyReplacementUtil.replacePlaceholders("${missing:${port}}", this.resolver), "8080");
+        assertEquals(PropertyReplacementUtil.replacePlaceholders("${url}/path", this.resolver), "http://localhost:8080/path");
+        assertEquals(PropertyReplacementUtil.replacePlaceholders("${db.${stage}.url}", this.resolver), "jdbc:localhost");
+        assertEquals(PropertyReplacementUtil.replacePlaceholders("${unterminated", this.resolver), "${unterminated");
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void circularReference() {
+        this.values.put("a", "${b}");
+        this.values.put("b", "x${a}");
+        PropertyReplacementUtil.replacePlaceholders("${a}", this.resolver);
+    }
+
+    @Test
+    public void getPlaceholderNames() {
+        assertEquals(PropertyReplacementUtil.getPlaceholderNames("${a}-${b:${c}}-${d.${e}}"),
+                new LinkedHashSet<>(Arrays.asList("a", "b", "c", "e")));
+    }
+
+    @Test
+    public void usedTemplatesSurviveManyDistinctValues() {
+        PlaceholderTemplate hot = PlaceholderTemplate.compile("${hot}");
+        for (int i = 0; i < 20000; i++) {
+            PlaceholderTemplate.compile("${cold." + i + "}");
+            if (i % 100 == 0) {
+                assertSame(PlaceholderTemplate.compile("${hot}"), hot);
+            }
+        }
+        assertSame(PlaceholderTemplate.compile("${hot}"), hot);
+    }
+}
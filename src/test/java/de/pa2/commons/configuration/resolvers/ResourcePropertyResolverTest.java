@@ -2,6 +2,15 @@ package de.pa2.commons.configuration.resolvers;
 
 import static org.testng.Assert.*;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
 import org.testng.annotations.Test;
 
 public class ResourcePropertyResolverTest {
@@ -30,4 +39,41 @@ public class ResourcePropertyResolverTest {
         assertNotNull(source);
         assertEquals(source, "default properties resource");
     }
+
+    @Test
+    public void reload() throws IOException {
+        File file = File.createTempFile("reload", ".properties");
+        file.deleteOnExit();
+        Files.write(file.toPath(), "a=1\nb=2\nc=3\n".getBytes(StandardCharsets.ISO_8859_1));
+
+        ResourcePropertyResolver resolver = new ResourcePropertyResolver(file);
+        assertEquals(resolver.getProperty("a", null), "1");
+
+        Files.write(file.toPath(), "a=1\nb=20\nd=4\n".getBytes(StandardCharsets.ISO_8859_1));
+        Set<String> changed = resolver.reload();
+        assertEquals(changed, new HashSet<>(Arrays.asList("b", "c", "d")));
+        assertEquals(resolver.getProperty("b", null), "20");
+        assertNull(resolver.getProperty("c", null));
+    }
+
+    @Test
+    public void failedReloadKeepsValues() throws IOException {
+        File file = File.createTempFile("reload", ".properties");
+        file.deleteOnExit();
+        Files.write(file.toPath(), "a=1\n".getBytes(StandardCharsets.ISO_8859_1));
+        ResourcePropertyResolver resolver = new ResourcePropertyResolver(file);
+
+        assertTrue(file.delete());
+        assertTrue(resolver.reload().isEmpty());
+        assertEquals(resolver.getProperty("a", null), "1");
+
+        InputStream broken = new InputStream() {
+            @Override
+            public int read() throws IOException {
+                throw new IOException("broken");
+            }
+        };
+        assertTrue(resolver.reload(broken).isEmpty());
+        assertEquals(resolver.getProperty("a", null), "1");
+    }
 }
@@ -0,0 +1,79 @@
+/*
+ * copyright (C) 2008-2019 Patrick Stricker
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA 02111-1307, USA
+ *
+ * Patrick Stricker - http://pa2.de
+ */
+package de.pa2.commons.configuration.resolvers;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.testng.annotations.Test;
+
+public class SystemPropertyResolverTest {
+
+    @Test
+    public void liveModeReadsCurrentValues() {
+        SystemPropertyResolver resolver = new SystemPropertyResolver();
+        System.setProperty("system.live", "1");
+        try {
+            assertEquals(resolver.getProperty("system.live", null), "1");
+            System.setProperty("system.live", "2");
+            assertEquals(resolver.getProperty("system.live", null), "2");
+            assertTrue(resolver.refresh().isEmpty());
+        } finally {
+            System.clearProperty("system.live");
+        }
+    }
+
+    @Test
+    public void snapshotModeReadsCopyUntilRefresh() {
+        System.setProperty("system.snapshot.changed", "1");
+        System.setProperty("system.snapshot.removed", "1");
+        try {
+            SystemPropertyResolver resolver = new SystemPropertyResolver(true);
+            AtomicReference<Set<String>> notified = new AtomicReference<>();
+            resolver.addChangeListener(notified::set);
+
+            System.setProperty("system.snapshot.changed", "2");
+            System.clearProperty("system.snapshot.removed");
+            System.setProperty("system.snapshot.added", "1");
+            assertEquals(resolver.getProperty("system.snapshot.changed", null), "1");
+            assertEquals(resolver.getProperty("system.snapshot.removed", null), "1");
+            assertNull(resolver.getProperty("system.snapshot.added", null));
+
+            Set<String> expected = new HashSet<>(
+                    Arrays.asList("system.snapshot.changed", "system.snapshot.removed", "system.snapshot.added"));
+            assertEquals(resolver.refresh(), expected);
+            assertEquals(notified.get(), expected);
+            assertEquals(resolver.getProperties(Collections.singleton("system.snapshot.changed")),
+                    Collections.singletonMap("system.snapshot.changed", "2"));
+            assertNull(resolver.getProperty("system.snapshot.removed", null));
+            assertEquals(resolver.getProperty("system.snapshot.added", null), "1");
+        } finally {
+            System.clearProperty("system.snapshot.changed");
+            System.clearProperty("system.snapshot.added");
+        }
+    }
+}